@@ -0,0 +1,283 @@
+package com.bytegen.common.reload.benchmark;
+
+import com.bytegen.common.reload.ReloadValue;
+import com.bytegen.common.reload.ReloadZnode;
+import com.bytegen.common.reload.core.ReloadResourceFactoryProcessor;
+import com.bytegen.common.reload.core.ReloadZnodePropertySupport;
+import com.bytegen.common.reload.core.ZooKeeperClientPool;
+import com.bytegen.common.reload.handle.ReloadableLong;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.test.InstanceSpec;
+import org.apache.curator.test.KillSession;
+import org.apache.curator.test.TestingCluster;
+import org.apache.curator.test.TestingServer;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.MapPropertySource;
+
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the propagation latency from {@code setData} on a znode until the new value is visible in a
+ * {@code @ReloadValue} field, against an embedded zookeeper server or cluster.
+ * <p>
+ * Every run starts {@code contexts} application contexts, each with its own zookeeper session, and writes
+ * {@code updates} payloads of the given size at the given rate. Every payload carries the {@link System#nanoTime()}
+ * it was written at; an update counts as visible in a context once that context saw its stamp or a later one, so
+ * updates coalesced away are accounted for too. Fault runs restart the server, expire all sessions or kill a
+ * cluster member halfway through.
+ * <p>
+ * Configured with system properties: {@code harness.contexts} (default 4), {@code harness.updates} (default 100),
+ * {@code harness.sizes} in bytes (default {@code 1024,102400,921600}) and {@code harness.rates} in updates per second
+ * (default {@code 10,50}).
+ */
+public class PropagationLatencyHarness {
+
+    static final String ZK_NODE = "/harness";
+    static final String STAMP_KEY = "harness.stamp";
+
+    private static final long PROPAGATION_TIMEOUT_MILLIS = 30000L;
+
+    private enum Fault {
+        NONE, SERVER_RESTART, SESSION_EXPIRY, CLUSTER_MEMBER_LOSS
+    }
+
+    private final int contexts;
+    private final int updates;
+    private int runs;
+
+    PropagationLatencyHarness(final int contexts, final int updates) {
+        this.contexts = contexts;
+        this.updates = updates;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int contexts = Integer.getInteger("harness.contexts", 4);
+        int updates = Integer.getInteger("harness.updates", 100);
+        int[] sizes = parseInts(System.getProperty("harness.sizes", "1024,102400,921600"));
+        int[] rates = parseInts(System.getProperty("harness.rates", "10,50"));
+        System.setProperty(ReloadZnodePropertySupport.METRICS_JMX_ENABLED, "false");
+
+        PropagationLatencyHarness harness = new PropagationLatencyHarness(contexts, updates);
+        System.out.printf("%-20s %9s %6s %8s %8s %6s %10s %10s %10s%n",
+                "fault", "bytes", "rate/s", "contexts", "updates", "lost", "p50 ms", "p99 ms", "max ms");
+        for (int size : sizes) {
+            for (int rate : rates) {
+                harness.runOnServer(Fault.NONE, size, rate);
+            }
+        }
+        harness.runOnServer(Fault.SERVER_RESTART, sizes[0], rates[0]);
+        harness.runOnServer(Fault.SESSION_EXPIRY, sizes[0], rates[0]);
+        harness.runOnCluster(sizes[0], rates[0]);
+        System.exit(0);
+    }
+
+    private void runOnServer(final Fault fault, final int size, final int rate) throws Exception {
+        try (TestingServer server = new TestingServer()) {
+            run(fault, server.getConnectString(), size, rate, () -> {
+                if (fault == Fault.SERVER_RESTART) {
+                    server.restart();
+                }
+            });
+        }
+    }
+
+    private void runOnCluster(final int size, final int rate) throws Exception {
+        try (TestingCluster cluster = new TestingCluster(3)) {
+            cluster.start();
+            InstanceSpec member = cluster.getInstances().iterator().next();
+            run(Fault.CLUSTER_MEMBER_LOSS, cluster.getConnectString(), size, rate, () -> {
+                cluster.killServer(member);
+                Thread.sleep(2000);
+                cluster.restartServer(member);
+            });
+        }
+    }
+
+    private void run(final Fault fault, final String connectString, final int size, final int rate,
+                     final FaultAction action) throws Exception {
+        final int run = ++runs;
+        final ZooKeeperClientPool.Lease writerLease = ZooKeeperClientPool.getInstance().acquire(connectString, null);
+        final CuratorFramework writer = writerLease.getClient();
+        writer.create().orSetData().forPath(ZK_NODE, payload(0L, size));
+
+        final long[] stamps = new long[updates];
+        final AtomicInteger written = new AtomicInteger();
+        final List<Probe> probes = new ArrayList<>(contexts);
+        try {
+            for (int i = 0; i < contexts; i++) {
+                // a distinct auth per context gives every context its own zookeeper client and session
+                probes.add(new Probe(connectString, "harness:run" + run + "-context" + i, stamps, written));
+            }
+
+            final long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+            long next = System.nanoTime();
+            for (int k = 0; k < updates; k++) {
+                if (k == updates / 2) {
+                    applyFault(fault, action, probes);
+                }
+                final long stamp = System.nanoTime();
+                stamps[k] = stamp;
+                written.set(k + 1);
+                writer.setData().forPath(ZK_NODE, payload(stamp, size));
+
+                next += intervalNanos;
+                final long sleepNanos = next - System.nanoTime();
+                if (sleepNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                }
+            }
+
+            final long deadline = System.currentTimeMillis() + PROPAGATION_TIMEOUT_MILLIS;
+            for (Probe probe : probes) {
+                probe.awaitAll(deadline);
+            }
+            report(fault, size, rate, probes);
+        } finally {
+            for (Probe probe : probes) {
+                probe.close();
+            }
+            writerLease.close();
+        }
+    }
+
+    private void applyFault(final Fault fault, final FaultAction action, final List<Probe> probes) throws Exception {
+        if (fault == Fault.SESSION_EXPIRY) {
+            for (Probe probe : probes) {
+                KillSession.kill(probe.client().getZookeeperClient().getZooKeeper());
+            }
+        } else if (fault != Fault.NONE) {
+            action.apply();
+        }
+    }
+
+    private void report(final Fault fault, final int size, final int rate, final List<Probe> probes) {
+        final List<Long> all = new ArrayList<>();
+        int lost = 0;
+        for (Probe probe : probes) {
+            synchronized (probe) {
+                all.addAll(probe.latencies);
+                lost += updates - probe.latencies.size();
+            }
+        }
+        final long[] latencies = new long[all.size()];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = all.get(i);
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%-20s %9d %6d %8d %8d %6d %10.2f %10.2f %10.2f%n", fault, size, rate, contexts, updates, lost,
+                millis(percentile(latencies, 0.5)), millis(percentile(latencies, 0.99)),
+                millis(latencies.length == 0 ? 0L : latencies[latencies.length - 1]));
+    }
+
+    /**
+     * Payload of the given size, only the stamp line changes between updates.
+     */
+    static byte[] payload(final long stamp, final int size) {
+        final StringBuilder payload = new StringBuilder(size + 64);
+        payload.append(STAMP_KEY).append('=').append(stamp).append('\n');
+        for (int i = 0; payload.length() < size; i++) {
+            payload.append("harness.padding.").append(i).append("=0123456789abcdef0123456789abcdef\n");
+        }
+        return payload.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long percentile(final long[] sorted, final double quantile) {
+        if (sorted.length == 0) {
+            return 0L;
+        }
+        return sorted[Math.max(0, (int) Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    private static double millis(final long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static int[] parseInts(final String text) {
+        return Arrays.stream(text.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+
+    @FunctionalInterface
+    private interface FaultAction {
+        void apply() throws Exception;
+    }
+
+    /**
+     * One simulated client context, recording the latency of every update once its stamp, or a later one, is seen.
+     */
+    private static final class Probe implements Closeable {
+        private final ZooKeeperClientPool.Lease lease;
+        private final long[] stamps;
+        private final AtomicInteger written;
+        private final AnnotationConfigApplicationContext context;
+
+        // guarded by this
+        private final List<Long> latencies = new ArrayList<>();
+        private int nextUpdate;
+
+        Probe(final String connectString, final String auth, final long[] stamps, final AtomicInteger written) {
+            this.stamps = stamps;
+            this.written = written;
+
+            Map<String, Object> properties = new HashMap<>();
+            properties.put("harness.zk.server", connectString);
+            properties.put("harness.zk.auth", auth);
+            this.context = new AnnotationConfigApplicationContext();
+            this.context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("harness", properties));
+            this.context.register(ReloadResourceFactoryProcessor.class, ReloadZnodePropertySupport.class,
+                    HarnessZnode.class, StampBean.class);
+            this.context.refresh();
+            this.context.getBean(StampBean.class).stamp.addListener(handle -> seen(((ReloadableLong) handle).get()));
+            // shares the pooled client of the context, kept open for fault injection
+            this.lease = ZooKeeperClientPool.getInstance().acquire(connectString, auth);
+        }
+
+        CuratorFramework client() {
+            return lease.getClient();
+        }
+
+        private void seen(final long stamp) {
+            final long now = System.nanoTime();
+            final int limit = written.get();
+            synchronized (this) {
+                while (nextUpdate < limit && stamps[nextUpdate] <= stamp) {
+                    latencies.add(now - stamps[nextUpdate]);
+                    nextUpdate++;
+                }
+                notifyAll();
+            }
+        }
+
+        synchronized void awaitAll(final long deadline) throws InterruptedException {
+            long remaining;
+            while (nextUpdate < stamps.length && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                wait(remaining);
+            }
+        }
+
+        @Override
+        public void close() {
+            context.close();
+            lease.close();
+        }
+    }
+
+    @Configuration
+    @ReloadZnode(zookeeperServer = "${harness.zk.server}", zookeeperAuth = "${harness.zk.auth}",
+            zookeeperPath = ZK_NODE)
+    public static class HarnessZnode {
+    }
+
+    public static class StampBean {
+        @ReloadValue("${" + STAMP_KEY + "}")
+        private final ReloadableLong stamp = new ReloadableLong();
+    }
+}
@@ -0,0 +1,96 @@
+package com.bytegen.common.reload.benchmark;
+
+import com.bytegen.common.reload.bean.PropertyChangedEvent;
+import com.bytegen.common.reload.core.ReloadPropertyEventPublisher;
+import com.bytegen.common.reload.event.EventNotifier;
+import com.bytegen.common.reload.event.EventSubscriber;
+import com.bytegen.common.reload.resolver.SnapshotPropertyResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ReloadPropertyEventPublisher#onPropertyChanged(Properties)} on a full node payload of {@code keys} properties,
+ * of which a {@code changeFraction} changed, every key bound to one placeholder. Successive invocations alternate
+ * between two payloads, so every invocation applies the same number of changes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PublisherBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int keys;
+
+    @Param({"0.001", "0.01", "0.1"})
+    private double changeFraction;
+
+    private ReloadPropertyEventPublisher publisher;
+    private final Properties[] payloads = new Properties[2];
+    private int next;
+
+    @Setup
+    public void setUp(final Blackhole blackhole) {
+        int changed = Math.max(1, (int) (keys * changeFraction));
+        payloads[0] = new Properties();
+        payloads[1] = new Properties();
+        for (int i = 0; i < keys; i++) {
+            payloads[0].setProperty("benchmark.key." + i, "value-" + i);
+            payloads[1].setProperty("benchmark.key." + i, i < changed ? "changed-" + i : "value-" + i);
+        }
+
+        SnapshotPropertyResolver resolver = new SnapshotPropertyResolver();
+        resolver.addProperties(payloads[0]);
+        publisher = new ReloadPropertyEventPublisher(resolver, new ConsumingEventNotifier(blackhole), new HashMap<>());
+        for (int i = 0; i < keys; i++) {
+            publisher.addPlaceholder("${benchmark.key." + i + "}");
+        }
+        next = 1;
+    }
+
+    @Benchmark
+    public void onPropertyChanged() {
+        publisher.onPropertyChanged(payloads[next]);
+        next ^= 1;
+    }
+
+    /**
+     * Consumes the posted events, keeping the dispatch out of the measurement.
+     */
+    static final class ConsumingEventNotifier implements EventNotifier {
+        private final Blackhole blackhole;
+
+        ConsumingEventNotifier(final Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void post(final PropertyChangedEvent propertyChangedEvent) {
+            blackhole.consume(propertyChangedEvent);
+        }
+
+        @Override
+        public void unregister(final EventSubscriber eventSubscriber) {
+        }
+
+        @Override
+        public void register(final EventSubscriber eventSubscriber) {
+        }
+    }
+}
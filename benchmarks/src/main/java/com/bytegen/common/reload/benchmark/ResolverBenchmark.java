@@ -0,0 +1,75 @@
+package com.bytegen.common.reload.benchmark;
+
+import com.bytegen.common.reload.resolver.PropertiesPropertyResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Property lookups and placeholder resolution of {@link PropertiesPropertyResolver}, with placeholders nested
+ * {@code depth} levels deep.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResolverBenchmark {
+
+    @Param({"1000", "100000"})
+    private int keys;
+
+    @Param({"1", "4"})
+    private int depth;
+
+    private PropertiesPropertyResolver resolver;
+    private String key;
+    private String missingKey;
+    private String placeholder;
+
+    @Setup
+    public void setUp() {
+        Properties properties = new Properties();
+        for (int i = 0; i < keys; i++) {
+            properties.setProperty("benchmark.key." + i, "value-" + i);
+        }
+        // nested.0 references a plain key, nested.n the value of nested.(n-1)
+        properties.setProperty("benchmark.nested.0", "${benchmark.key." + (keys / 2) + "}");
+        for (int i = 1; i < depth; i++) {
+            properties.setProperty("benchmark.nested." + i, "[${benchmark.nested." + (i - 1) + "}]");
+        }
+
+        resolver = new PropertiesPropertyResolver();
+        resolver.addProperties(properties);
+        key = "benchmark.key." + (keys / 2);
+        missingKey = "benchmark.missing";
+        placeholder = "prefix ${benchmark.nested." + (depth - 1) + "} suffix";
+    }
+
+    @Benchmark
+    public String getProperty() {
+        return resolver.getProperty(key);
+    }
+
+    @Benchmark
+    public String getMissingProperty() {
+        return resolver.getProperty(missingKey);
+    }
+
+    @Benchmark
+    public String resolvePlaceholders() {
+        return resolver.resolvePlaceholders(placeholder);
+    }
+}
@@ -0,0 +1,128 @@
+package com.bytegen.common.reload.benchmark;
+
+import com.bytegen.common.reload.ReloadValue;
+import com.bytegen.common.reload.ReloadZnode;
+import com.bytegen.common.reload.core.ReloadResourceFactoryProcessor;
+import com.bytegen.common.reload.core.ReloadZnodePropertySupport;
+import com.bytegen.common.reload.core.ZooKeeperClientPool;
+import org.apache.curator.test.TestingServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Start up cost of injecting the {@code @ReloadValue} fields of a graph of {@code beans} beans through
+ * {@link ReloadZnodePropertySupport#postProcessAfterInstantiation}, the path every bean takes on context refresh.
+ * The properties are read once from an in-process zookeeper server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StartupBenchmark {
+
+    static final String ZK_SERVER_PROPERTY = "benchmark.zk.server";
+    static final String ZK_NODE = "/benchmark";
+
+    @Param({"100", "1000", "10000"})
+    private int beans;
+
+    private TestingServer server;
+    private AnnotationConfigApplicationContext context;
+    private ReloadZnodePropertySupport support;
+    private SettingsBean[] graph;
+
+    @Setup(Level.Trial)
+    public void startContext() throws Exception {
+        server = new TestingServer();
+        String payload = "setting.timeout=250\n"
+                + "setting.retries=3\n"
+                + "setting.enabled=true\n"
+                + "setting.ratio=0.75\n"
+                + "setting.name=benchmark\n"
+                + "setting.greeting=Hello, ${setting.name}!\n"
+                + "setting.hosts=a.example.com,b.example.com,c.example.com\n"
+                + "setting.limit=1048576\n";
+        try (ZooKeeperClientPool.Lease lease = ZooKeeperClientPool.getInstance().acquire(server.getConnectString(), null)) {
+            lease.getClient().create().forPath(ZK_NODE, payload.getBytes(StandardCharsets.UTF_8));
+        }
+
+        System.setProperty(ZK_SERVER_PROPERTY, server.getConnectString());
+        System.setProperty(ReloadZnodePropertySupport.METRICS_JMX_ENABLED, "false");
+        context = new AnnotationConfigApplicationContext(ReloadResourceFactoryProcessor.class,
+                ReloadZnodePropertySupport.class, BenchmarkZnode.class);
+        support = context.getBean(ReloadZnodePropertySupport.class);
+    }
+
+    @Setup(Level.Invocation)
+    public void createGraph() {
+        graph = new SettingsBean[beans];
+        for (int i = 0; i < beans; i++) {
+            graph[i] = new SettingsBean();
+        }
+    }
+
+    @Benchmark
+    public SettingsBean[] setPropertiesOnBeans() {
+        for (int i = 0; i < graph.length; i++) {
+            support.postProcessAfterInstantiation(graph[i], "settings" + i);
+        }
+        return graph;
+    }
+
+    @TearDown(Level.Invocation)
+    public void destroyGraph() {
+        // drop the subscriptions, the next invocation binds a fresh graph
+        for (int i = 0; i < graph.length; i++) {
+            support.postProcessBeforeDestruction(graph[i], "settings" + i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext() throws Exception {
+        context.close();
+        server.close();
+    }
+
+    @Configuration
+    @ReloadZnode(zookeeperServer = "${" + ZK_SERVER_PROPERTY + "}", zookeeperPath = ZK_NODE)
+    public static class BenchmarkZnode {
+    }
+
+    public static class SettingsBean {
+        @ReloadValue("${setting.timeout}")
+        private int timeout;
+        @ReloadValue("${setting.retries}")
+        private long retries;
+        @ReloadValue("${setting.enabled}")
+        private boolean enabled;
+        @ReloadValue("${setting.ratio}")
+        private double ratio;
+        @ReloadValue("${setting.name}")
+        private String name;
+        @ReloadValue("${setting.greeting}")
+        private String greeting;
+        @ReloadValue("${setting.hosts}")
+        private List<String> hosts;
+        @ReloadValue("${setting.limit}")
+        private Long limit;
+    }
+}
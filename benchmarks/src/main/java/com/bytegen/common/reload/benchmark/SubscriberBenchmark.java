@@ -0,0 +1,107 @@
+package com.bytegen.common.reload.benchmark;
+
+import com.bytegen.common.reload.ReloadValue;
+import com.bytegen.common.reload.bean.BeanPropertyHolder;
+import com.bytegen.common.reload.bean.PropertyChangedEvent;
+import com.bytegen.common.reload.core.ReloadPropertyEventSubscriber;
+import com.bytegen.common.reload.event.DispatchTableEventNotifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fan-out of one {@link PropertyChangedEvent} by {@link ReloadPropertyEventSubscriber} to {@code holders} bound
+ * fields, either written through the primitive path or converted, and the same primitive fan-out through the
+ * dispatch table of a {@link DispatchTableEventNotifier}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubscriberBenchmark {
+
+    private static final String INT_PLACEHOLDER = "${benchmark.int}";
+    private static final String LONG_BOXED_PLACEHOLDER = "${benchmark.long}";
+
+    @Param({"1", "10", "100", "1000"})
+    private int holders;
+
+    private ReloadPropertyEventSubscriber subscriber;
+    private DispatchTableEventNotifier tableNotifier;
+    private final PropertyChangedEvent[] intEvents = new PropertyChangedEvent[2];
+    private final PropertyChangedEvent[] boxedEvents = new PropertyChangedEvent[2];
+    private int next;
+
+    @Setup
+    public void setUp(final Blackhole blackhole) throws Exception {
+        Field intField = Target.class.getDeclaredField("intValue");
+        Field boxedField = Target.class.getDeclaredField("boxedValue");
+        intField.setAccessible(true);
+        boxedField.setAccessible(true);
+
+        Set<BeanPropertyHolder> intHolders = new HashSet<>();
+        Set<BeanPropertyHolder> boxedHolders = new HashSet<>();
+        for (int i = 0; i < holders; i++) {
+            Target target = new Target();
+            intHolders.add(new BeanPropertyHolder(target, intField));
+            boxedHolders.add(new BeanPropertyHolder(target, boxedField));
+        }
+        Map<String, Set<BeanPropertyHolder>> subscriptions = new HashMap<>();
+        subscriptions.put(INT_PLACEHOLDER, intHolders);
+        subscriptions.put(LONG_BOXED_PLACEHOLDER, boxedHolders);
+
+        subscriber = new ReloadPropertyEventSubscriber(new PublisherBenchmark.ConsumingEventNotifier(blackhole),
+                subscriptions);
+        tableNotifier = new DispatchTableEventNotifier();
+        // binds every subscribed field to the table
+        new ReloadPropertyEventSubscriber(tableNotifier, subscriptions);
+        intEvents[0] = new PropertyChangedEvent(INT_PLACEHOLDER, "2", "1");
+        intEvents[1] = new PropertyChangedEvent(INT_PLACEHOLDER, "1", "2");
+        boxedEvents[0] = new PropertyChangedEvent(LONG_BOXED_PLACEHOLDER, "2", "1");
+        boxedEvents[1] = new PropertyChangedEvent(LONG_BOXED_PLACEHOLDER, "1", "2");
+    }
+
+    @Benchmark
+    public void primitiveFanOut() {
+        subscriber.onPropertyChangedEvent(intEvents[next]);
+        next ^= 1;
+    }
+
+    @Benchmark
+    public void tablePrimitiveFanOut() {
+        tableNotifier.post(intEvents[next]);
+        next ^= 1;
+    }
+
+    @Benchmark
+    public void convertedFanOut() {
+        subscriber.onPropertyChangedEvent(boxedEvents[next]);
+        next ^= 1;
+    }
+
+    public static class Target {
+        @ReloadValue(INT_PLACEHOLDER)
+        private int intValue;
+
+        @ReloadValue(LONG_BOXED_PLACEHOLDER)
+        private Long boxedValue;
+    }
+}
@@ -0,0 +1,22 @@
+package com.bytegen.common.reload;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method of a bean with {@link ReloadValue} fields to be called back once the fields were reloaded, e.g. to
+ * rebuild state derived from them.
+ * <p>
+ * The method is invoked once per applied update changing at least one field of the bean, after all changed fields
+ * of the bean were written. It takes either no parameter or a single {@code Set<String>} receiving the raw property
+ * keys changed by the update the changed fields of the bean depend on, directly or through nested placeholders; keys
+ * changed by the same update for other beans only are left out. Callbacks run on the executor configured with
+ * {@value com.bytegen.common.reload.core.ReloadZnodePropertySupport#CALLBACK_EXECUTOR}, one callback of a bean at a
+ * time and in update order.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface OnReload {
+}
@@ -25,7 +25,9 @@ public @interface ReloadValue {
 
     /**
      * The class used to convert the given property {@link Object} before being set on the given {@link Field}.
-     * The class will be instantiated with {@link org.springframework.beans.BeanUtils}, and default constructor is required
+     * The class will be instantiated with {@link org.springframework.beans.BeanUtils}, and default constructor is required.
+     * One instance is shared by all the fields of the same type, hence the conversion must be thread safe,
+     * and converted values are shared between fields bound to the same property value.
      */
     Class<? extends PropertyConversion> conversion() default DefaultPropertyConversion.class;
 }
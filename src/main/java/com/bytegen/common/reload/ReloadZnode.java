@@ -86,4 +86,40 @@ public @interface ReloadZnode {
      */
     String encoding() default "";
 
+    /**
+     * Indicate the quiet time in milliseconds to wait after a {@link #zookeeperPath() zookeeper node} update
+     * before applying it, updates arriving within the window are coalesced and only the latest one is applied.
+     * <p>Default is {@code 0}, applying every update immediately.
+     */
+    long coalesceWindowMillis() default 0;
+
+    /**
+     * Indicate the maximum delay in milliseconds an update is held back by the {@link #coalesceWindowMillis()},
+     * counted from the first coalesced update.
+     * <p>Default is {@code 0}, holding back no longer than one window.
+     */
+    long coalesceMaxDelayMillis() default 0;
+
+    /**
+     * Indicate how the properties are laid out under each {@link #zookeeperPath() zookeeper node}.
+     * <p>Default is {@link Layout#PROPERTIES}.
+     */
+    Layout layout() default Layout.PROPERTIES;
+
+    /**
+     * Layout of the properties under a zookeeper node.
+     */
+    enum Layout {
+        /**
+         * The node data is one {@code .properties} file, any update re-reads and re-parses the whole file.
+         */
+        PROPERTIES,
+        /**
+         * Each direct child node holds one property, named by the child and valued by the child data.
+         * An update of one child transfers and applies that single property.
+         * <p>{@link #coalesceWindowMillis()} and local snapshots apply to {@link #PROPERTIES} only.
+         */
+        KEY_PER_CHILD
+    }
+
 }
@@ -1,5 +1,7 @@
 package com.bytegen.common.reload.bean;
 
+import com.bytegen.common.reload.conversion.PropertyConversion;
+import com.bytegen.common.reload.handle.ReloadableWriter;
 import com.google.common.base.Objects;
 
 import java.lang.reflect.Field;
@@ -8,10 +10,33 @@ public class BeanPropertyHolder {
 
     private final Object bean;
     private final Field field;
+    private final PropertyWriter writer;
+    private final Object defaultValue;
+    private final PropertyConversion conversion;
 
+    /**
+     * The current value of the field is kept as its {@link #getDefaultValue() default value}, create the holder
+     * before injecting the field.
+     *
+     * @param bean  the bean holding the field.
+     * @param field the field to reload, must be accessible already. Fields holding a
+     *              {@link com.bytegen.common.reload.handle.Reloadable Reloadable} handle are reloaded through the handle.
+     */
     public BeanPropertyHolder(Object bean, Field field) {
+        this(bean, field, null);
+    }
+
+    /**
+     * @param conversion the shared conversion of the field, or {@code null} to look it up from its
+     *                   {@link com.bytegen.common.reload.ReloadValue ReloadValue} on every change.
+     */
+    public BeanPropertyHolder(Object bean, Field field, PropertyConversion conversion) {
+        this.conversion = conversion;
         this.bean = bean;
         this.field = field;
+        this.writer = ReloadableWriter.isReloadable(field) ?
+                ReloadableWriter.forField(bean, field) : new FieldWriter(bean, field);
+        this.defaultValue = this.writer.read();
     }
 
     public Object getBean() {
@@ -22,6 +47,27 @@ public class BeanPropertyHolder {
         return this.field;
     }
 
+    /**
+     * @return the writer pre-bound to the field of the bean.
+     */
+    public PropertyWriter getWriter() {
+        return this.writer;
+    }
+
+    /**
+     * @return the value of the field, or of its handle, before it was injected.
+     */
+    public Object getDefaultValue() {
+        return this.defaultValue;
+    }
+
+    /**
+     * @return the shared conversion of the field, {@code null} if not resolved on creation.
+     */
+    public PropertyConversion getConversion() {
+        return this.conversion;
+    }
+
     @Override
     public int hashCode() {
         return Objects.hashCode(this.bean, this.field);
@@ -0,0 +1,119 @@
+package com.bytegen.common.reload.bean;
+
+import com.bytegen.common.reload.event.ConfigChangeSet;
+import com.bytegen.common.reload.resolver.PropertySnapshot;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One applied version of the reloadable properties, every zookeeper node update applied as a whole
+ * advances the epoch by one.
+ * <p>
+ * An epoch is immutable, values read through {@link #getProperty(String)} or {@link #resolvePlaceholders(String)}
+ * all come from the same update. Read related values through a single epoch to never observe a mix of old and new
+ * values, e.g.
+ * <pre>
+ *     ConfigEpoch epoch = reloadZnodePropertySupport.getCurrentEpoch();
+ *     int min = Integer.parseInt(epoch.resolvePlaceholders("${pool.min}"));
+ *     int max = Integer.parseInt(epoch.resolvePlaceholders("${pool.max}"));
+ * </pre>
+ */
+public class ConfigEpoch {
+
+    private final long epoch;
+    private final long timestamp;
+    private final Set<String> changedKeys;
+    private final ConfigChangeSet changeSet;
+    private final Map<String, String> changedPlaceholders;
+    private final PropertySnapshot snapshot;
+
+    public ConfigEpoch(final long epoch, final Set<String> changedKeys, final Map<String, String> changedPlaceholders,
+                       final PropertySnapshot snapshot) {
+        this(epoch, changedKeys, null, changedPlaceholders, snapshot);
+    }
+
+    public ConfigEpoch(final long epoch, final ConfigChangeSet changeSet, final Map<String, String> changedPlaceholders,
+                       final PropertySnapshot snapshot) {
+        this(epoch, changeSet.getChangedKeys(), changeSet, changedPlaceholders, snapshot);
+    }
+
+    private ConfigEpoch(final long epoch, final Set<String> changedKeys, final ConfigChangeSet changeSet,
+                        final Map<String, String> changedPlaceholders, final PropertySnapshot snapshot) {
+        this.epoch = epoch;
+        this.timestamp = System.currentTimeMillis();
+        this.changedKeys = Collections.unmodifiableSet(changedKeys);
+        this.changeSet = changeSet;
+        this.changedPlaceholders = Collections.unmodifiableMap(changedPlaceholders);
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * @return the epoch number, {@code 0} for the properties loaded on start up.
+     */
+    public long getEpoch() {
+        return this.epoch;
+    }
+
+    /**
+     * @return the time the epoch was created, in milliseconds.
+     */
+    public long getTimestamp() {
+        return this.timestamp;
+    }
+
+    /**
+     * @return the raw property keys changed by this epoch.
+     */
+    public Set<String> getChangedKeys() {
+        return this.changedKeys;
+    }
+
+    /**
+     * @return the added, modified and removed raw property keys of this epoch, {@code null} if created from the
+     * changed keys only.
+     */
+    public ConfigChangeSet getChangeSet() {
+        return this.changeSet;
+    }
+
+    /**
+     * @return the registered placeholders changed by this epoch, mapped to their new resolved values; placeholders
+     * reverted to the default values of their fields are mapped to {@code null}.
+     */
+    public Map<String, String> getChangedPlaceholders() {
+        return this.changedPlaceholders;
+    }
+
+    public PropertySnapshot getSnapshot() {
+        return this.snapshot;
+    }
+
+    /**
+     * @return the resolved property value of this epoch associated with the given key,
+     * or {@code null} if the key not exists.
+     */
+    public String getProperty(final String key) {
+        final String value = this.snapshot.getProperty(key);
+        return null == value ? null : this.snapshot.resolvePlaceholders(value, null);
+    }
+
+    /**
+     * Resolve ${...} placeholders in the given text with the values of this epoch.
+     *
+     * @throws IllegalArgumentException if any placeholders are unresolvable.
+     */
+    public String resolvePlaceholders(final String text) {
+        return this.snapshot.resolvePlaceholders(text, null);
+    }
+
+    @Override
+    public String toString() {
+        return "{\"ConfigEpoch\":{"
+                + "\"epoch\":" + epoch
+                + ", \"timestamp\":" + timestamp
+                + ", \"changedKeys\":" + changedKeys
+                + "}}";
+    }
+}
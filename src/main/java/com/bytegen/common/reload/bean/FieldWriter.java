@@ -0,0 +1,176 @@
+package com.bytegen.common.reload.bean;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.util.Assert;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * Writer of one field of one bean, pre-bound once to a {@link MethodHandle} setter so writes skip the access checks
+ * of {@link Field#set(Object, Object)}.
+ * <p>
+ * {@code int}, {@code long}, {@code boolean} and {@code double} fields additionally have primitive write paths,
+ * {@link #writePrimitive(String)} parses the text straight into the field without boxing.
+ */
+public final class FieldWriter implements PropertyWriter {
+
+    private final Field field;
+    private final Class<?> type;
+    private final ResolvableType targetType;
+    // setter bound to the bean, (fieldType)void
+    private final MethodHandle setter;
+    // setter bound to the bean, (Object)void
+    private final MethodHandle objectSetter;
+    // getter bound to the bean, ()Object
+    private final MethodHandle objectGetter;
+
+    /**
+     * @param bean  the bean to write, ignored for static fields.
+     * @param field the field to write, must be accessible already.
+     */
+    public FieldWriter(final Object bean, final Field field) {
+        Assert.notNull(field, "Field can not be null");
+
+        this.field = field;
+        this.type = field.getType();
+        this.targetType = ResolvableType.forClass(this.type);
+        try {
+            MethodHandle handle = MethodHandles.lookup().unreflectSetter(field);
+            MethodHandle getter = MethodHandles.lookup().unreflectGetter(field);
+            if (!Modifier.isStatic(field.getModifiers())) {
+                Assert.notNull(bean, "Bean can not be null");
+                handle = handle.bindTo(bean);
+                getter = getter.bindTo(bean);
+            }
+            this.setter = handle;
+            this.objectSetter = handle.asType(MethodType.methodType(void.class, Object.class));
+            this.objectGetter = getter.asType(MethodType.methodType(Object.class));
+        } catch (final IllegalAccessException e) {
+            throw new IllegalStateException("Unable to access field [" + field.getName() + "]", e);
+        }
+    }
+
+    public Field getField() {
+        return this.field;
+    }
+
+    @Override
+    public ResolvableType getTargetType() {
+        return this.targetType;
+    }
+
+    @Override
+    public void write(final Object value) {
+        try {
+            this.objectSetter.invokeExact(value);
+        } catch (final RuntimeException | Error e) {
+            throw e;
+        } catch (final Throwable e) {
+            throw new IllegalStateException("Unable to write field [" + this.field.getName() + "]", e);
+        }
+    }
+
+    @Override
+    public Object read() {
+        try {
+            return this.objectGetter.invokeExact();
+        } catch (final RuntimeException | Error e) {
+            throw e;
+        } catch (final Throwable e) {
+            throw new IllegalStateException("Unable to read field [" + this.field.getName() + "]", e);
+        }
+    }
+
+    public void writeInt(final int value) {
+        checkType(int.class);
+        try {
+            this.setter.invokeExact(value);
+        } catch (final Throwable e) {
+            throw new IllegalStateException("Unable to write field [" + this.field.getName() + "]", e);
+        }
+    }
+
+    public void writeLong(final long value) {
+        checkType(long.class);
+        try {
+            this.setter.invokeExact(value);
+        } catch (final Throwable e) {
+            throw new IllegalStateException("Unable to write field [" + this.field.getName() + "]", e);
+        }
+    }
+
+    public void writeBoolean(final boolean value) {
+        checkType(boolean.class);
+        try {
+            this.setter.invokeExact(value);
+        } catch (final Throwable e) {
+            throw new IllegalStateException("Unable to write field [" + this.field.getName() + "]", e);
+        }
+    }
+
+    public void writeDouble(final double value) {
+        checkType(double.class);
+        try {
+            this.setter.invokeExact(value);
+        } catch (final Throwable e) {
+            throw new IllegalStateException("Unable to write field [" + this.field.getName() + "]", e);
+        }
+    }
+
+    @Override
+    public boolean writePrimitive(final String text) {
+        if (!this.type.isPrimitive() || null == text) {
+            return false;
+        }
+
+        final String trimmed = text.trim();
+        try {
+            if (this.type == int.class) {
+                writeInt(Integer.parseInt(trimmed));
+            } else if (this.type == long.class) {
+                writeLong(Long.parseLong(trimmed));
+            } else if (this.type == double.class) {
+                writeDouble(Double.parseDouble(trimmed));
+            } else if (this.type == boolean.class) {
+                int parsed = parseBoolean(trimmed);
+                if (parsed < 0) {
+                    return false;
+                }
+                writeBoolean(parsed == 1);
+            } else {
+                return false;
+            }
+        } catch (final NumberFormatException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Parse the trimmed text as the default conversion does.
+     *
+     * @return {@code 1} for true, {@code 0} for false, {@code -1} if not a boolean text.
+     */
+    public static int parseBoolean(final String trimmed) {
+        if ("true".equalsIgnoreCase(trimmed) || "on".equalsIgnoreCase(trimmed)
+                || "yes".equalsIgnoreCase(trimmed) || "1".equals(trimmed)) {
+            return 1;
+        }
+        if ("false".equalsIgnoreCase(trimmed) || "off".equalsIgnoreCase(trimmed)
+                || "no".equalsIgnoreCase(trimmed) || "0".equals(trimmed)) {
+            return 0;
+        }
+        return -1;
+    }
+
+    private void checkType(final Class<?> expected) {
+        if (this.type != expected) {
+            throw new IllegalStateException(String.format("Unable to write [%s] to field [%s] of type [%s]",
+                    expected, this.field.getName(), this.type));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.bytegen.common.reload.bean;
+
+import org.springframework.util.Assert;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * All {@link PropertyChangedEvent}s of one applied update, e.g. of one znode update, delivered as a single dispatch.
+ * Subscribers apply the changes of a batch grouped by bean, the related fields of one bean change together.
+ */
+public class PropertyChangeBatch {
+
+    private final long epoch;
+    private final Set<String> changedKeys;
+    private final List<PropertyChangedEvent> events;
+    private final Map<String, Set<String>> placeholderKeys;
+
+    /**
+     * @param epoch       the {@link ConfigEpoch#getEpoch() epoch} of the update.
+     * @param changedKeys the raw property keys changed by the update.
+     * @param events      the change events of the changed placeholders, in posting order.
+     */
+    public PropertyChangeBatch(final long epoch, final Set<String> changedKeys, final List<PropertyChangedEvent> events) {
+        this(epoch, changedKeys, events, Collections.emptyMap());
+    }
+
+    /**
+     * @param placeholderKeys per changed placeholder the changed raw property keys it depends on.
+     */
+    public PropertyChangeBatch(final long epoch, final Set<String> changedKeys, final List<PropertyChangedEvent> events,
+                               final Map<String, Set<String>> placeholderKeys) {
+        Assert.notNull(changedKeys, "Changed keys can not be null");
+        Assert.notNull(events, "Events can not be null");
+        Assert.notNull(placeholderKeys, "Placeholder keys can not be null");
+        this.epoch = epoch;
+        this.changedKeys = Collections.unmodifiableSet(changedKeys);
+        this.events = Collections.unmodifiableList(events);
+        this.placeholderKeys = Collections.unmodifiableMap(placeholderKeys);
+    }
+
+    public long getEpoch() {
+        return this.epoch;
+    }
+
+    /**
+     * @return the raw property keys changed by the update.
+     */
+    public Set<String> getChangedKeys() {
+        return this.changedKeys;
+    }
+
+    /**
+     * @return the changed raw property keys the placeholders of the events depend on; all changed keys of the update
+     * if the dependencies of a placeholder are unknown.
+     */
+    public Set<String> getChangedKeys(final Collection<PropertyChangedEvent> events) {
+        final Set<String> keys = new HashSet<>();
+        for (PropertyChangedEvent event : events) {
+            final Set<String> dependencies = this.placeholderKeys.get(event.getPropertyName());
+            if (null == dependencies) {
+                return this.changedKeys;
+            }
+            keys.addAll(dependencies);
+        }
+        return keys;
+    }
+
+    /**
+     * @return per changed placeholder the changed raw property keys it depends on.
+     */
+    public Map<String, Set<String>> getPlaceholderKeys() {
+        return this.placeholderKeys;
+    }
+
+    public List<PropertyChangedEvent> getEvents() {
+        return this.events;
+    }
+
+    public int size() {
+        return this.events.size();
+    }
+
+    @Override
+    public String toString() {
+        return "{\"PropertyChangeBatch\":{"
+                + "\"epoch\":" + epoch
+                + ", \"changedKeys\":" + changedKeys
+                + ", \"events\":" + events.size()
+                + "}}";
+    }
+}
@@ -12,11 +12,17 @@ public class PropertyChangedEvent {
     private String propertyName;
     private Object oldValue;
     private Object newValue;
+    private long epoch;
 
     public PropertyChangedEvent(final String propertyName, final Object oldValue, final Object newValue) {
+        this(propertyName, oldValue, newValue, 0L);
+    }
+
+    public PropertyChangedEvent(final String propertyName, final Object oldValue, final Object newValue, final long epoch) {
         this.propertyName = propertyName;
         this.oldValue = oldValue;
         this.newValue = newValue;
+        this.epoch = epoch;
     }
 
     public String getPropertyName() {
@@ -31,19 +37,27 @@ public class PropertyChangedEvent {
         return this.newValue;
     }
 
+    /**
+     * @return the {@link ConfigEpoch#getEpoch() epoch} the change belongs to.
+     */
+    public long getEpoch() {
+        return this.epoch;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         PropertyChangedEvent that = (PropertyChangedEvent) o;
-        return Objects.equals(propertyName, that.propertyName) &&
+        return epoch == that.epoch &&
+                Objects.equals(propertyName, that.propertyName) &&
                 Objects.equals(oldValue, that.oldValue) &&
                 Objects.equals(newValue, that.newValue);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(propertyName, oldValue, newValue);
+        return Objects.hash(propertyName, oldValue, newValue, epoch);
     }
 
     @Override
@@ -52,6 +66,7 @@ public class PropertyChangedEvent {
                 + ", \"propertyName\":\"" + propertyName + "\""
                 + ", \"oldValue\":" + oldValue
                 + ", \"newValue\":" + newValue
+                + ", \"epoch\":" + epoch
                 + "}";
     }
 }
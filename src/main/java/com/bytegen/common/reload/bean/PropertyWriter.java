@@ -0,0 +1,34 @@
+package com.bytegen.common.reload.bean;
+
+import org.springframework.core.ResolvableType;
+
+/**
+ * Writes property values to the target bound by a {@link BeanPropertyHolder}.
+ */
+public interface PropertyWriter {
+
+    /**
+     * @return the type property values are converted to before being {@link #write written}.
+     */
+    ResolvableType getTargetType();
+
+    /**
+     * @param value the converted property value.
+     */
+    void write(Object value);
+
+    /**
+     * @return the current value of the target, boxed if primitive.
+     */
+    Object read();
+
+    /**
+     * Parse the text straight into a primitive target without boxing, accepting the plain formats
+     * the default conversion accepts.
+     *
+     * @param text the property value to write.
+     * @return {@code false} if the target is not of a supported primitive type or the text is in a format not handled
+     * here, e.g. a hex number; the target is left untouched then.
+     */
+    boolean writePrimitive(String text);
+}
@@ -1,7 +1,9 @@
 package com.bytegen.common.reload.conversion;
 
-import com.google.common.base.Function;
 import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.TypeDescriptor;
 import org.springframework.core.convert.support.DefaultConversionService;
 
 import java.lang.reflect.Field;
@@ -11,6 +13,8 @@ import java.lang.reflect.Field;
  */
 public class DefaultPropertyConversion implements PropertyConversion {
 
+    private final ConversionService conversionService = DefaultConversionService.getSharedInstance();
+
     private DefaultPropertyConversion() {
     }
 
@@ -25,7 +29,7 @@ public class DefaultPropertyConversion implements PropertyConversion {
     @Override
     public Object convertPropertyForField(final Field field, final Object property) {
         try {
-            return new DefaultConverter<>(field.getType()).apply(property);
+            return conversionService.convert(property, field.getType());
         } catch (final Throwable e) {
             throw new BeanInitializationException(
                     String.format("Unable to convert property for field [%s].  Value [%s] cannot be converted to [%s]",
@@ -33,17 +37,32 @@ public class DefaultPropertyConversion implements PropertyConversion {
         }
     }
 
-    private static class DefaultConverter<T> implements Function<Object, T> {
-        private final Class<T> type;
-
-        public DefaultConverter(final Class<T> type) {
-            this.type = type;
+    /**
+     * Convert the property to the given type, including its generics.
+     *
+     * @param property   the property to be converted.
+     * @param targetType the type to convert to.
+     * @return the converted property.
+     */
+    public Object convertProperty(final Object property, final ResolvableType targetType) {
+        try {
+            return conversionService.convert(property, TypeDescriptor.forObject(property),
+                    new ResolvableTypeDescriptor(targetType));
+        } catch (final Throwable e) {
+            throw new BeanInitializationException(
+                    String.format("Unable to convert property.  Value [%s] cannot be converted to [%s]",
+                            property, targetType), e);
         }
+    }
 
-        @Override
-        public T apply(final Object input) {
-            return DefaultConversionService.getSharedInstance().convert(input, this.type);
+    /**
+     * Exposes the {@link ResolvableType} based constructor of {@link TypeDescriptor}, keeping the generics of the type.
+     */
+    private static final class ResolvableTypeDescriptor extends TypeDescriptor {
+        private static final long serialVersionUID = 1L;
+
+        private ResolvableTypeDescriptor(final ResolvableType resolvableType) {
+            super(resolvableType, null, null);
         }
     }
 }
-
@@ -0,0 +1,187 @@
+package com.bytegen.common.reload.conversion;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.core.ResolvableType;
+import org.springframework.util.Assert;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Shares {@link PropertyConversion} instances and their converted values between fields.
+ * <p>
+ * One conversion instance is created per conversion class and field type. Converted values are memoized in a bounded
+ * cache keyed by conversion, target type and property value, so fields of the same type bound to the same property
+ * share a single conversion. Holders of the same value therefore share the converted instance as well, conversions
+ * producing mutable values should not be modified by the beans.
+ */
+public class PropertyConversionCache {
+
+    public static final int DEFAULT_MAXIMUM_VALUES = 4096;
+
+    private static final Object NULL_VALUE = new Object();
+
+    private final ConcurrentMap<ConversionKey, PropertyConversion> conversions = new ConcurrentHashMap<>();
+    private final Cache<ValueKey, Object> values;
+
+    public PropertyConversionCache() {
+        this(DEFAULT_MAXIMUM_VALUES);
+    }
+
+    /**
+     * @param maximumValues maximum number of converted values memoized, {@code 0} disables memoization.
+     */
+    public PropertyConversionCache(final int maximumValues) {
+        Assert.isTrue(maximumValues >= 0, "Maximum values must not be negative");
+        this.values = CacheBuilder.newBuilder().maximumSize(maximumValues).build();
+    }
+
+    /**
+     * @return the shared conversion instance of the given conversion class for the given field type.
+     */
+    public PropertyConversion getConversion(final Class<? extends PropertyConversion> conversionClass, final Class<?> fieldType) {
+        if (isDefaultConversion(conversionClass)) {
+            return DefaultPropertyConversion.getInstance();
+        }
+        return this.conversions.computeIfAbsent(new ConversionKey(conversionClass, fieldType),
+                key -> BeanUtils.instantiateClass(conversionClass));
+    }
+
+    /**
+     * Convert the property value for the field with the shared conversion instance, returning the memoized value
+     * if the same value was converted for the same type already.
+     *
+     * @throws BeanInitializationException if the value cannot be converted.
+     */
+    public Object convertPropertyForField(final Class<? extends PropertyConversion> conversionClass, final Field field,
+                                          final Object propertyValue) {
+        return convertPropertyForField(conversionClass, field, null, propertyValue);
+    }
+
+    /**
+     * Convert the property value with the shared conversion instance, returning the memoized value
+     * if the same value was converted for the same type already.
+     *
+     * @param targetType the type the default conversion converts to, or {@code null} for the type of the field.
+     *                   Custom conversions always get the field.
+     * @throws BeanInitializationException if the value cannot be converted.
+     */
+    public Object convertPropertyForField(final Class<? extends PropertyConversion> conversionClass, final Field field,
+                                          final ResolvableType targetType, final Object propertyValue) {
+        final PropertyConversion conversion;
+        try {
+            conversion = getConversion(conversionClass, field.getType());
+        } catch (final Throwable e) {
+            throw new BeanInitializationException(
+                    String.format("Unable to convert property for field [%s].  Value [%s] cannot be converted to [%s]",
+                            field.getName(), propertyValue, field.getType()), e);
+        }
+        return convertPropertyForField(conversion, field, targetType, propertyValue);
+    }
+
+    /**
+     * Convert the property value with a conversion instance previously obtained from {@link #getConversion},
+     * returning the memoized value if the same value was converted for the same type already.
+     *
+     * @throws BeanInitializationException if the value cannot be converted.
+     */
+    public Object convertPropertyForField(final PropertyConversion conversion, final Field field,
+                                          final ResolvableType targetType, final Object propertyValue) {
+        final boolean convertToTargetType = null != targetType && conversion == DefaultPropertyConversion.getInstance()
+                && targetType.resolve() != field.getType();
+        final ValueKey key = new ValueKey(conversion,
+                convertToTargetType ? targetType.getType() : field.getGenericType(), propertyValue);
+        Object converted = this.values.getIfPresent(key);
+        if (null == converted) {
+            converted = convertToTargetType ?
+                    DefaultPropertyConversion.getInstance().convertProperty(propertyValue, targetType) :
+                    doConvert(conversion, field, propertyValue);
+            this.values.put(key, null == converted ? NULL_VALUE : converted);
+        }
+        return converted == NULL_VALUE ? null : converted;
+    }
+
+    /**
+     * Drop all memoized values, conversion instances are kept.
+     */
+    public void invalidateValues() {
+        this.values.invalidateAll();
+    }
+
+    public long getCachedValues() {
+        return this.values.size();
+    }
+
+    public static boolean isDefaultConversion(final Class<? extends PropertyConversion> conversionClass) {
+        return conversionClass == PropertyConversion.class || conversionClass == DefaultPropertyConversion.class;
+    }
+
+    private Object doConvert(final PropertyConversion conversion, final Field field, final Object propertyValue) {
+        try {
+            return conversion.convertPropertyForField(field, propertyValue);
+        } catch (final Throwable e) {
+            throw new BeanInitializationException(
+                    String.format("Unable to convert property for field [%s].  Value [%s] cannot be converted to [%s]",
+                            field.getName(), propertyValue, field.getType()), e);
+        }
+    }
+
+    private static final class ConversionKey {
+        private final Class<?> conversionClass;
+        private final Class<?> fieldType;
+
+        private ConversionKey(final Class<?> conversionClass, final Class<?> fieldType) {
+            this.conversionClass = conversionClass;
+            this.fieldType = fieldType;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(this.conversionClass, this.fieldType);
+        }
+
+        @Override
+        public boolean equals(final Object object) {
+            if (object instanceof ConversionKey) {
+                ConversionKey that = (ConversionKey) object;
+                return this.conversionClass == that.conversionClass && this.fieldType == that.fieldType;
+            }
+            return false;
+        }
+    }
+
+    private static final class ValueKey {
+        private final PropertyConversion conversion;
+        private final Type targetType;
+        private final Object propertyValue;
+        private final int hash;
+
+        private ValueKey(final PropertyConversion conversion, final Type targetType, final Object propertyValue) {
+            this.conversion = conversion;
+            this.targetType = targetType;
+            this.propertyValue = propertyValue;
+            this.hash = Objects.hashCode(System.identityHashCode(conversion), targetType, propertyValue);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(final Object object) {
+            if (object instanceof ValueKey) {
+                ValueKey that = (ValueKey) object;
+                return this.conversion == that.conversion && Objects.equal(this.targetType, that.targetType)
+                        && Objects.equal(this.propertyValue, that.propertyValue);
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.bytegen.common.reload.core;
+
+import com.bytegen.common.reload.event.PropertiesDelta;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary encoding of properties, read in place without decoding the whole payload.
+ * <p>
+ * The payload starts with the magic bytes {@code \0ZKB}, the format version, the number of entries and a CRC32 of the
+ * remaining bytes. An index of fixed size entries follows, each holding the offset and length of a key and of its
+ * value within the data area; the entries are sorted by the UTF-8 bytes of their keys. Keys and values are stored
+ * as UTF-8 in the data area.
+ * <p>
+ * A table wraps the received bytes or a memory-mapped snapshot as is: {@link #getProperty(String)} is a binary
+ * search over the index comparing raw bytes, and {@link #diff(BinaryPropertiesTable)} is a linear merge of two
+ * sorted indexes decoding only the changed entries.
+ */
+public final class BinaryPropertiesTable {
+
+    private static final byte[] MAGIC = {0, 'Z', 'K', 'B'};
+    private static final int FORMAT_VERSION = 1;
+    // magic, format version, entries, checksum
+    private static final int HEADER_LENGTH = 4 + 4 + 4 + 8;
+    // key offset, key length, value offset, value length
+    private static final int INDEX_ENTRY_LENGTH = 4 * 4;
+
+    // starts at the header
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int dataStart;
+
+    private BinaryPropertiesTable(final ByteBuffer buffer, final int size) {
+        this.buffer = buffer;
+        this.size = size;
+        this.dataStart = HEADER_LENGTH + size * INDEX_ENTRY_LENGTH;
+    }
+
+    /**
+     * @return whether the remaining bytes of the buffer start as a binary table.
+     */
+    public static boolean isBinary(final ByteBuffer payload) {
+        if (null == payload || payload.remaining() < HEADER_LENGTH) {
+            return false;
+        }
+        final int position = payload.position();
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (payload.get(position + i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Wrap the remaining bytes of the buffer without copying, the buffer must not be modified afterwards.
+     *
+     * @throws IOException if the bytes are no valid binary table.
+     */
+    public static BinaryPropertiesTable wrap(final ByteBuffer payload) throws IOException {
+        if (!isBinary(payload)) {
+            throw new IOException("Not a binary properties table");
+        }
+        final ByteBuffer buffer = payload.slice();
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported binary properties version [" + buffer.getInt(4) + "]");
+        }
+        final int size = buffer.getInt(8);
+        final long checksum = buffer.getLong(12);
+        if (size < 0 || (long) HEADER_LENGTH + (long) size * INDEX_ENTRY_LENGTH > buffer.limit()) {
+            throw new IOException("Truncated binary properties table");
+        }
+
+        final ByteBuffer content = buffer.duplicate();
+        content.position(HEADER_LENGTH);
+        final CRC32 crc = new CRC32();
+        crc.update(content);
+        if (crc.getValue() != checksum) {
+            throw new IOException("Invalid binary properties checksum");
+        }
+
+        final BinaryPropertiesTable table = new BinaryPropertiesTable(buffer, size);
+        final long dataLength = buffer.limit() - table.dataStart;
+        for (int i = 0; i < size; i++) {
+            if (!table.inData(table.keyOffset(i), table.keyLength(i), dataLength)
+                    || !table.inData(table.valueOffset(i), table.valueLength(i), dataLength)) {
+                throw new IOException("Corrupt binary properties index entry [" + i + "]");
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Encode the properties as a binary table.
+     */
+    public static byte[] encode(final Map<String, String> properties) {
+        Assert.notNull(properties, "Properties can not be null");
+
+        final List<byte[][]> entries = new ArrayList<>(properties.size());
+        long dataLength = 0;
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            Assert.notNull(property.getValue(), "Value of [" + property.getKey() + "] can not be null");
+            final byte[] key = property.getKey().getBytes(StandardCharsets.UTF_8);
+            final byte[] value = property.getValue().getBytes(StandardCharsets.UTF_8);
+            entries.add(new byte[][]{key, value});
+            dataLength += key.length + value.length;
+        }
+        entries.sort((a, b) -> compare(a[0], b[0]));
+
+        final long length = HEADER_LENGTH + (long) entries.size() * INDEX_ENTRY_LENGTH + dataLength;
+        Assert.isTrue(length <= Integer.MAX_VALUE, "Properties too large to encode");
+        final ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        buffer.put(MAGIC).putInt(FORMAT_VERSION).putInt(entries.size()).putLong(0L);
+        int offset = 0;
+        for (byte[][] entry : entries) {
+            buffer.putInt(offset).putInt(entry[0].length);
+            offset += entry[0].length;
+            buffer.putInt(offset).putInt(entry[1].length);
+            offset += entry[1].length;
+        }
+        for (byte[][] entry : entries) {
+            buffer.put(entry[0]).put(entry[1]);
+        }
+
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_LENGTH, buffer.capacity() - HEADER_LENGTH);
+        buffer.putLong(12, crc.getValue());
+        return buffer.array();
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public String getKey(final int index) {
+        return decode(keyOffset(index), keyLength(index));
+    }
+
+    public String getValue(final int index) {
+        return decode(valueOffset(index), valueLength(index));
+    }
+
+    /**
+     * Look the key up in place, only the value found is decoded.
+     *
+     * @return the value of the key, {@code null} if absent.
+     */
+    public String getProperty(final String key) {
+        final int index = indexOf(key.getBytes(StandardCharsets.UTF_8));
+        return index < 0 ? null : getValue(index);
+    }
+
+    public boolean containsProperty(final String key) {
+        return indexOf(key.getBytes(StandardCharsets.UTF_8)) >= 0;
+    }
+
+    /**
+     * Decode all entries, e.g. to {@link com.bytegen.common.reload.resolver.MutablePropertyResolver#setProperties
+     * set} them to a resolver.
+     */
+    public Map<String, String> toMap() {
+        final Map<String, String> properties = new HashMap<>(Math.max(16, this.size * 4 / 3 + 1));
+        for (int i = 0; i < this.size; i++) {
+            properties.put(getKey(i), getValue(i));
+        }
+        return properties;
+    }
+
+    /**
+     * Diff this table as the new version against the previous version in a single merge pass.
+     *
+     * @param previous the previous version, {@code null} if none.
+     */
+    public PropertiesDelta diff(final BinaryPropertiesTable previous) {
+        final int previousSize = null == previous ? 0 : previous.size;
+        final Map<String, String> changed = new HashMap<>();
+        final Set<String> removed = new HashSet<>();
+
+        int i = 0;
+        int j = 0;
+        while (i < this.size || j < previousSize) {
+            final int comparison;
+            if (i == this.size) {
+                comparison = 1;
+            } else if (j == previousSize) {
+                comparison = -1;
+            } else {
+                comparison = compare(this.buffer, this.dataStart + keyOffset(i), keyLength(i),
+                        previous.buffer, previous.dataStart + previous.keyOffset(j), previous.keyLength(j));
+            }
+
+            if (comparison < 0) {
+                changed.put(getKey(i), getValue(i));
+                i++;
+            } else if (comparison > 0) {
+                removed.add(previous.getKey(j));
+                j++;
+            } else {
+                if (0 != compare(this.buffer, this.dataStart + valueOffset(i), valueLength(i),
+                        previous.buffer, previous.dataStart + previous.valueOffset(j), previous.valueLength(j))) {
+                    changed.put(getKey(i), getValue(i));
+                }
+                i++;
+                j++;
+            }
+        }
+        return changed.isEmpty() && removed.isEmpty() ? PropertiesDelta.EMPTY : new PropertiesDelta(changed, removed);
+    }
+
+    private int indexOf(final byte[] key) {
+        int low = 0;
+        int high = this.size - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int comparison = compare(this.buffer, this.dataStart + keyOffset(middle), keyLength(middle), key);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private int indexEntry(final int index, final int field) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Index [" + index + "] of size [" + this.size + "]");
+        }
+        return this.buffer.getInt(HEADER_LENGTH + index * INDEX_ENTRY_LENGTH + field * 4);
+    }
+
+    private int keyOffset(final int index) {
+        return indexEntry(index, 0);
+    }
+
+    private int keyLength(final int index) {
+        return indexEntry(index, 1);
+    }
+
+    private int valueOffset(final int index) {
+        return indexEntry(index, 2);
+    }
+
+    private int valueLength(final int index) {
+        return indexEntry(index, 3);
+    }
+
+    private boolean inData(final int offset, final int length, final long dataLength) {
+        return offset >= 0 && length >= 0 && (long) offset + length <= dataLength;
+    }
+
+    private String decode(final int offset, final int length) {
+        final int start = this.dataStart + offset;
+        if (this.buffer.hasArray()) {
+            return new String(this.buffer.array(), this.buffer.arrayOffset() + start, length, StandardCharsets.UTF_8);
+        }
+        final byte[] bytes = new byte[length];
+        final ByteBuffer duplicate = this.buffer.duplicate();
+        duplicate.position(start);
+        duplicate.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int compare(final ByteBuffer a, final int aStart, final int aLength,
+                               final ByteBuffer b, final int bStart, final int bLength) {
+        final int length = Math.min(aLength, bLength);
+        for (int i = 0; i < length; i++) {
+            final int comparison = (a.get(aStart + i) & 0xff) - (b.get(bStart + i) & 0xff);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return aLength - bLength;
+    }
+
+    private static int compare(final ByteBuffer a, final int aStart, final int aLength, final byte[] b) {
+        final int length = Math.min(aLength, b.length);
+        for (int i = 0; i < length; i++) {
+            final int comparison = (a.get(aStart + i) & 0xff) - (b[i] & 0xff);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return aLength - b.length;
+    }
+
+    private static int compare(final byte[] a, final byte[] b) {
+        final int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            final int comparison = (a[i] & 0xff) - (b[i] & 0xff);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return a.length - b.length;
+    }
+}
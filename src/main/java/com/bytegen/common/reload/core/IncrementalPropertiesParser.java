@@ -0,0 +1,230 @@
+package com.bytegen.common.reload.core;
+
+import com.bytegen.common.reload.event.PropertiesDelta;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.apache.zookeeper.data.Stat;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Parses successive versions of a {@code .properties} payload into deltas against the previous version.
+ * <p>
+ * Payloads of the same node version, or with the same content hash, are skipped without decoding. Otherwise the
+ * payload is inflated by a {@link ZnodePayloadCodec} if compressed and split into logical lines, lines already
+ * present in the previous version reuse their parsed entry and only new or changed lines are parsed again.
+ * A {@link BinaryPropertiesTable} payload is not parsed at all, it is diffed against the previous table by a merge
+ * of the sorted keys. Not thread-safe.
+ */
+public class IncrementalPropertiesParser {
+
+    private static final HashFunction CONTENT_HASH = Hashing.murmur3_128();
+    // parsed entry of blank or comment lines
+    private static final String[] NO_ENTRY = new String[0];
+
+    private final Charset charset;
+    private final ZnodePayloadCodec codec = new ZnodePayloadCodec();
+
+    private int version = -1;
+    private long mzxid = -1L;
+    private HashCode contentHash;
+    // logical line -> {key, value}
+    private Map<String, String[]> lines = new HashMap<>();
+    private Map<String, String> properties = new HashMap<>();
+    // last version if binary, properties are then decoded on demand
+    private BinaryPropertiesTable table;
+
+    private long skippedPayloads;
+    private long parsedLines;
+
+    public IncrementalPropertiesParser(final Charset charset) {
+        this.charset = charset;
+    }
+
+    /**
+     * Parse the payload as the new version.
+     *
+     * @param stat    state of the node the payload was read from, {@code null} if unknown.
+     * @param payload the payload.
+     * @return the delta to the previous version, {@link PropertiesDelta#EMPTY} if the payload is unchanged.
+     * @throws IOException if the payload is compressed but corrupted.
+     */
+    public PropertiesDelta parse(final Stat stat, final byte[] payload) throws IOException {
+        if (null != stat && stat.getVersion() == this.version && stat.getMzxid() == this.mzxid) {
+            this.skippedPayloads++;
+            return PropertiesDelta.EMPTY;
+        }
+
+        // hash the payload as received, so unchanged compressed payloads are not inflated
+        final HashCode hash = CONTENT_HASH.hashBytes(payload);
+        if (hash.equals(this.contentHash)) {
+            this.skippedPayloads++;
+            updateVersion(stat);
+            return PropertiesDelta.EMPTY;
+        }
+        final ByteBuffer decoded = this.codec.decode(payload);
+        if (BinaryPropertiesTable.isBinary(decoded)) {
+            return parseTable(hash, stat, payload, decoded);
+        }
+        final String text = new String(decoded.array(), decoded.arrayOffset() + decoded.position(), decoded.remaining(),
+                this.charset);
+        this.contentHash = hash;
+        updateVersion(stat);
+
+        final Map<String, String[]> newLines = new HashMap<>(Math.max(16, this.lines.size() * 4 / 3 + 1));
+        final Map<String, String> newProperties = new HashMap<>(Math.max(16, this.properties.size() * 4 / 3 + 1));
+        int start = 0;
+        while (start < text.length()) {
+            final int end = logicalLineEnd(text, start);
+            final String line = text.substring(start, end);
+            start = end;
+
+            String[] entry = newLines.get(line);
+            if (null == entry) {
+                entry = this.lines.get(line);
+                if (null == entry) {
+                    entry = parseLine(line);
+                }
+                newLines.put(line, entry);
+            }
+            if (entry.length == 2) {
+                newProperties.put(entry[0], entry[1]);
+            }
+        }
+
+        final PropertiesDelta delta = diff(getProperties(), newProperties);
+        this.lines = newLines;
+        this.properties = newProperties;
+        this.table = null;
+        return delta;
+    }
+
+    /**
+     * @return the properties of the last parsed version, decoded on each call if it was a binary table.
+     */
+    public Map<String, String> getProperties() {
+        return null == this.table ? this.properties : this.table.toMap();
+    }
+
+    /**
+     * @return number of payloads skipped as unchanged.
+     */
+    public long getSkippedPayloads() {
+        return this.skippedPayloads;
+    }
+
+    /**
+     * @return number of logical lines parsed, lines reused from the previous version are not counted.
+     */
+    public long getParsedLines() {
+        return this.parsedLines;
+    }
+
+    private PropertiesDelta parseTable(final HashCode hash, final Stat stat, final byte[] payload,
+                                       final ByteBuffer decoded) throws IOException {
+        // an inflated table lives in the reused buffer of the codec, copy it to diff the next version against it
+        final BinaryPropertiesTable newTable = BinaryPropertiesTable.wrap(decoded.array() == payload
+                ? decoded : ByteBuffer.wrap(Arrays.copyOfRange(decoded.array(), decoded.position(), decoded.limit())));
+        this.contentHash = hash;
+        updateVersion(stat);
+
+        final PropertiesDelta delta = null != this.table || this.properties.isEmpty()
+                ? newTable.diff(this.table) : diff(this.properties, newTable.toMap());
+        this.lines = new HashMap<>();
+        this.properties = new HashMap<>();
+        this.table = newTable;
+        return delta;
+    }
+
+    private static PropertiesDelta diff(final Map<String, String> oldProperties,
+                                        final Map<String, String> newProperties) {
+        final Map<String, String> changed = new HashMap<>();
+        for (Map.Entry<String, String> property : newProperties.entrySet()) {
+            if (!property.getValue().equals(oldProperties.get(property.getKey()))) {
+                changed.put(property.getKey(), property.getValue());
+            }
+        }
+        final Set<String> removed = new HashSet<>();
+        for (String key : oldProperties.keySet()) {
+            if (!newProperties.containsKey(key)) {
+                removed.add(key);
+            }
+        }
+        return changed.isEmpty() && removed.isEmpty() ? PropertiesDelta.EMPTY : new PropertiesDelta(changed, removed);
+    }
+
+    private void updateVersion(final Stat stat) {
+        if (null != stat) {
+            this.version = stat.getVersion();
+            this.mzxid = stat.getMzxid();
+        }
+    }
+
+    private String[] parseLine(final String line) {
+        this.parsedLines++;
+        final Properties parsed = new Properties();
+        try {
+            parsed.load(new StringReader(line));
+        } catch (final IOException | IllegalArgumentException e) {
+            // malformed unicode escape, ignored as by a full load failing on it
+            return NO_ENTRY;
+        }
+        for (String key : parsed.stringPropertyNames()) {
+            return new String[]{key, parsed.getProperty(key)};
+        }
+        return NO_ENTRY;
+    }
+
+    /**
+     * Find the end of the logical line starting at the index, including its line terminator. A line ending with
+     * an odd number of backslashes continues on the next line unless it is a comment, as read by {@link Properties}.
+     */
+    static int logicalLineEnd(final String text, final int start) {
+        final int length = text.length();
+        boolean first = true;
+        int index = start;
+        while (index < length) {
+            int contentStart = index;
+            while (contentStart < length && isWhitespace(text.charAt(contentStart))) {
+                contentStart++;
+            }
+            int eol = contentStart;
+            while (eol < length && text.charAt(eol) != '\n' && text.charAt(eol) != '\r') {
+                eol++;
+            }
+            int next = eol;
+            if (next < length) {
+                next += text.charAt(next) == '\r' && next + 1 < length && text.charAt(next + 1) == '\n' ? 2 : 1;
+            }
+
+            if (first && (contentStart == eol || text.charAt(contentStart) == '#' || text.charAt(contentStart) == '!')) {
+                return next;
+            }
+            first = false;
+
+            int backslashes = 0;
+            while (eol - backslashes - 1 >= contentStart && text.charAt(eol - backslashes - 1) == '\\') {
+                backslashes++;
+            }
+            if (backslashes % 2 == 0 || next >= length) {
+                return next;
+            }
+            index = next;
+        }
+        return index;
+    }
+
+    private static boolean isWhitespace(final char c) {
+        return c == ' ' || c == '\t' || c == '\f';
+    }
+}
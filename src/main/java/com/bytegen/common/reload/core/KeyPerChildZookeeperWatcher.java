@@ -0,0 +1,242 @@
+package com.bytegen.common.reload.core;
+
+import com.bytegen.common.reload.event.EventPublisher;
+import com.bytegen.common.reload.event.PropertiesDelta;
+import com.bytegen.common.reload.metrics.ReloadMetrics;
+import com.bytegen.common.reload.metrics.ZnodeMetrics;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.TreeCache;
+import org.apache.curator.framework.recipes.cache.TreeCacheEvent;
+import org.apache.curator.utils.ZKPaths;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanInitializationException;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Watches a zookeeper node holding one property per child node, the child name being the key and the child data
+ * the value, with a single {@link TreeCache} limited to the direct children.
+ * <p>
+ * An update of one child publishes that single property, only the bytes of the changed child are read and decoded.
+ * Child updates and removals received before {@link #startPublishing()} are held back and published together then,
+ * as one {@link PropertiesDelta}.
+ * <p>
+ * Child events are recorded to the {@link ReloadMetrics} of the node, the applied version being the child version
+ * of the node.
+ */
+public class KeyPerChildZookeeperWatcher implements ZnodeWatcher {
+    private static Logger log = LoggerFactory.getLogger(KeyPerChildZookeeperWatcher.class);
+
+    private final String zkServer;
+    private final String zkAuth;
+    private final String zkNode;
+    private final Charset charset;
+
+    private final EventPublisher eventPublisher;
+    private final ZnodeMetrics znodeMetrics;
+
+    private final CompletableFuture<Map<String, String>> initialProperties = new CompletableFuture<>();
+    private volatile ZooKeeperClientPool.Lease clientLease;
+    private volatile TreeCache treeCache;
+
+    // guarded by this
+    private boolean publishing;
+    private final Map<String, String> heldBack = new LinkedHashMap<>();
+    private final Set<String> heldBackRemoved = new LinkedHashSet<>();
+
+    public KeyPerChildZookeeperWatcher(String zkServer, String zkAuth, String zkNode, EventPublisher eventPublisher,
+                                       Charset charset) {
+        this(zkServer, zkAuth, zkNode, eventPublisher, charset, new ReloadMetrics());
+    }
+
+    public KeyPerChildZookeeperWatcher(String zkServer, String zkAuth, String zkNode, EventPublisher eventPublisher,
+                                       Charset charset, ReloadMetrics metrics) {
+        if (null == eventPublisher) {
+            throw new BeanInitializationException("Event publisher not setup...");
+        }
+        if (StringUtils.isBlank(zkServer)) {
+            throw new BeanInitializationException("ZooKeeper server must not be blank");
+        }
+        if (StringUtils.isBlank(zkNode)) {
+            throw new BeanInitializationException("ZooKeeper node must not be null");
+        }
+        if (null == metrics) {
+            throw new BeanInitializationException("Reload metrics not setup...");
+        }
+
+        this.zkServer = zkServer;
+        this.zkAuth = zkAuth;
+        this.zkNode = zkNode;
+        this.eventPublisher = eventPublisher;
+        this.charset = null == charset ? Charset.forName("UTF-8") : charset;
+        this.znodeMetrics = metrics.znode(zkServer, zkNode);
+    }
+
+    @Override
+    public String getZkServer() {
+        return zkServer;
+    }
+
+    @Override
+    public String getZkNode() {
+        return zkNode;
+    }
+
+    /**
+     * Start watching the children of the node.
+     *
+     * @return future of the properties held by the children once all were read, completed with {@code null}
+     * if the node does not exist.
+     */
+    public CompletableFuture<Map<String, String>> startWatching() throws Exception {
+        log.debug("Try start watching children of zookeeper [{}], node [{}]", zkServer, zkNode);
+        ZooKeeperClientPool.Lease lease = ZooKeeperClientPool.getInstance().acquire(zkServer, zkAuth);
+        this.clientLease = lease;
+        CuratorFramework client = lease.getClient();
+        TreeCache cache = TreeCache.newBuilder(client, zkNode).setMaxDepth(1).setCacheData(true).build();
+        cache.getListenable().addListener((c, event) -> treeChanged(event));
+        this.treeCache = cache;
+        cache.start();
+        log.info("Watching children of zookeeper server [{}], node [{}]", zkServer, zkNode);
+        return initialProperties;
+    }
+
+    @Override
+    public void startPublishing() {
+        final PropertiesDelta delta;
+        synchronized (this) {
+            publishing = true;
+            delta = new PropertiesDelta(new LinkedHashMap<>(heldBack), new LinkedHashSet<>(heldBackRemoved));
+            heldBack.clear();
+            heldBackRemoved.clear();
+        }
+        if (!delta.isEmpty()) {
+            log.info("Children of zookeeper node [{}] changed while starting, publishing {}", zkNode, delta);
+            publish(delta);
+        } else {
+            recordApplied();
+        }
+    }
+
+    @Override
+    public void stop() {
+        log.debug("Try close zookeeper tree cache [{}], node [{}]", zkServer, zkNode);
+        TreeCache cache = this.treeCache;
+        if (null != cache) {
+            cache.close();
+        }
+        ZooKeeperClientPool.Lease lease = this.clientLease;
+        if (null != lease) {
+            lease.close();
+        }
+        initialProperties.complete(null);
+    }
+
+    private void treeChanged(final TreeCacheEvent event) {
+        switch (event.getType()) {
+            case INITIALIZED:
+                initialProperties.complete(currentProperties());
+                break;
+            case NODE_ADDED:
+            case NODE_UPDATED:
+                if (initialProperties.isDone()) {
+                    childChanged(event.getData());
+                }
+                break;
+            case NODE_REMOVED:
+                if (initialProperties.isDone()) {
+                    childRemoved(event.getData());
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private Map<String, String> currentProperties() {
+        Map<String, ChildData> children = this.treeCache.getCurrentChildren(zkNode);
+        if (null == children) {
+            return null;
+        }
+        Map<String, String> properties = new LinkedHashMap<>(children.size() * 2);
+        children.forEach((key, data) -> properties.put(key, decode(data)));
+        return properties;
+    }
+
+    private void childChanged(final ChildData data) {
+        if (!isChild(data)) {
+            return;
+        }
+        znodeMetrics.eventReceived();
+        final String key = ZKPaths.getNodeFromPath(data.getPath());
+        final String value = decode(data);
+        synchronized (this) {
+            if (!publishing) {
+                heldBack.put(key, value);
+                heldBackRemoved.remove(key);
+                return;
+            }
+        }
+        log.debug("Watched property node changed, modified node [{}]", data.getPath());
+        publish(PropertiesDelta.changed(key, value));
+    }
+
+    private void childRemoved(final ChildData data) {
+        if (!isChild(data)) {
+            return;
+        }
+        znodeMetrics.eventReceived();
+        final String key = ZKPaths.getNodeFromPath(data.getPath());
+        synchronized (this) {
+            if (!publishing) {
+                heldBack.remove(key);
+                heldBackRemoved.add(key);
+                return;
+            }
+        }
+        log.debug("Watched property node removed, removed node [{}]", data.getPath());
+        publish(PropertiesDelta.removed(key));
+    }
+
+    private void publish(final PropertiesDelta delta) {
+        try {
+            eventPublisher.onPropertiesChanged(getSource(), delta);
+            recordApplied();
+        } catch (final Exception e) {
+            log.error("Unable to publish changes of zookeeper node [" + zkNode + "]", e);
+        }
+    }
+
+    private void recordApplied() {
+        TreeCache cache = this.treeCache;
+        ChildData node = null == cache ? null : cache.getCurrentData(zkNode);
+        if (null != node && null != node.getStat()) {
+            znodeMetrics.applied(node.getStat().getCversion(), node.getStat().getPzxid());
+        }
+    }
+
+    private boolean isChild(final ChildData data) {
+        return null != data && !zkNode.equals(data.getPath());
+    }
+
+    private String decode(final ChildData data) {
+        if (null == data.getData()) {
+            return "";
+        }
+        try {
+            return new String(ZnodePayloadCodec.decompress(data.getData()), charset);
+        } catch (final IOException e) {
+            log.error("Unable to decode property node [" + data.getPath() + "], read as plain text", e);
+            return new String(data.getData(), charset);
+        }
+    }
+}
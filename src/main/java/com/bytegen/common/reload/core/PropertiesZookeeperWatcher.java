@@ -1,40 +1,133 @@
 package com.bytegen.common.reload.core;
 
 import com.bytegen.common.reload.event.EventPublisher;
+import com.bytegen.common.reload.event.PropertiesDelta;
+import com.bytegen.common.reload.metrics.ReloadMetrics;
+import com.bytegen.common.reload.metrics.ZnodeMetrics;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.curator.RetryPolicy;
 import org.apache.curator.framework.CuratorFramework;
-import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.WatcherRemoveCuratorFramework;
+import org.apache.curator.framework.api.CuratorEvent;
 import org.apache.curator.framework.recipes.cache.ChildData;
-import org.apache.curator.framework.recipes.cache.NodeCache;
-import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.framework.state.ConnectionStateListener;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.BeanInitializationException;
 
-import java.io.ByteArrayInputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
 import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Properties;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The watching process does not start by default, initiation is triggered by calling <code>startWatching()</code>
+ * <p>
+ * The node is read in the background with a watch set, re-read whenever the watch fires and once connected or
+ * reconnected, so a node bootstrapped from a local snapshot while zookeeper was down catches up once it is back.
+ * Reads failing on a connection error while the client is connected are retried with an exponential backoff.
+ * The first read completes the future returned by {@link #startWatching()} instead of being published, updates
+ * read before {@link #startPublishing()} are held back and only the latest one is published then. With a
+ * {@link ZnodeSnapshotStore} every published payload is saved in the background as the local snapshot of the node.
+ * <p>
+ * Payloads are parsed by an {@link IncrementalPropertiesParser}: unchanged payloads are skipped by node version and
+ * content hash, changed ones are published as a {@link PropertiesDelta} to the previously applied payload.
+ * <p>
+ * With a coalescing window configured, node updates are held back until the node stayed unchanged for the window,
+ * but no longer than the maximum delay since the first held back update; only the latest payload is then parsed
+ * and published.
+ * <p>
+ * Received node events, coalesced updates and the applied node version are recorded to the {@link ReloadMetrics},
+ * parsing is timed as the {@link ReloadMetrics.Stage#PARSE} stage.
  */
-public class PropertiesZookeeperWatcher {
+public class PropertiesZookeeperWatcher implements ZnodeWatcher {
     private static Logger log = LoggerFactory.getLogger(PropertiesZookeeperWatcher.class);
 
     private static final Charset DEFAULT_CHARSET = Charset.forName("UTF-8");
+    private static final long RETRY_BASE_DELAY_MILLIS = 1000L;
+    private static final int RETRY_MAX_SHIFT = 5;
 
     private final String zkServer;
     private final String zkAuth;
     private final String zkNode;
 
     private final EventPublisher eventPublisher;
+    private final ZnodeSnapshotStore snapshotStore;
+    private final ReloadMetrics metrics;
+    private final ZnodeMetrics znodeMetrics;
+
+    private final long coalesceWindowMillis;
+    private final long coalesceMaxDelayMillis;
+    private final AtomicLong coalescedEvents = new AtomicLong();
+    private final AtomicInteger failedReads = new AtomicInteger();
+
+    private final CompletableFuture<ChildData> initialData = new CompletableFuture<>();
+    private final IncrementalPropertiesParser parser;
+    // guarded by parser
+    private ChildData appliedData;
+    private final Watcher nodeWatcher = this::process;
+    private final ConnectionStateListener connectionStateListener = this::stateChanged;
+    private volatile ZooKeeperClientPool.Lease clientLease;
+    private volatile WatcherRemoveCuratorFramework client;
+    private volatile boolean closed;
+    private volatile ChildData latestData;
+
+    // guarded by this
+    private boolean publishing;
+    private boolean heldBack;
+    private ScheduledFuture<?> pendingUpdate;
+    private long firstPendingNanos;
 
     public PropertiesZookeeperWatcher(String zkServer, String zkAuth, String zkNode, EventPublisher eventPublisher) {
+        this(zkServer, zkAuth, zkNode, eventPublisher, 0, 0);
+    }
+
+    public PropertiesZookeeperWatcher(String zkServer, String zkAuth, String zkNode, EventPublisher eventPublisher,
+                                      long coalesceWindowMillis, long coalesceMaxDelayMillis) {
+        this(zkServer, zkAuth, zkNode, eventPublisher, coalesceWindowMillis, coalesceMaxDelayMillis, null);
+    }
+
+    /**
+     * @param snapshotStore store the published payloads are saved to, or {@code null} to keep no local snapshot.
+     */
+    public PropertiesZookeeperWatcher(String zkServer, String zkAuth, String zkNode, EventPublisher eventPublisher,
+                                      long coalesceWindowMillis, long coalesceMaxDelayMillis,
+                                      ZnodeSnapshotStore snapshotStore) {
+        this(zkServer, zkAuth, zkNode, eventPublisher, coalesceWindowMillis, coalesceMaxDelayMillis, snapshotStore,
+                new ReloadMetrics());
+    }
+
+    /**
+     * @param snapshotStore store the published payloads are saved to, or {@code null} to keep no local snapshot.
+     * @param metrics       metrics to record the events and the parsing of the node to.
+     */
+    public PropertiesZookeeperWatcher(String zkServer, String zkAuth, String zkNode, EventPublisher eventPublisher,
+                                      long coalesceWindowMillis, long coalesceMaxDelayMillis,
+                                      ZnodeSnapshotStore snapshotStore, ReloadMetrics metrics) {
+        this(zkServer, zkAuth, zkNode, eventPublisher, DEFAULT_CHARSET, coalesceWindowMillis, coalesceMaxDelayMillis,
+                snapshotStore, metrics);
+    }
+
+    /**
+     * @param charset       charset of the properties payloads, the one the node was loaded with on start up.
+     * @param snapshotStore store the published payloads are saved to, or {@code null} to keep no local snapshot.
+     * @param metrics       metrics to record the events and the parsing of the node to.
+     */
+    public PropertiesZookeeperWatcher(String zkServer, String zkAuth, String zkNode, EventPublisher eventPublisher,
+                                      Charset charset, long coalesceWindowMillis, long coalesceMaxDelayMillis,
+                                      ZnodeSnapshotStore snapshotStore, ReloadMetrics metrics) {
         if (null == eventPublisher) {
             throw new BeanInitializationException("Event publisher not setup...");
         }
@@ -44,144 +137,430 @@ public class PropertiesZookeeperWatcher {
         if (StringUtils.isBlank(zkNode)) {
             throw new BeanInitializationException("ZooKeeper node must not be null");
         }
+        if (null == metrics) {
+            throw new BeanInitializationException("Reload metrics not setup...");
+        }
+        if (null == charset) {
+            throw new BeanInitializationException("Charset must not be null");
+        }
 
         this.zkServer = zkServer;
         this.zkAuth = zkAuth;
         this.zkNode = zkNode;
         this.eventPublisher = eventPublisher;
+        this.parser = new IncrementalPropertiesParser(charset);
+        this.snapshotStore = snapshotStore;
+        this.metrics = metrics;
+        this.znodeMetrics = metrics.znode(zkServer, zkNode);
+        this.coalesceWindowMillis = Math.max(0, coalesceWindowMillis);
+        this.coalesceMaxDelayMillis = Math.max(this.coalesceWindowMillis, coalesceMaxDelayMillis);
+    }
+
+    @Override
+    public String getZkServer() {
+        return zkServer;
     }
 
-    public void startWatching() throws Exception {
+    @Override
+    public String getZkNode() {
+        return zkNode;
+    }
+
+    /**
+     * @return number of node payloads skipped as unchanged, e.g. read again after reconnecting.
+     */
+    public long getSkippedPayloads() {
+        synchronized (parser) {
+            return parser.getSkippedPayloads();
+        }
+    }
+
+    /**
+     * @return number of node updates superseded by a later update within the coalescing window.
+     */
+    public long getCoalescedEvents() {
+        return coalescedEvents.get();
+    }
+
+    /**
+     * Start watching the node, issuing the first read in the background.
+     *
+     * @return future of the node data of the first read, completed with {@code null} if the node does not exist.
+     * Watching the same node for the same publisher twice returns the future of the first watcher.
+     */
+    public CompletableFuture<ChildData> startWatching() throws Exception {
         log.debug("Try start watching zookeeper [{}], node [{}]", zkServer, zkNode);
-        ZookeeperWatcherHolder.startPropertiesNodeCache(zkServer, zkAuth, zkNode, eventPublisher);
+        return ZookeeperWatcherHolder.startWatcher(this);
+    }
+
+    /**
+     * Publish node updates from now on, including the latest update read since the first read.
+     */
+    @Override
+    public void startPublishing() {
+        if (initialData.isDone() && !initialData.isCompletedExceptionally()) {
+            setAppliedData(initialData.getNow(null));
+        }
+        doStartPublishing();
+    }
+
+    private void doStartPublishing() {
+        synchronized (this) {
+            if (publishing) {
+                return;
+            }
+            publishing = true;
+            if (!heldBack) {
+                return;
+            }
+            heldBack = false;
+        }
+        log.info("Zookeeper node [{}] changed while starting, publishing the latest data", zkNode);
+        nodeChanged();
+    }
+
+    /**
+     * Publish node updates from now on, while the caller applied a local snapshot instead of the first read.
+     * The first read is published as well once completed, unless it is the same version as the snapshot.
+     */
+    public void startPublishing(final ZnodeSnapshotStore.ZnodeSnapshot appliedSnapshot) {
+        Stat stat = new Stat();
+        stat.setVersion(appliedSnapshot.getVersion());
+        stat.setMzxid(appliedSnapshot.getMzxid());
+        setAppliedData(new ChildData(zkNode, stat, appliedSnapshot.getData()));
+        doStartPublishing();
+        initialData.thenAccept(data -> {
+            if (null == data || appliedSnapshot.isSameVersion(data.getStat())) {
+                log.info("Zookeeper node [{}] is unchanged since the local snapshot", zkNode);
+                return;
+            }
+            log.info("Zookeeper node [{}] changed since the local snapshot, publishing the latest data", zkNode);
+            nodeChanged();
+        });
     }
 
+    @Override
     public void stop() {
         try {
-            log.debug("Try close zookeeper node cache [{}], node [{}]", zkServer, zkNode);
-            ZookeeperWatcherHolder.stopPropertiesNodeCache(zkServer, zkAuth, zkNode, eventPublisher);
+            log.debug("Try close zookeeper node watcher [{}], node [{}]", zkServer, zkNode);
+            ZookeeperWatcherHolder.stopWatcher(this);
         } catch (final Exception e) {
             log.error("Unable to stop zookeeper watcher", e);
         }
+        synchronized (this) {
+            if (null != pendingUpdate) {
+                pendingUpdate.cancel(false);
+                pendingUpdate = null;
+            }
+        }
+    }
+
+    private void watch() throws Exception {
+        this.clientLease = ZooKeeperClientPool.getInstance().acquire(zkServer, zkAuth);
+        this.client = clientLease.getClient().newWatcherRemoveCuratorFramework();
+        this.client.getConnectionStateListenable().addListener(connectionStateListener);
+        readData();
+        log.info("Watching zookeeper server [{}], node [{}]", zkServer, zkNode);
+    }
+
+    private void close() {
+        closed = true;
+        WatcherRemoveCuratorFramework client = this.client;
+        if (null != client) {
+            client.getConnectionStateListenable().removeListener(connectionStateListener);
+            client.removeWatchers();
+        }
+        ZooKeeperClientPool.Lease lease = this.clientLease;
+        if (null != lease) {
+            lease.close();
+        }
+        initialData.complete(null);
+    }
+
+    private void readData() throws Exception {
+        if (!closed) {
+            client.getData().usingWatcher(nodeWatcher).inBackground(this::dataRead).forPath(zkNode);
+        }
+    }
+
+    private void process(final WatchedEvent event) {
+        if (closed) {
+            return;
+        }
+        switch (event.getType()) {
+            case NodeCreated:
+            case NodeDataChanged:
+            case NodeDeleted:
+                try {
+                    readData();
+                } catch (final Exception e) {
+                    log.error("Unable to read zookeeper node [" + zkNode + "]", e);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void stateChanged(final CuratorFramework client, final ConnectionState newState) {
+        // watches may be lost with the session, read again to set them and catch up on missed updates; the first
+        // connection of a client started while zookeeper was down is reported as connected, not reconnected
+        if (newState == ConnectionState.CONNECTED || newState == ConnectionState.RECONNECTED) {
+            try {
+                readData();
+            } catch (final Exception e) {
+                log.error("Unable to read zookeeper node [" + zkNode + "] after connecting", e);
+            }
+        }
+    }
+
+    private void dataRead(final CuratorFramework client, final CuratorEvent event) throws Exception {
+        if (closed) {
+            return;
+        }
+        final KeeperException.Code code = KeeperException.Code.get(event.getResultCode());
+        if (code == KeeperException.Code.OK || code == KeeperException.Code.NONODE) {
+            failedReads.set(0);
+        }
+        if (code == KeeperException.Code.OK) {
+            dataChanged(new ChildData(event.getPath(), event.getStat(), event.getData()));
+        } else if (code == KeeperException.Code.NONODE) {
+            // watch the creation of the node
+            this.client.checkExists().usingWatcher(nodeWatcher).inBackground(this::existsChecked).forPath(zkNode);
+            dataChanged(null);
+        } else {
+            znodeMetrics.readFailed();
+            final KeeperException e = KeeperException.create(code, zkNode);
+            if (!initialData.completeExceptionally(e)) {
+                log.error("Unable to read zookeeper node [" + zkNode + "]", e);
+            }
+            if (isConnectionError(code)) {
+                retryRead(client);
+            }
+        }
+    }
+
+    private static boolean isConnectionError(final KeeperException.Code code) {
+        return code == KeeperException.Code.CONNECTIONLOSS || code == KeeperException.Code.OPERATIONTIMEOUT
+                || code == KeeperException.Code.SESSIONEXPIRED;
+    }
+
+    /**
+     * Read again after a backoff if still connected, otherwise the read is issued once connected again.
+     */
+    private void retryRead(final CuratorFramework client) {
+        if (!client.getZookeeperClient().isConnected()) {
+            return;
+        }
+        final long delayMillis = RETRY_BASE_DELAY_MILLIS << Math.min(failedReads.getAndIncrement(), RETRY_MAX_SHIFT);
+        log.warn("Reading zookeeper node [{}] again in [{}] ms", zkNode, delayMillis);
+        CoalescingScheduler.INSTANCE.schedule(() -> {
+            try {
+                readData();
+            } catch (final Exception e) {
+                log.error("Unable to read zookeeper node [" + zkNode + "]", e);
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void existsChecked(final CuratorFramework client, final CuratorEvent event) throws Exception {
+        // created in the meantime, the watch set by checkExists will not fire for it
+        if (!closed && event.getResultCode() == KeeperException.Code.OK.intValue()) {
+            readData();
+        }
+    }
+
+    private void dataChanged(final ChildData data) {
+        znodeMetrics.eventReceived();
+        latestData = data;
+        if (initialData.complete(data)) {
+            return;
+        }
+        synchronized (this) {
+            if (!publishing) {
+                heldBack = true;
+                return;
+            }
+        }
+        nodeChanged();
+    }
+
+    private void nodeChanged() {
+        if (coalesceWindowMillis <= 0) {
+            publishLatest();
+            return;
+        }
+
+        synchronized (this) {
+            long delayMillis = coalesceWindowMillis;
+            if (null == pendingUpdate) {
+                firstPendingNanos = System.nanoTime();
+            } else if (pendingUpdate.cancel(false)) {
+                coalescedEvents.incrementAndGet();
+                metrics.eventsCoalesced(1);
+                long heldMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - firstPendingNanos);
+                delayMillis = Math.max(0, Math.min(coalesceWindowMillis, coalesceMaxDelayMillis - heldMillis));
+            } else {
+                // the pending update is running already, start a new window
+                firstPendingNanos = System.nanoTime();
+            }
+            pendingUpdate = CoalescingScheduler.INSTANCE.schedule(this::publishPending,
+                    delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void publishPending() {
+        synchronized (this) {
+            pendingUpdate = null;
+        }
+        publishLatest();
+    }
+
+    private void publishLatest() {
+        try {
+            // read the latest payload, updates superseded in the meantime are never parsed
+            publish(latestData);
+        } catch (final Exception e) {
+            log.error("Unable to publish changes of zookeeper node [" + zkNode + "]", e);
+        }
+    }
+
+    /**
+     * Remember the payload loaded by the caller, the next update is parsed as a delta to it.
+     */
+    private void setAppliedData(final ChildData data) {
+        synchronized (parser) {
+            appliedData = data;
+        }
+    }
+
+    private void publish(final ChildData data) throws Exception {
+        log.debug("START");
+        if (null != data && null != data.getData()) {
+            synchronized (parser) {
+                if (null != appliedData) {
+                    // parsed lazily, keeping it off the start up
+                    if (null != appliedData.getData()) {
+                        parser.parse(appliedData.getStat(), appliedData.getData());
+                    }
+                    appliedData = null;
+                }
+
+                long parseStart = System.nanoTime();
+                PropertiesDelta delta = parser.parse(data.getStat(), data.getData());
+                metrics.record(ReloadMetrics.Stage.PARSE, parseStart);
+                if (delta.isEmpty()) {
+                    log.debug("Zookeeper node [{}] unchanged, skipped", zkNode);
+                    return;
+                }
+
+                logNewEvent(zkNode, zkServer);
+                eventPublisher.onPropertiesChanged(getSource(), delta);
+                if (null != data.getStat()) {
+                    znodeMetrics.applied(data.getStat().getVersion(), data.getStat().getMzxid());
+                }
+                // queued in publishing order, written off the zookeeper event thread so a slow disk never holds
+                // back the events of the other nodes
+                if (null != snapshotStore) {
+                    snapshotStore.saveAsync(zkServer, zkNode, data);
+                }
+            }
+        } else {
+            log.error("zookeeper properties is blank: " + zkNode);
+            // do nothing, and wait for next event
+        }
+        log.debug("END");
+    }
+
+    private static void logNewEvent(final String zkNode, final String zkServer) {
+        log.debug("Watched znode changed, modified node [{}]", zkNode);
+        log.debug("  Zookeeper Server [{}]", zkServer);
+    }
+
+    private static class CoalescingScheduler {
+        private static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("auto-reload-coalesce-%d").setDaemon(true).build());
     }
 
     ////////////////////////////////
     ///    zookeeper watcher    ////
     ////////////////////////////////
     private static class ZookeeperWatcherHolder {
-        private static final Map<String, NodeCache> cacheMap = new HashMap<>(8);
-
-        private static String watcherHashKey(String zkServer, String zkAuth, String zkNode, EventPublisher eventPublisher) {
-            return zkServer + "-" + zkAuth + "-" + zkNode + "-" + eventPublisher.getClass().getCanonicalName();
-        }
-
-        private static NodeCache startPropertiesNodeCache(String zkServer, String zkAuth, String zkNode, EventPublisher eventPublisher) throws Exception {
-            String cacheKey = watcherHashKey(zkServer, zkAuth, zkNode, eventPublisher);
-
-            synchronized (cacheMap) {
-                NodeCache nodeCache = cacheMap.get(cacheKey);
-                if (null == nodeCache) {
-                    CuratorFramework client = ZooKeeperClientHolder.getClient(zkServer, zkAuth);
-
-                    NodeCache newCache = new NodeCache(client, zkNode);
-                    newCache.getListenable().addListener(() -> {
-                        ChildData data = newCache.getCurrentData();
-
-                        log.debug("START");
-                        if (null != data && null != data.getData()) {
-                            Reader inputReader = new InputStreamReader(new ByteArrayInputStream(data.getData()), DEFAULT_CHARSET);
-                            Properties p = new Properties();
-                            p.load(inputReader);
-
-                            logNewEvent(zkNode, zkServer);
-                            eventPublisher.onPropertyChanged(p);
-                        } else {
-                            log.error("zookeeper properties is blank: " + zkNode);
-                            // do nothing, and wait for next event
-                        }
-                        log.debug("END");
-                    });
-                    newCache.start();
-                    cacheMap.put(cacheKey, newCache);
-                    log.info("Watching zookeeper server [{}], node [{}]", zkServer, zkNode);
-                } else {
-                    log.info("Duplicated for watching zookeeper server [{}], node [{}]", zkServer, zkNode);
+        private static final Map<WatcherKey, PropertiesZookeeperWatcher> watcherMap = new HashMap<>(8);
+
+        private static CompletableFuture<ChildData> startWatcher(PropertiesZookeeperWatcher watcher) throws Exception {
+            WatcherKey watcherKey = new WatcherKey(watcher);
+
+            synchronized (watcherMap) {
+                PropertiesZookeeperWatcher existing = watcherMap.get(watcherKey);
+                if (null != existing) {
+                    log.info("Duplicated for watching zookeeper server [{}], node [{}]", watcher.zkServer, watcher.zkNode);
+                    return existing.initialData;
                 }
-                return nodeCache;
+                watcher.watch();
+                watcherMap.put(watcherKey, watcher);
+                return watcher.initialData;
             }
         }
 
-        private static void logNewEvent(final String zkNode, final String zkServer) {
-            log.debug("Watched znode changed, modified node [{}]", zkNode);
-            log.debug("  Zookeeper Server [{}]", zkServer);
-        }
-
-        private static NodeCache stopPropertiesNodeCache(String zkServer, String zkAuth, String zkNode, EventPublisher eventPublisher) throws Exception {
-            String cacheKey = watcherHashKey(zkServer, zkAuth, zkNode, eventPublisher);
+        private static void stopWatcher(PropertiesZookeeperWatcher watcher) {
+            WatcherKey watcherKey = new WatcherKey(watcher);
 
-            synchronized (cacheMap) {
-                NodeCache nodeCache = cacheMap.remove(cacheKey);
-                if (null != nodeCache) {
-                    nodeCache.close();
+            synchronized (watcherMap) {
+                if (watcherMap.get(watcherKey) == watcher) {
+                    watcherMap.remove(watcherKey);
+                    watcher.close();
                 }
-                return nodeCache;
             }
         }
     }
 
+    /**
+     * Watchers are shared by node and publisher instance only: the publishers of two application contexts are of
+     * the same class but each must receive the updates of the node.
+     */
+    private static final class WatcherKey {
+        private final String zkServer;
+        private final String zkAuth;
+        private final String zkNode;
+        private final EventPublisher eventPublisher;
+
+        private WatcherKey(PropertiesZookeeperWatcher watcher) {
+            this.zkServer = watcher.zkServer;
+            this.zkAuth = watcher.zkAuth;
+            this.zkNode = watcher.zkNode;
+            this.eventPublisher = watcher.eventPublisher;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof WatcherKey)) return false;
+            WatcherKey that = (WatcherKey) o;
+            return eventPublisher == that.eventPublisher &&
+                    zkServer.equals(that.zkServer) &&
+                    Objects.equals(zkAuth, that.zkAuth) &&
+                    zkNode.equals(that.zkNode);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(zkServer, zkAuth, zkNode, System.identityHashCode(eventPublisher));
+        }
+    }
+
 
     ///////////////////////////////
     ///    zookeeper client    ////
     ///////////////////////////////
     public static class ZooKeeperClientHolder {
-        private static final Map<String, CuratorFramework> clientMap = new HashMap<>(8);
-
-        private static final int SESSION_TIMEOUT = 30000;
-        private static final int CONNECTION_TIMEOUT = 30000;
-        private static final RetryPolicy DEFAULT_RETRY_POLICY = new ExponentialBackoffRetry(1000, 5);
-
-        private static String clientHashKey(String zkServer, String zkAuth) {
-            return zkServer + "-" + zkAuth;
-        }
 
+        /**
+         * Get the pooled client of the server and auth for the rest of the JVM lifetime, the reference is never
+         * released. Watchers hold a {@link ZooKeeperClientPool.Lease} instead, released once stopped.
+         */
         public static CuratorFramework getClient(String server, String auth) {
-            String clientKey = clientHashKey(server, auth);
-            return clientMap.computeIfAbsent(clientKey, key
-                    -> newClient(server, auth, SESSION_TIMEOUT, CONNECTION_TIMEOUT));
-        }
-
-        private static CuratorFramework newClient(String server, String auth, int sessionTimeout, int connectionTimeout) {
-            CuratorFrameworkFactory.Builder builder = CuratorFrameworkFactory.builder().connectString(server)
-                    .sessionTimeoutMs(sessionTimeout)
-                    .connectionTimeoutMs(connectionTimeout)
-                    .retryPolicy(DEFAULT_RETRY_POLICY);
-            if (null != auth) {
-                builder.authorization("digest", auth.getBytes());
-            }
-
-            CuratorFramework client = builder.build();
-            client.getConnectionStateListenable().addListener((client1, newState) -> {
-                switch (newState) {
-                    case CONNECTED:
-                        log.info("connected to zookeeper: " + server);
-                        break;
-                    case SUSPENDED:
-                        log.warn("suspended to zookeeper: " + server);
-                        break;
-                    case RECONNECTED:
-                        log.info("reconnected to zookeeper: " + server);
-                        break;
-                    case LOST:
-                        log.error("lose connection to zookeeper: " + server);
-                        break;
-                    case READ_ONLY:
-                        log.info("read only model to zookeeper: " + server);
-                        break;
-                }
-            });
-            client.start();
-            log.info("ZooKeeper client started: server [{}]", server);
-            return client;
+            return ZooKeeperClientPool.getInstance().acquire(server, auth).getClient();
         }
     }
 
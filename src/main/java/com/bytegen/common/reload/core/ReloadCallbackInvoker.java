@@ -0,0 +1,169 @@
+package com.bytegen.common.reload.core;
+
+import com.bytegen.common.reload.OnReload;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Invokes the {@link OnReload} methods of the beans once their fields were reloaded.
+ * <p>
+ * Callbacks run on the given executor, by default on an own daemon thread created on the first callback. The
+ * callbacks of one bean are queued and run one at a time in order, the callbacks of different beans may run
+ * concurrently on a multi-threaded executor. Failing callbacks are logged only.
+ */
+public class ReloadCallbackInvoker {
+    private static final Logger log = LoggerFactory.getLogger(ReloadCallbackInvoker.class);
+
+    private final Executor executor;
+    // guarded by this
+    private ExecutorService ownedExecutor;
+    private boolean shutdown;
+    private final Map<Object, BeanCallbacks> callbacks = new IdentityHashMap<>();
+
+    /**
+     * @param executor executor the callbacks are run on, or {@code null} to create an own thread.
+     */
+    public ReloadCallbackInvoker(final Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Register the callback methods of the bean, each taking no parameter or a single {@code Set<String>}.
+     */
+    public void register(final Object bean, final List<Method> methods) {
+        Assert.notNull(bean, "Bean can not be null");
+        if (methods.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            this.callbacks.put(bean, new BeanCallbacks(bean, methods));
+        }
+    }
+
+    public void unregister(final Object bean) {
+        synchronized (this) {
+            this.callbacks.remove(bean);
+        }
+    }
+
+    /**
+     * Queue the callbacks of the bean for the applied update, a no-op for beans without callbacks.
+     *
+     * @param changedKeys the raw property keys changed by the update.
+     */
+    public void reloaded(final Object bean, final Set<String> changedKeys) {
+        final BeanCallbacks beanCallbacks;
+        synchronized (this) {
+            beanCallbacks = this.callbacks.get(bean);
+        }
+        if (null != beanCallbacks) {
+            beanCallbacks.offer(changedKeys);
+        }
+    }
+
+    /**
+     * Stop the own thread, if any; queued callbacks are dropped.
+     */
+    public synchronized void shutdown() {
+        this.shutdown = true;
+        if (null != this.ownedExecutor) {
+            this.ownedExecutor.shutdownNow();
+        }
+    }
+
+    private synchronized Executor executor() {
+        if (null != this.executor) {
+            return this.executor;
+        }
+        if (this.shutdown) {
+            throw new RejectedExecutionException("Reload callbacks are shut down");
+        }
+        if (null == this.ownedExecutor) {
+            this.ownedExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat("auto-reload-callback-%d").setDaemon(true).build());
+        }
+        return this.ownedExecutor;
+    }
+
+    /**
+     * Callbacks of one bean, with the changed keys of the updates not called back yet.
+     */
+    private final class BeanCallbacks implements Runnable {
+        private final Object bean;
+        private final List<Method> methods;
+
+        // guarded by this
+        private final ArrayDeque<Set<String>> pending = new ArrayDeque<>();
+        private boolean scheduled;
+
+        private BeanCallbacks(final Object bean, final List<Method> methods) {
+            this.bean = bean;
+            this.methods = methods;
+        }
+
+        private void offer(final Set<String> changedKeys) {
+            synchronized (this) {
+                this.pending.addLast(changedKeys);
+                if (this.scheduled) {
+                    return;
+                }
+                this.scheduled = true;
+            }
+            try {
+                executor().execute(this);
+            } catch (final RejectedExecutionException e) {
+                synchronized (this) {
+                    this.pending.clear();
+                    this.scheduled = false;
+                }
+                log.warn("Reload callbacks of class [{}] rejected: {}", bean.getClass().getCanonicalName(), e.getMessage());
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                final Set<String> changedKeys;
+                synchronized (this) {
+                    changedKeys = this.pending.pollFirst();
+                    if (null == changedKeys) {
+                        this.scheduled = false;
+                        return;
+                    }
+                }
+                for (Method method : this.methods) {
+                    invoke(method, changedKeys);
+                }
+            }
+        }
+
+        private void invoke(final Method method, final Set<String> changedKeys) {
+            try {
+                if (method.getParameterCount() == 0) {
+                    method.invoke(this.bean);
+                } else {
+                    method.invoke(this.bean, changedKeys);
+                }
+            } catch (final InvocationTargetException | IllegalAccessException e) {
+                final Throwable cause = e instanceof InvocationTargetException ?
+                        ((InvocationTargetException) e).getTargetException() : e;
+                log.error(String.format("Reload callback [%s] of class [%s] failed",
+                        method.getName(), bean.getClass().getCanonicalName()), cause);
+            }
+        }
+    }
+}
@@ -1,39 +1,119 @@
 package com.bytegen.common.reload.core;
 
+import com.bytegen.common.reload.bean.ConfigEpoch;
+import com.bytegen.common.reload.bean.PropertyChangeBatch;
 import com.bytegen.common.reload.bean.PropertyChangedEvent;
+import com.bytegen.common.reload.event.ConfigChangeSet;
 import com.bytegen.common.reload.event.EventNotifier;
 import com.bytegen.common.reload.event.EventPublisher;
+import com.bytegen.common.reload.event.PropertiesDelta;
+import com.bytegen.common.reload.metrics.ReloadMetrics;
 import com.bytegen.common.reload.resolver.MutablePropertyResolver;
+import com.bytegen.common.reload.resolver.PropertySnapshot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.Assert;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 /**
  * User: xiang
  * Date: 2018/8/6
  * Desc:
+ * <p>
+ * Keeps a reverse dependency graph from raw property keys to the registered placeholders referencing them,
+ * directly, through nested placeholders or through the values of other keys. Once properties changed only
+ * the placeholders depending on the changed keys are resolved again.
+ * <p>
+ * Every update is applied as one {@link ConfigEpoch}: the changed keys are swapped into the resolver at once,
+ * the dependent placeholders are resolved against that single snapshot, and the epoch becomes
+ * {@link #getCurrentEpoch() current} only after its change events were posted as one {@link PropertyChangeBatch}.
+ * <p>
+ * Every update is classified into a {@link ConfigChangeSet} against the current properties first: added keys are
+ * applied as modified ones, removed keys are handled as configured by the {@link TombstonePolicy}.
+ * <p>
+ * Updates published with the name of their source are tracked per source: a key removed from one source but still
+ * defined by another is not removed, it changes to the value of the last source defining it instead.
+ * <p>
+ * The diff against the resolver and the resolution of the dependent placeholders are timed as the
+ * {@link ReloadMetrics.Stage#DIFF} and {@link ReloadMetrics.Stage#RESOLVE} stages.
  */
 public class ReloadPropertyEventPublisher implements EventPublisher {
     private static Logger log = LoggerFactory.getLogger(ReloadPropertyEventPublisher.class);
 
+    /**
+     * What a removed property key does to the placeholders and fields depending on it.
+     */
+    public enum TombstonePolicy {
+        /**
+         * Keep the last value of the removed key, nothing changes.
+         */
+        KEEP,
+        /**
+         * Remove the key, placeholders falling back to their default value, e.g. <code>${key:10}</code>, change to
+         * it; unresolvable placeholders keep their last value.
+         */
+        REMOVE,
+        /**
+         * Remove the key as {@link #REMOVE} does, but revert the fields of unresolvable placeholders to the value they
+         * had before injection, posted as a change event with a {@code null} new value.
+         */
+        REVERT
+    }
+
     private final MutablePropertyResolver propertyResolver;
     private final EventNotifier eventNotifier;
+    private final ReloadMetrics metrics;
+    private final TombstonePolicy tombstonePolicy;
 
     private final Map<String, String> resolvedBeanProperty;
 
+    // placeholder -> raw keys looked up while resolving it
+    private final Map<String, Set<String>> placeholderDependencies = new HashMap<>();
+    // raw key -> placeholders depending on it
+    private final Map<String, Set<String>> keyDependents = new HashMap<>();
+    // source -> its raw properties, in the order the sources were added
+    private final Map<String, Map<String, String>> sourceProperties = new LinkedHashMap<>();
+
+    private volatile ConfigEpoch currentEpoch;
+
     public ReloadPropertyEventPublisher(MutablePropertyResolver propertyResolver,
                                         EventNotifier eventNotifier,
                                         Map<String, String> resolvedBeanProperty) {
+        this(propertyResolver, eventNotifier, resolvedBeanProperty, new ReloadMetrics());
+    }
+
+    public ReloadPropertyEventPublisher(MutablePropertyResolver propertyResolver,
+                                        EventNotifier eventNotifier,
+                                        Map<String, String> resolvedBeanProperty,
+                                        ReloadMetrics metrics) {
+        this(propertyResolver, eventNotifier, resolvedBeanProperty, metrics, TombstonePolicy.KEEP);
+    }
+
+    public ReloadPropertyEventPublisher(MutablePropertyResolver propertyResolver,
+                                        EventNotifier eventNotifier,
+                                        Map<String, String> resolvedBeanProperty,
+                                        ReloadMetrics metrics,
+                                        TombstonePolicy tombstonePolicy) {
         Assert.notNull(propertyResolver, "Property resolver must not be null");
         Assert.notNull(eventNotifier, "Event notifier can not be null");
         Assert.notNull(resolvedBeanProperty, "Resolved property map can not be null");
+        Assert.notNull(metrics, "Metrics can not be null");
+        Assert.notNull(tombstonePolicy, "Tombstone policy can not be null");
 
         this.propertyResolver = propertyResolver;
         this.eventNotifier = eventNotifier;
         this.resolvedBeanProperty = resolvedBeanProperty;
+        this.metrics = metrics;
+        this.tombstonePolicy = tombstonePolicy;
     }
 
     public MutablePropertyResolver getPropertyResolver() {
@@ -44,38 +124,248 @@ public class ReloadPropertyEventPublisher implements EventPublisher {
         return eventNotifier;
     }
 
+    public TombstonePolicy getTombstonePolicy() {
+        return tombstonePolicy;
+    }
+
+    /**
+     * Get the last applied epoch without locking, epoch {@code 0} holds the properties loaded on start up.
+     *
+     * @return the current epoch (never {@code null}).
+     */
+    public ConfigEpoch getCurrentEpoch() {
+        final ConfigEpoch epoch = this.currentEpoch;
+        if (null != epoch) {
+            return epoch;
+        }
+        return new ConfigEpoch(0L, ConfigChangeSet.EMPTY, Collections.emptyMap(), this.propertyResolver.getSnapshot());
+    }
+
+    /**
+     * Register the placeholder for publishing, resolving it and indexing the property keys it depends on.
+     *
+     * @param placeholder the placeholder text, e.g. <code>${...}</code>
+     * @return the resolved value of the placeholder
+     */
+    public synchronized String addPlaceholder(final String placeholder) {
+        Assert.notNull(placeholder, "Placeholder must not be null");
+
+        String resolved = this.resolvedBeanProperty.get(placeholder);
+        if (null == resolved) {
+            resolved = resolveAndIndex(placeholder, null);
+            this.resolvedBeanProperty.put(placeholder, resolved);
+        }
+        return resolved;
+    }
+
+    /**
+     * Stop publishing changes of the placeholder, dropping it from the dependency graph.
+     *
+     * @param placeholder the placeholder text previously {@link #addPlaceholder added}
+     */
+    public synchronized void removePlaceholder(final String placeholder) {
+        this.resolvedBeanProperty.remove(placeholder);
+        updateDependencies(placeholder, Collections.emptySet());
+    }
+
     @Override
-    public void onPropertyChanged(final Properties properties) {
-        // Update properties of resolver
+    public synchronized void onPropertyChanged(final Properties properties) {
+        final Map<String, String> changed = new HashMap<>();
         for (String key : properties.stringPropertyNames()) {
-            String newValue = properties.getProperty(key);
-            String oldValue = this.propertyResolver.getPropertyAsRawString(key);
+            changed.put(key, properties.getProperty(key));
+        }
+        applyChanges(new PropertiesDelta(changed, Collections.emptySet()));
+    }
+
+    /**
+     * Apply the delta, removed properties are handled as configured by the {@link TombstonePolicy}.
+     */
+    @Override
+    public synchronized void onPropertiesChanged(final PropertiesDelta delta) {
+        applyChanges(delta);
+    }
+
+    /**
+     * Set the properties of the source as loaded on start up, without publishing them; they are expected to be set
+     * to the resolver by the caller.
+     */
+    public synchronized void setSourceProperties(final String source, final Map<String, String> properties) {
+        Assert.notNull(source, "Source can not be null");
+        Assert.notNull(properties, "Properties can not be null");
+        this.sourceProperties.put(source, new HashMap<>(properties));
+    }
+
+    /**
+     * Apply the delta of the source, keys removed from the source but defined by other sources are not removed.
+     */
+    @Override
+    public synchronized void onPropertiesChanged(final String source, final PropertiesDelta delta) {
+        Assert.notNull(source, "Source can not be null");
+        applyChanges(trackSource(source, delta));
+    }
 
-            if (propertyExists(key) && propertyChangedAndNotNull(oldValue, newValue)) {
-                this.propertyResolver.setProperty(key, newValue);
+    private PropertiesDelta trackSource(final String source, final PropertiesDelta delta) {
+        final Map<String, String> properties = this.sourceProperties.computeIfAbsent(source, k -> new HashMap<>());
+        delta.getChanged().forEach((key, value) -> {
+            if (null != value) {
+                properties.put(key, value);
             }
+        });
+        if (delta.getRemoved().isEmpty()) {
+            return delta;
         }
 
-        for (final String key : this.resolvedBeanProperty.keySet()) {
-            final String oldValue = this.resolvedBeanProperty.get(key);
-            final String newValue = this.propertyResolver.resolvePlaceholders(key);
+        final Map<String, String> changed = new HashMap<>(delta.getChanged());
+        final Set<String> removed = new HashSet<>();
+        for (String key : delta.getRemoved()) {
+            if (delta.getChanged().containsKey(key)) {
+                continue;
+            }
+            properties.remove(key);
+            final String remaining = lastSourceValue(key);
+            if (null == remaining) {
+                removed.add(key);
+            } else {
+                log.debug("Property [{}] removed from [{}] is still defined by other sources", key, source);
+                changed.put(key, remaining);
+            }
+        }
+        return new PropertiesDelta(changed, removed);
+    }
+
+    private String lastSourceValue(final String key) {
+        String value = null;
+        for (Map<String, String> properties : this.sourceProperties.values()) {
+            final String defined = properties.get(key);
+            if (null != defined) {
+                value = defined;
+            }
+        }
+        return value;
+    }
 
+    private void applyChanges(final PropertiesDelta delta) {
+        final long diffStart = System.nanoTime();
+        ConfigChangeSet changes = ConfigChangeSet.diff(this.propertyResolver.getSnapshot().asMap(), delta);
+        if (this.tombstonePolicy == TombstonePolicy.KEEP && !changes.getRemoved().isEmpty()) {
+            log.debug("Keeping the last values of removed properties {}", changes.getRemoved());
+            changes = changes.withoutRemoved();
+        }
+        if (changes.isEmpty()) {
+            this.metrics.record(ReloadMetrics.Stage.DIFF, diffStart);
+            return;
+        }
+        // Update properties of resolver
+        final Map<String, String> updated = new HashMap<>(changes.getAdded());
+        updated.putAll(changes.getModified());
+        this.propertyResolver.updateProperties(updated, changes.getRemoved());
+        this.metrics.record(ReloadMetrics.Stage.DIFF, diffStart);
+        this.metrics.keysChanged(changes.getChangedKeys().size());
+
+        final long resolveStart = System.nanoTime();
+        final PropertySnapshot snapshot = this.propertyResolver.getSnapshot();
+        final long epoch = getCurrentEpoch().getEpoch() + 1;
+        final Map<String, String> changedPlaceholders = new LinkedHashMap<>();
+        final Map<String, String> oldValues = new HashMap<>();
+        final Map<String, Set<String>> placeholderKeys = dependentPlaceholders(changes.getChangedKeys());
+        for (final String placeholder : placeholderKeys.keySet()) {
+            final String oldValue = this.resolvedBeanProperty.get(placeholder);
+            final String newValue;
+            try {
+                newValue = resolveAndIndex(placeholder, snapshot);
+            } catch (final IllegalArgumentException e) {
+                // a removed key without default, the dependencies are kept to pick the key up once set again
+                if (this.tombstonePolicy == TombstonePolicy.REVERT && null != oldValue) {
+                    this.resolvedBeanProperty.remove(placeholder);
+                    changedPlaceholders.put(placeholder, null);
+                    oldValues.put(placeholder, oldValue);
+                } else {
+                    log.warn("Keeping the last value of unresolvable placeholder [{}]: {}", placeholder, e.getMessage());
+                }
+                continue;
+            }
+
+            // a changed value may reference other changed keys than before
+            for (String key : this.placeholderDependencies.getOrDefault(placeholder, Collections.emptySet())) {
+                if (changes.getChangedKeys().contains(key)) {
+                    placeholderKeys.get(placeholder).add(key);
+                }
+            }
             if (propertyChangedAndNotNull(oldValue, newValue)) {
                 // Update cache
-                this.resolvedBeanProperty.put(key, newValue);
+                this.resolvedBeanProperty.put(placeholder, newValue);
+                changedPlaceholders.put(placeholder, newValue);
+                oldValues.put(placeholder, oldValue);
+            }
+        }
+        this.metrics.record(ReloadMetrics.Stage.RESOLVE, resolveStart);
+
+        final List<PropertyChangedEvent> events = new ArrayList<>(changedPlaceholders.size());
+        placeholderKeys.keySet().retainAll(changedPlaceholders.keySet());
+        for (Map.Entry<String, String> placeholder : changedPlaceholders.entrySet()) {
+            events.add(new PropertyChangedEvent(placeholder.getKey(),
+                    oldValues.get(placeholder.getKey()), placeholder.getValue(), epoch));
+            log.info("Publish property changes for [{}] with new value [{}]", placeholder.getKey(), placeholder.getValue());
+        }
+        if (!events.isEmpty()) {
+            // Post all changes of the update at once to notify any potential listeners
+            this.eventNotifier.post(new PropertyChangeBatch(epoch, changes.getChangedKeys(), events, placeholderKeys));
+        }
 
-                // Post change event to notify any potential listeners
-                this.eventNotifier.post(new PropertyChangedEvent(key, oldValue, newValue));
-                log.info("Publish property changes for [{}] with new value [{}]", key, newValue);
+        this.currentEpoch = new ConfigEpoch(epoch, changes, changedPlaceholders, snapshot);
+        log.info("Applied properties epoch [{}] with [{}] changed keys", epoch, changes.getChangedKeys().size());
+    }
+
+    /**
+     * @return the placeholders depending on the changed keys, each with the changed keys it depends on.
+     */
+    private Map<String, Set<String>> dependentPlaceholders(final Set<String> changedKeys) {
+        final Map<String, Set<String>> placeholders = new LinkedHashMap<>();
+        for (String key : changedKeys) {
+            Set<String> dependents = this.keyDependents.get(key);
+            if (null != dependents) {
+                for (String placeholder : dependents) {
+                    placeholders.computeIfAbsent(placeholder, k -> new HashSet<>()).add(key);
+                }
             }
         }
+        return placeholders;
     }
 
-    private boolean propertyChangedAndNotNull(final String oldValue, final String newValue) {
-        return null != newValue && (null == oldValue || !oldValue.equals(newValue));
+    /**
+     * Resolve the placeholder, the keys looked up are recorded as its new dependencies since
+     * a changed value may reference other keys than before.
+     */
+    private String resolveAndIndex(final String placeholder, final PropertySnapshot snapshot) {
+        final Set<String> referencedKeys = new HashSet<>();
+        final String resolved = null == snapshot ?
+                this.propertyResolver.resolvePlaceholders(placeholder, referencedKeys) :
+                snapshot.resolvePlaceholders(placeholder, referencedKeys);
+        updateDependencies(placeholder, referencedKeys);
+        return resolved;
     }
 
-    private boolean propertyExists(final String property) {
-        return this.propertyResolver.propertyNames().contains(property);
+    private void updateDependencies(final String placeholder, final Set<String> referencedKeys) {
+        final Set<String> previousKeys = referencedKeys.isEmpty() ?
+                this.placeholderDependencies.remove(placeholder) :
+                this.placeholderDependencies.put(placeholder, referencedKeys);
+
+        if (null != previousKeys) {
+            for (String key : previousKeys) {
+                if (!referencedKeys.contains(key)) {
+                    Set<String> dependents = this.keyDependents.get(key);
+                    if (null != dependents && dependents.remove(placeholder) && dependents.isEmpty()) {
+                        this.keyDependents.remove(key);
+                    }
+                }
+            }
+        }
+        for (String key : referencedKeys) {
+            this.keyDependents.computeIfAbsent(key, k -> new HashSet<>()).add(placeholder);
+        }
+    }
+
+    private boolean propertyChangedAndNotNull(final String oldValue, final String newValue) {
+        return null != newValue && (null == oldValue || !oldValue.equals(newValue));
     }
 }
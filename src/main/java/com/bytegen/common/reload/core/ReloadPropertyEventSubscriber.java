@@ -2,20 +2,29 @@ package com.bytegen.common.reload.core;
 
 import com.bytegen.common.reload.ReloadValue;
 import com.bytegen.common.reload.bean.BeanPropertyHolder;
+import com.bytegen.common.reload.bean.PropertyChangeBatch;
+import com.bytegen.common.reload.bean.PropertyWriter;
 import com.bytegen.common.reload.bean.PropertyChangedEvent;
 import com.bytegen.common.reload.conversion.DefaultPropertyConversion;
-import com.bytegen.common.reload.conversion.PropertyConversion;
+import com.bytegen.common.reload.conversion.PropertyConversionCache;
 import com.bytegen.common.reload.event.EventNotifier;
 import com.bytegen.common.reload.event.EventSubscriber;
+import com.bytegen.common.reload.event.KeyedEventNotifier;
+import com.bytegen.common.reload.event.PropertyChangeHandler;
+import com.bytegen.common.reload.metrics.ReloadMetrics;
 import com.google.common.eventbus.Subscribe;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.BeanUtils;
-import org.springframework.beans.factory.BeanInitializationException;
 import org.springframework.util.Assert;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -23,18 +32,62 @@ import java.util.Set;
  * User: xiang
  * Date: 2018/8/6
  * Desc:
+ * <p>
+ * Delivering an event to all bound fields is timed as the {@link ReloadMetrics.Stage#DISPATCH} stage, converting
+ * and writing the value of each field as the {@link ReloadMetrics.Stage#CONVERSION} and
+ * {@link ReloadMetrics.Stage#WRITE} stages.
+ * <p>
+ * With a {@link KeyedEventNotifier} every bound field is {@link #bind bound} to the notifier as a pre-bound handler,
+ * events are then delivered straight to the fields of their property instead of through
+ * {@link #onPropertyChangedEvent}.
+ * <p>
+ * The changes of a {@link PropertyChangeBatch} are applied grouped by bean, all fields of one bean are written one
+ * after another before the next bean. Once all fields of a bean are written its
+ * {@link com.bytegen.common.reload.OnReload OnReload} callbacks are queued on the {@link ReloadCallbackInvoker}.
  */
 public class ReloadPropertyEventSubscriber implements EventSubscriber {
     private static Logger log = LoggerFactory.getLogger(ReloadPropertyEventSubscriber.class);
 
     private final EventNotifier eventNotifier;
+    private final KeyedEventNotifier keyedNotifier;
+    private final PropertyConversionCache conversionCache;
+    private final ReloadMetrics metrics;
+    private final ReloadCallbackInvoker callbackInvoker;
     private final Map<String, Set<BeanPropertyHolder>> beanPropertySubscriptions;
 
     public ReloadPropertyEventSubscriber(EventNotifier eventNotifier,
                                          Map<String, Set<BeanPropertyHolder>> beanPropertySubscriptions) {
+        this(eventNotifier, new PropertyConversionCache(), beanPropertySubscriptions);
+    }
+
+    public ReloadPropertyEventSubscriber(EventNotifier eventNotifier,
+                                         PropertyConversionCache conversionCache,
+                                         Map<String, Set<BeanPropertyHolder>> beanPropertySubscriptions) {
+        this(eventNotifier, conversionCache, beanPropertySubscriptions, new ReloadMetrics());
+    }
+
+    public ReloadPropertyEventSubscriber(EventNotifier eventNotifier,
+                                         PropertyConversionCache conversionCache,
+                                         Map<String, Set<BeanPropertyHolder>> beanPropertySubscriptions,
+                                         ReloadMetrics metrics) {
+        this(eventNotifier, conversionCache, beanPropertySubscriptions, metrics, new ReloadCallbackInvoker(null));
+    }
+
+    public ReloadPropertyEventSubscriber(EventNotifier eventNotifier,
+                                         PropertyConversionCache conversionCache,
+                                         Map<String, Set<BeanPropertyHolder>> beanPropertySubscriptions,
+                                         ReloadMetrics metrics,
+                                         ReloadCallbackInvoker callbackInvoker) {
         Assert.notNull(eventNotifier, "EventNotifier can not be null");
+        Assert.notNull(conversionCache, "Conversion cache can not be null");
+        Assert.notNull(metrics, "Metrics can not be null");
+        Assert.notNull(callbackInvoker, "Callback invoker can not be null");
 
         this.eventNotifier = eventNotifier;
+        this.keyedNotifier = (eventNotifier instanceof KeyedEventNotifier) ? (KeyedEventNotifier) eventNotifier : null;
+        this.conversionCache = conversionCache;
+        this.metrics = metrics;
+        this.callbackInvoker = callbackInvoker;
         this.beanPropertySubscriptions = (null == beanPropertySubscriptions) ?
                 Collections.emptyMap() : beanPropertySubscriptions;
 
@@ -47,8 +100,14 @@ public class ReloadPropertyEventSubscriber implements EventSubscriber {
      * setting up bean re-injection once triggered.
      */
     public final void registerPropertyReloader() {
-        // Setup event listener
-        this.eventNotifier.register(this);
+        if (null == this.keyedNotifier) {
+            // Setup event listener
+            this.eventNotifier.register(this);
+            return;
+        }
+        synchronized (this.beanPropertySubscriptions) {
+            bindAll(this.beanPropertySubscriptions);
+        }
     }
 
     /**
@@ -56,7 +115,45 @@ public class ReloadPropertyEventSubscriber implements EventSubscriber {
      */
     public final void unregisterPropertyReloader() {
         log.info("Unregistering class from property file changes");
-        this.eventNotifier.unregister(this);
+        if (null == this.keyedNotifier) {
+            this.eventNotifier.unregister(this);
+            return;
+        }
+        synchronized (this.beanPropertySubscriptions) {
+            this.beanPropertySubscriptions.forEach((propertyName, holders) ->
+                    holders.forEach(holder -> unbind(propertyName, holder)));
+        }
+    }
+
+    /**
+     * Bind the field to the changes of the property, needed with a {@link KeyedEventNotifier} only.
+     */
+    public void bind(final String propertyName, final BeanPropertyHolder holder) {
+        if (null != this.keyedNotifier) {
+            this.keyedNotifier.bind(propertyName, new FieldHandler(holder));
+        }
+    }
+
+    /**
+     * Bind the fields per property at once, see {@link #bind}.
+     */
+    public void bindAll(final Map<String, ? extends Collection<BeanPropertyHolder>> holders) {
+        if (null == this.keyedNotifier) {
+            return;
+        }
+        final Map<String, List<PropertyChangeHandler>> handlers = new HashMap<>();
+        holders.forEach((propertyName, bound) -> {
+            final List<PropertyChangeHandler> fieldHandlers = new ArrayList<>(bound.size());
+            bound.forEach(holder -> fieldHandlers.add(new FieldHandler(holder)));
+            handlers.put(propertyName, fieldHandlers);
+        });
+        this.keyedNotifier.bindAll(handlers);
+    }
+
+    public void unbind(final String propertyName, final BeanPropertyHolder holder) {
+        if (null != this.keyedNotifier) {
+            this.keyedNotifier.unbind(propertyName, new FieldHandler(holder));
+        }
     }
 
     /**
@@ -66,27 +163,160 @@ public class ReloadPropertyEventSubscriber implements EventSubscriber {
      */
     @Subscribe
     public void onPropertyChangedEvent(final PropertyChangedEvent event) {
-        Set<BeanPropertyHolder> holders = this.beanPropertySubscriptions.get(event.getPropertyName());
+        final long dispatchStart = System.nanoTime();
+        final Set<BeanPropertyHolder> holders;
+        synchronized (this.beanPropertySubscriptions) {
+            Set<BeanPropertyHolder> subscribed = this.beanPropertySubscriptions.get(event.getPropertyName());
+            holders = (null == subscribed) ? null : new HashSet<>(subscribed);
+        }
         if (null != holders) {
             for (final BeanPropertyHolder bean : holders) {
                 updateField(bean, event);
             }
         }
+        this.metrics.record(ReloadMetrics.Stage.DISPATCH, dispatchStart);
+    }
+
+    @Override
+    public void onPropertyChangeBatch(final PropertyChangeBatch batch) {
+        final long dispatchStart = System.nanoTime();
+        final Map<Object, BeanChanges> byBean = new IdentityHashMap<>();
+        final List<BeanChanges> beans = new ArrayList<>();
+        synchronized (this.beanPropertySubscriptions) {
+            for (PropertyChangedEvent event : batch.getEvents()) {
+                Set<BeanPropertyHolder> subscribed = this.beanPropertySubscriptions.get(event.getPropertyName());
+                if (null == subscribed) {
+                    continue;
+                }
+                for (BeanPropertyHolder holder : subscribed) {
+                    BeanChanges changes = byBean.get(holder.getBean());
+                    if (null == changes) {
+                        changes = new BeanChanges(holder.getBean());
+                        byBean.put(holder.getBean(), changes);
+                        beans.add(changes);
+                    }
+                    changes.holders.add(holder);
+                    changes.events.add(event);
+                }
+            }
+        }
+        for (BeanChanges changes : beans) {
+            for (int i = 0; i < changes.holders.size(); i++) {
+                updateField(changes.holders.get(i), changes.events.get(i));
+            }
+            this.callbackInvoker.reloaded(changes.bean, batch.getChangedKeys(changes.events));
+        }
+        this.metrics.record(ReloadMetrics.Stage.DISPATCH, dispatchStart);
     }
 
     public void updateField(final BeanPropertyHolder holder, final PropertyChangedEvent event) {
-        final Object beanToUpdate = holder.getBean();
         final Field fieldToUpdate = holder.getField();
-        final String canonicalName = beanToUpdate.getClass().getCanonicalName();
+        final PropertyWriter writer = holder.getWriter();
 
-        final Object convertedProperty = convertPropertyForField(fieldToUpdate, event.getNewValue());
         try {
-            fieldToUpdate.set(beanToUpdate, convertedProperty);
-            log.info("Reloading property [{}] on field [{}] for class [{}] with value [{}]",
-                    event.getPropertyName(), fieldToUpdate.getName(), canonicalName, convertedProperty);
-        } catch (final IllegalAccessException e) {
+            if (null == event.getNewValue()) {
+                // tombstone of a removed property, revert to the value before injection
+                final long writeStart = System.nanoTime();
+                writer.write(holder.getDefaultValue());
+                this.metrics.record(ReloadMetrics.Stage.WRITE, writeStart);
+                logFieldReloaded(holder, event, holder.getDefaultValue());
+                return;
+            }
+            if (isDefaultConversion(holder) && event.getNewValue() instanceof String) {
+                final long writeStart = System.nanoTime();
+                if (writer.writePrimitive((String) event.getNewValue())) {
+                    this.metrics.record(ReloadMetrics.Stage.WRITE, writeStart);
+                    logFieldReloaded(holder, event, event.getNewValue());
+                    return;
+                }
+            }
+
+            final long conversionStart = System.nanoTime();
+            final Object convertedProperty;
+            try {
+                convertedProperty = convertPropertyForField(holder, event.getNewValue());
+            } catch (final RuntimeException e) {
+                this.metrics.conversionFailed();
+                throw e;
+            }
+            this.metrics.record(ReloadMetrics.Stage.CONVERSION, conversionStart);
+
+            final long writeStart = System.nanoTime();
+            writer.write(convertedProperty);
+            this.metrics.record(ReloadMetrics.Stage.WRITE, writeStart);
+            logFieldReloaded(holder, event, convertedProperty);
+        } catch (final RuntimeException e) {
+            // a failing field must not keep the remaining fields of the update from being written
             log.error(String.format("Unable to reloading property [%s] on field [%s] for class [%s]",
-                    event.getPropertyName(), fieldToUpdate.getName(), canonicalName), e);
+                    event.getPropertyName(), fieldToUpdate.getName(), holder.getBean().getClass().getCanonicalName()), e);
+        }
+    }
+
+    private void logFieldReloaded(final BeanPropertyHolder holder, final PropertyChangedEvent event, final Object value) {
+        if (log.isInfoEnabled()) {
+            log.info("Reloading property [{}] on field [{}] for class [{}] with value [{}]",
+                    event.getPropertyName(), holder.getField().getName(), holder.getBean().getClass().getCanonicalName(), value);
+        }
+    }
+
+    /**
+     * Handler pre-bound to one field, equal to the handlers of the same field of this subscriber.
+     */
+    private final class FieldHandler implements PropertyChangeHandler {
+        private final BeanPropertyHolder holder;
+
+        private FieldHandler(final BeanPropertyHolder holder) {
+            this.holder = holder;
+        }
+
+        @Override
+        public void onPropertyChanged(final PropertyChangedEvent event) {
+            updateField(this.holder, event);
+        }
+
+        @Override
+        public Object getTarget() {
+            return holder.getBean();
+        }
+
+        @Override
+        public void onTargetChanged(final PropertyChangeBatch batch, final List<PropertyChangedEvent> events) {
+            callbackInvoker.reloaded(holder.getBean(), batch.getChangedKeys(events));
+        }
+
+        private ReloadPropertyEventSubscriber subscriber() {
+            return ReloadPropertyEventSubscriber.this;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (!(o instanceof FieldHandler)) return false;
+            FieldHandler that = (FieldHandler) o;
+            return subscriber() == that.subscriber() && holder.equals(that.holder);
+        }
+
+        @Override
+        public int hashCode() {
+            return holder.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return holder.toString();
+        }
+    }
+
+    /**
+     * Changes of one bean within a batch, the holder at an index is updated with the event at the same index.
+     */
+    private static final class BeanChanges {
+        private final Object bean;
+        private final List<BeanPropertyHolder> holders = new ArrayList<>(4);
+        private final List<PropertyChangedEvent> events = new ArrayList<>(4);
+
+        private BeanChanges(final Object bean) {
+            this.bean = bean;
         }
     }
 
@@ -94,22 +324,20 @@ public class ReloadPropertyEventSubscriber implements EventSubscriber {
     // Utility methods for class access //
     // ///////////////////////////////////
 
-    private Object convertPropertyForField(final Field field, final Object propertyValue) {
-        try {
-            Class<? extends PropertyConversion> conversionClass = field.getAnnotation(ReloadValue.class).conversion();
-
-            PropertyConversion conversion;
-            if (conversionClass == PropertyConversion.class || conversionClass == DefaultPropertyConversion.class) {
-                conversion = DefaultPropertyConversion.getInstance();
-            } else {
-                conversion = BeanUtils.instantiateClass(conversionClass);
-            }
+    private boolean isDefaultConversion(final BeanPropertyHolder holder) {
+        if (null != holder.getConversion()) {
+            return holder.getConversion() == DefaultPropertyConversion.getInstance();
+        }
+        return PropertyConversionCache.isDefaultConversion(holder.getField().getAnnotation(ReloadValue.class).conversion());
+    }
 
-            return conversion.convertPropertyForField(field, propertyValue);
-        } catch (final Throwable e) {
-            throw new BeanInitializationException(
-                    String.format("Unable to convert property for field [%s].  Value [%s] cannot be converted to [%s]",
-                            field.getName(), propertyValue, field.getType()), e);
+    private Object convertPropertyForField(final BeanPropertyHolder holder, final Object propertyValue) {
+        final Field field = holder.getField();
+        if (null != holder.getConversion()) {
+            return this.conversionCache.convertPropertyForField(holder.getConversion(), field,
+                    holder.getWriter().getTargetType(), propertyValue);
         }
+        return this.conversionCache.convertPropertyForField(field.getAnnotation(ReloadValue.class).conversion(),
+                field, holder.getWriter().getTargetType(), propertyValue);
     }
 }
@@ -0,0 +1,152 @@
+package com.bytegen.common.reload.core;
+
+import com.bytegen.common.reload.OnReload;
+import com.bytegen.common.reload.ReloadValue;
+import com.bytegen.common.reload.conversion.PropertyConversion;
+import com.bytegen.common.reload.conversion.PropertyConversionCache;
+import com.bytegen.common.reload.handle.ReloadableWriter;
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The {@link ReloadValue} bindings and {@link OnReload} callbacks of one class, collected once per class over its
+ * whole hierarchy.
+ * <p>
+ * Classes without any binding share {@link #EMPTY}, so beans of those classes are skipped without reflection.
+ */
+final class ReloadValueMetadata {
+
+    static final ReloadValueMetadata EMPTY = new ReloadValueMetadata(Collections.emptyList(), Collections.emptyList());
+
+    private final List<Element> elements;
+    private final List<Method> callbacks;
+
+    private ReloadValueMetadata(final List<Element> elements, final List<Method> callbacks) {
+        this.elements = elements;
+        this.callbacks = callbacks;
+    }
+
+    /**
+     * Scan the class for fields annotated with {@link ReloadValue} and methods annotated with {@link OnReload},
+     * making them accessible. Callbacks of classes without any binding are never called, they are skipped.
+     *
+     * @throws BeanInitializationException if an annotated field can not be reloaded or an annotated method can not
+     *                                     be called back.
+     */
+    static ReloadValueMetadata forClass(final Class<?> clazz, final PropertyConversionCache conversionCache) {
+        final List<Element> elements = new ArrayList<>();
+        ReflectionUtils.doWithFields(clazz, field -> {
+            final ReloadValue annotation = field.getAnnotation(ReloadValue.class);
+            if (null == annotation) {
+                return;
+            }
+
+            final boolean reloadable = ReloadableWriter.isReloadable(field);
+            if (!reloadable && Modifier.isFinal(field.getModifiers())) {
+                throw new BeanInitializationException(String.format("Unable to set field [%s] of class [%s] as is declared final",
+                        field.getName(), clazz.getCanonicalName()));
+            }
+            ReflectionUtils.makeAccessible(field);
+
+            final PropertyConversion conversion;
+            try {
+                conversion = conversionCache.getConversion(annotation.conversion(), field.getType());
+            } catch (final Throwable e) {
+                throw new BeanInitializationException(String.format("Unable to create conversion [%s] for field [%s] of class [%s]",
+                        annotation.conversion(), field.getName(), clazz.getCanonicalName()), e);
+            }
+            elements.add(new Element(field, annotation, conversion));
+        });
+        if (elements.isEmpty()) {
+            return EMPTY;
+        }
+        return new ReloadValueMetadata(Collections.unmodifiableList(elements), findCallbacks(clazz));
+    }
+
+    /**
+     * Overridden methods are called back once, through the overriding method.
+     */
+    private static List<Method> findCallbacks(final Class<?> clazz) {
+        final List<Method> callbacks = new ArrayList<>();
+        for (Method method : ReflectionUtils.getUniqueDeclaredMethods(clazz)) {
+            if (!method.isAnnotationPresent(OnReload.class)) {
+                continue;
+            }
+            if (Modifier.isStatic(method.getModifiers()) || !isCallbackSignature(method)) {
+                throw new BeanInitializationException(String.format("@OnReload method [%s] of class [%s] must be "
+                        + "an instance method taking no parameter or a Set<String>", method.getName(), clazz.getCanonicalName()));
+            }
+            ReflectionUtils.makeAccessible(method);
+            callbacks.add(method);
+        }
+        return callbacks.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(callbacks);
+    }
+
+    private static boolean isCallbackSignature(final Method method) {
+        if (method.getParameterCount() == 0) {
+            return true;
+        }
+        if (method.getParameterCount() != 1 || method.getParameterTypes()[0] != Set.class) {
+            return false;
+        }
+        final Type type = method.getGenericParameterTypes()[0];
+        return !(type instanceof ParameterizedType)
+                || ((ParameterizedType) type).getActualTypeArguments()[0] == String.class;
+    }
+
+    boolean isEmpty() {
+        return this.elements.isEmpty();
+    }
+
+    List<Element> getElements() {
+        return this.elements;
+    }
+
+    /**
+     * @return the {@link OnReload} methods, accessible already.
+     */
+    List<Method> getCallbacks() {
+        return this.callbacks;
+    }
+
+    /**
+     * One annotated field with its shared conversion, handed to the holders of the field.
+     */
+    static final class Element {
+        private final Field field;
+        private final ReloadValue annotation;
+        private final PropertyConversion conversion;
+
+        private Element(final Field field, final ReloadValue annotation, final PropertyConversion conversion) {
+            this.field = field;
+            this.annotation = annotation;
+            this.conversion = conversion;
+        }
+
+        Field getField() {
+            return this.field;
+        }
+
+        ReloadValue getAnnotation() {
+            return this.annotation;
+        }
+
+        String getPlaceholder() {
+            return this.annotation.value();
+        }
+
+        PropertyConversion getConversion() {
+            return this.conversion;
+        }
+    }
+}
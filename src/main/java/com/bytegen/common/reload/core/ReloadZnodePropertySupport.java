@@ -3,39 +3,53 @@ package com.bytegen.common.reload.core;
 import com.bytegen.common.reload.ReloadZnode;
 import com.bytegen.common.reload.ReloadValue;
 import com.bytegen.common.reload.bean.BeanPropertyHolder;
-import com.bytegen.common.reload.conversion.DefaultPropertyConversion;
+import com.bytegen.common.reload.bean.ConfigEpoch;
+import com.bytegen.common.reload.bean.PropertyWriter;
 import com.bytegen.common.reload.conversion.PropertyConversion;
+import com.bytegen.common.reload.conversion.PropertyConversionCache;
+import com.bytegen.common.reload.event.AsyncEventNotifier;
+import com.bytegen.common.reload.event.DispatchTableEventNotifier;
 import com.bytegen.common.reload.event.EventNotifier;
-import com.bytegen.common.reload.event.EventPublisher;
-import com.bytegen.common.reload.event.EventSubscriber;
-import com.bytegen.common.reload.event.GuavaEventNotifier;
+import com.bytegen.common.reload.metrics.ReloadMetrics;
 import com.bytegen.common.reload.resolver.MutablePropertyResolver;
-import com.bytegen.common.reload.resolver.PropertiesPropertyResolver;
+import com.bytegen.common.reload.resolver.SnapshotPropertyResolver;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.ChildData;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.BeanUtils;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
 import org.springframework.beans.factory.BeanInitializationException;
 import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.DestructionAwareBeanPostProcessor;
 import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessorAdapter;
+import org.springframework.context.ApplicationContext;
 import org.springframework.core.annotation.AnnotationAttributes;
 import org.springframework.core.env.*;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
-import org.springframework.util.ReflectionUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.StringReader;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * <p>
@@ -50,27 +64,129 @@ import java.util.*;
  * <p>
  * The processor will also substitute any properties with values starting with "${" and ending with "}", none recursive.
  * </p>
+ * <p>
+ * Property changes are dispatched to the beans asynchronously by default, configured with the environment properties:
+ * <ul>
+ * <li>{@value #DISPATCH_MODE}: {@code async} (default) or {@code sync} to update beans on the zookeeper event thread</li>
+ * <li>{@value #DISPATCH_THREADS}: number of dispatch lanes and threads, default {@value #DEFAULT_DISPATCH_THREADS}</li>
+ * <li>{@value #DISPATCH_QUEUE_CAPACITY}: capacity of each dispatch lane, default {@value #DEFAULT_DISPATCH_QUEUE_CAPACITY}</li>
+ * <li>{@value #DISPATCH_BACKPRESSURE}: {@link AsyncEventNotifier.BackpressurePolicy} once a lane is full, default {@code BLOCK}</li>
+ * <li>{@value #DISPATCH_EXECUTOR}: name of an {@link Executor} bean to dispatch on instead of the own threads</li>
+ * <li>{@value #CALLBACK_EXECUTOR}: name of an {@link Executor} bean to run the
+ * {@link com.bytegen.common.reload.OnReload OnReload} callbacks on instead of an own thread</li>
+ * </ul>
+ * Every application context dispatches through its own notifier and watches its znodes with its own watchers, so
+ * several contexts in one JVM never receive the changes of each other; they only share the zookeeper clients.
+ * </p>
+ * <p>
+ * On start up all znodes are read in parallel, waiting at most {@value #BOOTSTRAP_TIMEOUT} milliseconds overall,
+ * default {@value #DEFAULT_BOOTSTRAP_TIMEOUT_MILLIS}. With {@value #SNAPSHOT_DIRECTORY} configured every applied znode
+ * payload is kept as a local {@link ZnodeSnapshotStore snapshot}; znodes with a snapshot are loaded from it on start up
+ * without waiting for zookeeper, the live data is published once read.
+ * </p>
+ * <p>
+ * Property keys removed from a znode are handled as configured by {@value #TOMBSTONE_POLICY}, a
+ * {@link ReloadPropertyEventPublisher.TombstonePolicy}, default {@code KEEP} keeping their last values. Keys are
+ * merged over all znodes, a key removed from one znode but still defined by another one takes the value of the last
+ * znode defining it instead of being removed.
+ * </p>
+ * <p>
+ * The {@link ReloadMetrics} of the reload pipeline are registered as MBeans named {@value #METRICS_JMX_NAME},
+ * unless {@value #METRICS_JMX_ENABLED} is {@code false}. The name defaults to the id of the application context,
+ * suffixed with {@code -2}, {@code -3}... if metrics of another context in the JVM took it already.
+ * </p>
  */
 @Component
-public class ReloadZnodePropertySupport extends InstantiationAwareBeanPostProcessorAdapter {
+public class ReloadZnodePropertySupport extends InstantiationAwareBeanPostProcessorAdapter
+        implements DestructionAwareBeanPostProcessor, BeanFactoryAware {
     private static final Logger log = LoggerFactory.getLogger(ReloadZnodePropertySupport.class);
 
+    public static final String DISPATCH_MODE = "auto.reload.dispatch.mode";
+    public static final String DISPATCH_THREADS = "auto.reload.dispatch.threads";
+    public static final String DISPATCH_QUEUE_CAPACITY = "auto.reload.dispatch.queue-capacity";
+    public static final String DISPATCH_BACKPRESSURE = "auto.reload.dispatch.backpressure";
+    public static final String DISPATCH_EXECUTOR = "auto.reload.dispatch.executor";
+    public static final String CALLBACK_EXECUTOR = "auto.reload.callback.executor";
+
+    public static final String BOOTSTRAP_TIMEOUT = "auto.reload.bootstrap.timeout-millis";
+    public static final String SNAPSHOT_DIRECTORY = "auto.reload.snapshot.dir";
+    public static final String METRICS_JMX_ENABLED = "auto.reload.metrics.jmx.enabled";
+    public static final String METRICS_JMX_NAME = "auto.reload.metrics.jmx.name";
+    public static final String TOMBSTONE_POLICY = "auto.reload.tombstone-policy";
+
+    public static final int DEFAULT_DISPATCH_THREADS = 1;
+    public static final int DEFAULT_DISPATCH_QUEUE_CAPACITY = 1024;
+    public static final long DEFAULT_BOOTSTRAP_TIMEOUT_MILLIS = 30000L;
+
     @Resource
     private Environment environment;
     @Resource
     private ReloadResourceFactoryProcessor reloadResourceFactoryProcessor;
+    @Resource
+    private ApplicationContext applicationContext;
 
-    private final PropertiesPropertyResolver propertyResolver = new PropertiesPropertyResolver();
-    private final EventNotifier eventNotifier = GuavaEventNotifier.getInstance();
+    private BeanFactory beanFactory;
+
+    private final SnapshotPropertyResolver propertyResolver = new SnapshotPropertyResolver();
+    private final PropertyConversionCache conversionCache = new PropertyConversionCache();
+    private final ReloadMetrics metrics = new ReloadMetrics();
+    private EventNotifier eventNotifier;
+    private ReloadCallbackInvoker callbackInvoker;
+    private ZnodeSnapshotStore snapshotStore;
 
     private final Map<String, String> resolvedBeanProperty = new HashMap<>();
     private final Map<String, Set<BeanPropertyHolder>> beanPropertySubscriptions = new HashMap<>();
+    private final Set<Object> subscribedBeans = Collections.newSetFromMap(new IdentityHashMap<>());
+    // bean class -> its @ReloadValue bindings, ReloadValueMetadata.EMPTY for classes without any
+    private final ConcurrentMap<Class<?>, ReloadValueMetadata> metadataCache = new ConcurrentReferenceHashMap<>(256);
+
+    private ReloadPropertyEventPublisher publisher;
+    private ReloadPropertyEventSubscriber subscriber;
+    private final List<ZnodeWatcher> watchers = new ArrayList<>();
 
-    private final EventPublisher publisher = new ReloadPropertyEventPublisher(propertyResolver, eventNotifier, resolvedBeanProperty);
-    private final EventSubscriber subscriber = new ReloadPropertyEventSubscriber(eventNotifier, beanPropertySubscriptions);
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        this.beanFactory = beanFactory;
+    }
+
+    public EventNotifier getEventNotifier() {
+        return this.eventNotifier;
+    }
+
+    public ReloadMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * @return the watchers of the configured zookeeper nodes.
+     */
+    public List<ZnodeWatcher> getWatchers() {
+        return Collections.unmodifiableList(this.watchers);
+    }
+
+    /**
+     * Get the last applied {@link ConfigEpoch}, read related properties through the same epoch to observe
+     * them from one consistent update.
+     *
+     * @return the current epoch (never {@code null}).
+     */
+    public ConfigEpoch getCurrentEpoch() {
+        return this.publisher.getCurrentEpoch();
+    }
 
     @PostConstruct
     protected void startReloading() {
+        this.eventNotifier = createEventNotifier();
+        this.callbackInvoker = new ReloadCallbackInvoker(getExecutor(CALLBACK_EXECUTOR));
+        this.snapshotStore = createSnapshotStore();
+        registerMetrics();
+        ReloadPropertyEventPublisher.TombstonePolicy tombstonePolicy = ReloadPropertyEventPublisher.TombstonePolicy.valueOf(
+                environment.getProperty(TOMBSTONE_POLICY, ReloadPropertyEventPublisher.TombstonePolicy.KEEP.name()).toUpperCase());
+        this.publisher = new ReloadPropertyEventPublisher(propertyResolver, eventNotifier, resolvedBeanProperty, metrics,
+                tombstonePolicy);
+        this.subscriber = new ReloadPropertyEventSubscriber(eventNotifier, conversionCache, beanPropertySubscriptions,
+                metrics, callbackInvoker);
+
         log.info("Loading Reloadable Properties zookeeper nodes...");
         List<AnnotatedBeanDefinition> definitions = reloadResourceFactoryProcessor.getReloadZnodeCandidates();
         // None @ReloadZnode annotated bean definition found
@@ -80,11 +196,94 @@ public class ReloadZnodePropertySupport extends InstantiationAwareBeanPostProces
         }
 
         log.info("Start watching for properties file changes");
+        List<ZnodeBootstrap> bootstraps = new ArrayList<>();
         definitions.forEach(bd -> {
             Map<String, Object> attributes = bd.getMetadata()
                     .getAnnotationAttributes(ReloadZnode.class.getCanonicalName());
-            processReloadResourceAttributes(new AnnotationAttributes(attributes));
+            bootstraps.addAll(processReloadResourceAttributes(new AnnotationAttributes(attributes)));
         });
+        try {
+            awaitBootstrap(bootstraps);
+        } catch (RuntimeException ex) {
+            this.watchers.forEach(ZnodeWatcher::stop);
+            throw ex;
+        }
+    }
+
+    @PreDestroy
+    protected void stopReloading() {
+        this.watchers.forEach(ZnodeWatcher::stop);
+        if (null != this.subscriber) {
+            this.subscriber.unregisterPropertyReloader();
+        }
+        if (this.eventNotifier instanceof AsyncEventNotifier) {
+            ((AsyncEventNotifier) this.eventNotifier).shutdown();
+        }
+        if (null != this.callbackInvoker) {
+            this.callbackInvoker.shutdown();
+        }
+        if (null != this.snapshotStore) {
+            this.snapshotStore.shutdown();
+        }
+        this.metrics.unregisterMBeans();
+    }
+
+    private void registerMetrics() {
+        if (!environment.getProperty(METRICS_JMX_ENABLED, Boolean.class, Boolean.TRUE)) {
+            return;
+        }
+        String name = environment.getProperty(METRICS_JMX_NAME);
+        if (StringUtils.isNotBlank(name)) {
+            this.metrics.registerMBeans(ManagementFactory.getPlatformMBeanServer(), name);
+        } else {
+            name = this.metrics.registerUniqueMBeans(ManagementFactory.getPlatformMBeanServer(),
+                    applicationContext.getId());
+        }
+        if (this.eventNotifier instanceof AsyncEventNotifier) {
+            this.metrics.registerMBean("Dispatcher", this.eventNotifier);
+        }
+        this.metrics.registerMBean("ZooKeeperClientPool", ZooKeeperClientPool.getInstance());
+        log.info("Registered reload metrics MBeans [{}]", name);
+    }
+
+    private EventNotifier createEventNotifier() {
+        String mode = environment.getProperty(DISPATCH_MODE, "async");
+        if ("sync".equalsIgnoreCase(mode)) {
+            log.info("Dispatching property changes synchronously");
+            return new DispatchTableEventNotifier(metrics);
+        }
+        Assert.isTrue("async".equalsIgnoreCase(mode), "Unknown " + DISPATCH_MODE + " [" + mode + "], sync or async expected");
+
+        int threads = environment.getProperty(DISPATCH_THREADS, Integer.class, DEFAULT_DISPATCH_THREADS);
+        int queueCapacity = environment.getProperty(DISPATCH_QUEUE_CAPACITY, Integer.class, DEFAULT_DISPATCH_QUEUE_CAPACITY);
+        AsyncEventNotifier.BackpressurePolicy backpressure = AsyncEventNotifier.BackpressurePolicy.valueOf(
+                environment.getProperty(DISPATCH_BACKPRESSURE, AsyncEventNotifier.BackpressurePolicy.BLOCK.name()).toUpperCase());
+
+        Executor executor = getExecutor(DISPATCH_EXECUTOR);
+
+        log.info("Dispatching property changes asynchronously with [{}] lanes of capacity [{}], backpressure [{}]",
+                threads, queueCapacity, backpressure);
+        return new AsyncEventNotifier(executor, threads, queueCapacity, backpressure, metrics);
+    }
+
+    /**
+     * @return the {@link Executor} bean named by the environment property, {@code null} if not configured.
+     */
+    private Executor getExecutor(String property) {
+        String executorName = environment.getProperty(property);
+        if (StringUtils.isNotBlank(executorName)) {
+            return beanFactory.getBean(executorName, Executor.class);
+        }
+        return null;
+    }
+
+    private ZnodeSnapshotStore createSnapshotStore() {
+        String directory = environment.getProperty(SNAPSHOT_DIRECTORY);
+        if (StringUtils.isBlank(directory)) {
+            return null;
+        }
+        log.info("Keeping local snapshots of the zookeeper nodes in [{}]", directory);
+        return new ZnodeSnapshotStore(Paths.get(directory));
     }
 
     private String resolveEnvironmentProperty(String text) {
@@ -94,7 +293,10 @@ public class ReloadZnodePropertySupport extends InstantiationAwareBeanPostProces
         return null;
     }
 
-    private void processReloadResourceAttributes(AnnotationAttributes propertySource) throws BeanDefinitionStoreException {
+    /**
+     * Start watching the znodes of one {@link ReloadZnode}, the first reads of all znodes are issued in the background.
+     */
+    private List<ZnodeBootstrap> processReloadResourceAttributes(AnnotationAttributes propertySource) throws BeanDefinitionStoreException {
         String encoding = resolveEnvironmentProperty(propertySource.getString("encoding"));
         if (StringUtils.isBlank(encoding)) {
             encoding = "UTF-8";
@@ -106,7 +308,12 @@ public class ReloadZnodePropertySupport extends InstantiationAwareBeanPostProces
         Assert.isTrue(StringUtils.isNotBlank(zookeeperServer), "@ReloadZnode zookeeperServer can not be blank");
         Assert.isTrue(znodes.length > 0, "At least one @ReloadZnode zookeeperPath is required");
         boolean ignoreResourceNotFound = propertySource.getBoolean("ignoreResourceNotFound");
+        long coalesceWindowMillis = propertySource.<Number>getNumber("coalesceWindowMillis").longValue();
+        long coalesceMaxDelayMillis = propertySource.<Number>getNumber("coalesceMaxDelayMillis").longValue();
+        Charset charset = Charset.forName(encoding);
+        ReloadZnode.Layout layout = propertySource.getEnum("layout");
 
+        List<ZnodeBootstrap> bootstraps = new ArrayList<>(znodes.length);
         for (String znode : znodes) {
             try {
                 String resolved = resolveEnvironmentProperty(znode);
@@ -117,74 +324,224 @@ public class ReloadZnodePropertySupport extends InstantiationAwareBeanPostProces
                     continue;
                 }
 
-                CuratorFramework client = PropertiesZookeeperWatcher.ZooKeeperClientHolder.getClient(zookeeperServer, zookeeperAuth);
-                byte[] bytes = client.getData().forPath(znode);
-                if (bytes != null) {
-                    Properties properties = new Properties();
-                    properties.load(new StringReader(new String(bytes)));
-                    propertyResolver.addProperties(properties);
+                if (layout == ReloadZnode.Layout.KEY_PER_CHILD) {
+                    KeyPerChildZookeeperWatcher watcher = new KeyPerChildZookeeperWatcher(zookeeperServer, zookeeperAuth,
+                            resolved, publisher, charset, metrics);
+                    watchers.add(watcher);
+                    bootstraps.add(new ZnodeBootstrap(watcher, null, watcher.startWatching(), ignoreResourceNotFound, charset));
+                } else {
+                    PropertiesZookeeperWatcher watcher = new PropertiesZookeeperWatcher(zookeeperServer, zookeeperAuth, resolved,
+                            publisher, charset, coalesceWindowMillis, coalesceMaxDelayMillis, snapshotStore, metrics);
+                    watchers.add(watcher);
+                    bootstraps.add(new ZnodeBootstrap(watcher, watcher.startWatching(), null, ignoreResourceNotFound, charset));
                 }
 
-                new PropertiesZookeeperWatcher(zookeeperServer, zookeeperAuth, znode, publisher).startWatching();
-
             } catch (Exception ex) {
-                // Resource not found when trying to open it
-                if (ignoreResourceNotFound && (ex instanceof FileNotFoundException)) {
-                    if (log.isInfoEnabled()) {
-                        log.warn("Properties location [" + znode + "] not resolvable: " + ex.getMessage());
-                    }
+                throw new BeanDefinitionStoreException(
+                        "Failed to resolve configuration resource [" + znode + "]", ex);
+            }
+        }
+        return bootstraps;
+    }
+
+    /**
+     * Wait for the first reads of all znodes within one overall timeout, then load them in declaration order
+     * so the last loaded znode wins on duplicated keys.
+     */
+    private void awaitBootstrap(List<ZnodeBootstrap> bootstraps) throws BeanDefinitionStoreException {
+        long timeoutMillis = environment.getProperty(BOOTSTRAP_TIMEOUT, Long.class, DEFAULT_BOOTSTRAP_TIMEOUT_MILLIS);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        for (ZnodeBootstrap bootstrap : bootstraps) {
+            String zkServer = bootstrap.watcher.getZkServer();
+            String znode = bootstrap.watcher.getZkNode();
+            String source = bootstrap.watcher.getSource();
+
+            if (null != bootstrap.initialChildren) {
+                Map<String, String> properties = awaitInitialData(znode, bootstrap.initialChildren, deadline, timeoutMillis);
+                if (null == properties) {
+                    handleResourceNotFound(bootstrap);
                 } else {
-                    throw new BeanDefinitionStoreException(
-                            "Failed to resolve configuration resource [" + znode + "]", ex);
+                    loadSource(source, properties);
+                }
+                continue;
+            }
+
+            CompletableFuture<ChildData> initialData = bootstrap.initialData;
+            // prefer the live data if read already, otherwise do not wait for zookeeper if a snapshot is available
+            if (null != snapshotStore && !(initialData.isDone() && !initialData.isCompletedExceptionally())) {
+                ZnodeSnapshotStore.ZnodeSnapshot snapshot = snapshotStore.load(zkServer, znode);
+                if (null != snapshot) {
+                    log.info("Loading properties znode [{}] from local snapshot of version [{}]", znode, snapshot.getVersion());
+                    loadSnapshot(source, znode, snapshot, bootstrap.charset);
+                    metrics.znode(zkServer, znode).applied(snapshot.getVersion(), snapshot.getMzxid());
+                    bootstrap.appliedSnapshot = snapshot;
+                    continue;
+                }
+            }
+
+            ChildData data = awaitInitialData(znode, initialData, deadline, timeoutMillis);
+            if (null == data) {
+                handleResourceNotFound(bootstrap);
+            } else if (null != data.getData()) {
+                loadProperties(source, znode, data.getData(), bootstrap.charset);
+                if (null != data.getStat()) {
+                    metrics.znode(zkServer, znode).applied(data.getStat().getVersion(), data.getStat().getMzxid());
+                }
+                if (null != snapshotStore) {
+                    snapshotStore.save(zkServer, znode, data);
                 }
             }
         }
+
+        for (ZnodeBootstrap bootstrap : bootstraps) {
+            if (null != bootstrap.appliedSnapshot) {
+                ((PropertiesZookeeperWatcher) bootstrap.watcher).startPublishing(bootstrap.appliedSnapshot);
+            } else {
+                bootstrap.watcher.startPublishing();
+            }
+        }
+    }
+
+    private <T> T awaitInitialData(String znode, CompletableFuture<T> initialData, long deadline, long timeoutMillis)
+            throws BeanDefinitionStoreException {
+        try {
+            return initialData.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            throw new BeanDefinitionStoreException("Timed out after [" + timeoutMillis
+                    + "] ms reading configuration resource [" + znode + "]", ex);
+        } catch (ExecutionException ex) {
+            throw new BeanDefinitionStoreException(
+                    "Failed to resolve configuration resource [" + znode + "]", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new BeanDefinitionStoreException(
+                    "Interrupted reading configuration resource [" + znode + "]", ex);
+        }
+    }
+
+    private void handleResourceNotFound(ZnodeBootstrap bootstrap) throws BeanDefinitionStoreException {
+        String znode = bootstrap.watcher.getZkNode();
+        // Resource not found when trying to open it
+        if (!bootstrap.ignoreResourceNotFound) {
+            throw new BeanDefinitionStoreException("Configuration resource [" + znode + "] not found");
+        }
+        if (log.isInfoEnabled()) {
+            log.warn("Properties location [" + znode + "] not resolvable: node does not exist");
+        }
+    }
+
+    /**
+     * Load the properties of the source into the resolver, tracking them as the properties of the source.
+     */
+    private void loadSource(String source, Map<String, String> properties) {
+        propertyResolver.setProperties(properties);
+        publisher.setSourceProperties(source, properties);
+    }
+
+    private void loadProperties(String source, String znode, byte[] data, Charset charset)
+            throws BeanDefinitionStoreException {
+        try {
+            byte[] decoded = ZnodePayloadCodec.decompress(data);
+            if (BinaryPropertiesTable.isBinary(ByteBuffer.wrap(decoded))) {
+                loadSource(source, BinaryPropertiesTable.wrap(ByteBuffer.wrap(decoded)).toMap());
+                return;
+            }
+            Properties properties = new Properties();
+            properties.load(new StringReader(new String(decoded, charset)));
+            Map<String, String> loaded = new HashMap<>();
+            for (String key : properties.stringPropertyNames()) {
+                loaded.put(key, properties.getProperty(key));
+            }
+            loadSource(source, loaded);
+        } catch (IOException ex) {
+            throw new BeanDefinitionStoreException(
+                    "Failed to resolve configuration resource [" + znode + "]", ex);
+        }
     }
 
+    /**
+     * Binary tables are read straight from the mapped snapshot file.
+     */
+    private void loadSnapshot(String source, String znode, ZnodeSnapshotStore.ZnodeSnapshot snapshot, Charset charset)
+            throws BeanDefinitionStoreException {
+        if (!BinaryPropertiesTable.isBinary(snapshot.getPayload())) {
+            loadProperties(source, znode, snapshot.getData(), charset);
+            return;
+        }
+        try {
+            loadSource(source, BinaryPropertiesTable.wrap(snapshot.getPayload()).toMap());
+        } catch (IOException ex) {
+            throw new BeanDefinitionStoreException(
+                    "Failed to resolve configuration resource [" + znode + "]", ex);
+        }
+    }
 
     @Override
     public boolean postProcessAfterInstantiation(final Object bean, final String beanName) throws BeansException {
+        final ReloadValueMetadata metadata = findReloadValueMetadata(bean.getClass());
+        if (metadata.isEmpty()) {
+            return true;
+        }
         if (log.isDebugEnabled()) {
             log.debug("Setting Reloadable Properties on [{}]", beanName);
         }
-        setPropertiesOnBean(bean);
+        setPropertiesOnBean(bean, metadata);
         return true;
     }
 
-    private void setPropertiesOnBean(final Object bean) {
-        ReflectionUtils.doWithFields(bean.getClass(), new ReflectionUtils.FieldCallback() {
-
-            @Override
-            public void doWith(final Field field) throws IllegalArgumentException, IllegalAccessException {
+    private ReloadValueMetadata findReloadValueMetadata(final Class<?> clazz) {
+        ReloadValueMetadata metadata = this.metadataCache.get(clazz);
+        if (null == metadata) {
+            metadata = ReloadValueMetadata.forClass(clazz, this.conversionCache);
+            this.metadataCache.putIfAbsent(clazz, metadata);
+        }
+        return metadata;
+    }
 
-                final ReloadValue annotation = field.getAnnotation(ReloadValue.class);
-                if (null != annotation) {
+    private void setPropertiesOnBean(final Object bean, final ReloadValueMetadata metadata) throws BeansException {
+        // the fields of the bean are bound at once
+        final Map<String, List<BeanPropertyHolder>> bindings = new HashMap<>();
+        for (ReloadValueMetadata.Element element : metadata.getElements()) {
+            final Field field = element.getField();
+            final String propertyValue = publisher.addPlaceholder(element.getPlaceholder());
+            try {
+                validatePropertyAvailableOrDefaultSet(bean, field, element.getAnnotation(), propertyValue);
+            } catch (final IllegalAccessException e) {
+                throw new IllegalStateException("Not allowed to access field '" + field.getName() + "': " + e);
+            }
 
-                    ReflectionUtils.makeAccessible(field);
-                    validateFieldNotFinal(bean, field);
+            if (null != propertyValue) {
+                final BeanPropertyHolder holder = createHolder(bean, field, element.getConversion());
+                final PropertyWriter writer = holder.getWriter();
 
-                    final String propertyValue = propertyResolver.resolvePlaceholders(annotation.value());
-                    validatePropertyAvailableOrDefaultSet(bean, field, annotation, propertyValue);
+                log.info("Attempting to convert and set property [{}] on field [{}] for class [{}] to type [{}]",
+                        propertyValue, field.getName(), bean.getClass().getCanonicalName(), writer.getTargetType());
 
-                    if (null != propertyValue) {
-                        log.info("Attempting to convert and set property [{}] on field [{}] for class [{}] to type [{}]",
-                                propertyValue, field.getName(), bean.getClass().getCanonicalName(), field.getType());
+                final Object convertedProperty = this.conversionCache.convertPropertyForField(
+                        element.getConversion(), field, writer.getTargetType(), propertyValue);
 
-                        final Object convertedProperty = convertPropertyForField(field, propertyValue, annotation.conversion());
+                log.info("Setting field [{}] of class [{}] with value [{}]",
+                        field.getName(), bean.getClass().getCanonicalName(), convertedProperty);
 
-                        log.info("Setting field [{}] of class [{}] with value [{}]",
-                                field.getName(), bean.getClass().getCanonicalName(), convertedProperty);
+                writer.write(convertedProperty);
 
-                        field.set(bean, convertedProperty);
+                subscribeBeanToPropertyChangedEvent(element.getPlaceholder(), holder, bindings);
+            } else {
+                log.info("Leaving field [{}] of class [{}] with default value",
+                        field.getName(), bean.getClass().getCanonicalName());
+                unsubscribeUnusedPlaceholder(element.getPlaceholder());
+            }
+        }
 
-                        subscribeBeanToPropertyChangedEvent(annotation.value(), propertyValue, new BeanPropertyHolder(bean, field));
-                    } else {
-                        log.info("Leaving field [{}] of class [{}] with default value",
-                                field.getName(), bean.getClass().getCanonicalName());
-                    }
-                }
+        synchronized (this.beanPropertySubscriptions) {
+            if (!bindings.isEmpty()) {
+                this.subscriber.bindAll(bindings);
             }
-        });
+            if (!metadata.getCallbacks().isEmpty() && this.subscribedBeans.contains(bean)) {
+                this.callbackInvoker.register(bean, metadata.getCallbacks());
+            }
+        }
     }
 
     private void validatePropertyAvailableOrDefaultSet(final Object bean, final Field field, final ReloadValue annotation, final Object propertyValue)
@@ -196,13 +553,6 @@ public class ReloadZnodePropertySupport extends InstantiationAwareBeanPostProces
         }
     }
 
-    private void validateFieldNotFinal(final Object bean, final Field field) {
-        if (Modifier.isFinal(field.getModifiers())) {
-            throw new BeanInitializationException(String.format("Unable to set field [%s] of class [%s] as is declared final", field.getName(), bean.getClass()
-                    .getCanonicalName()));
-        }
-    }
-
     private boolean fieldDoesNotHaveDefault(final Field field, final Object value) throws IllegalArgumentException, IllegalAccessException {
         try {
             return (null == field.get(value));
@@ -211,30 +561,92 @@ public class ReloadZnodePropertySupport extends InstantiationAwareBeanPostProces
         }
     }
 
-    private void subscribeBeanToPropertyChangedEvent(final String propertyName, final String propertyValue, final BeanPropertyHolder fieldProperty) {
-        this.resolvedBeanProperty.put(propertyName, propertyValue);
-        this.beanPropertySubscriptions.computeIfAbsent(propertyName, k -> new HashSet<>());
-        this.beanPropertySubscriptions.get(propertyName).add(fieldProperty);
+    private void subscribeBeanToPropertyChangedEvent(final String propertyName, final BeanPropertyHolder fieldProperty,
+                                                     final Map<String, List<BeanPropertyHolder>> bindings) {
+        synchronized (this.beanPropertySubscriptions) {
+            this.beanPropertySubscriptions.computeIfAbsent(propertyName, k -> new HashSet<>());
+            if (this.beanPropertySubscriptions.get(propertyName).add(fieldProperty)) {
+                bindings.computeIfAbsent(propertyName, k -> new ArrayList<>()).add(fieldProperty);
+            }
+            this.subscribedBeans.add(fieldProperty.getBean());
+        }
+    }
+
+    private void unsubscribeUnusedPlaceholder(final String propertyName) {
+        synchronized (this.beanPropertySubscriptions) {
+            if (!this.beanPropertySubscriptions.containsKey(propertyName)) {
+                this.publisher.removePlaceholder(propertyName);
+            }
+        }
+    }
+
+    @Override
+    public boolean requiresDestruction(final Object bean) {
+        synchronized (this.beanPropertySubscriptions) {
+            return this.subscribedBeans.contains(bean);
+        }
+    }
+
+    @Override
+    public void postProcessBeforeDestruction(final Object bean, final String beanName) throws BeansException {
+        synchronized (this.beanPropertySubscriptions) {
+            if (!this.subscribedBeans.remove(bean)) {
+                return;
+            }
+            this.callbackInvoker.unregister(bean);
+
+            Iterator<Map.Entry<String, Set<BeanPropertyHolder>>> iterator = this.beanPropertySubscriptions.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Set<BeanPropertyHolder>> entry = iterator.next();
+                entry.getValue().removeIf(holder -> {
+                    if (holder.getBean() != bean) {
+                        return false;
+                    }
+                    this.subscriber.unbind(entry.getKey(), holder);
+                    return true;
+                });
+                if (entry.getValue().isEmpty()) {
+                    iterator.remove();
+                    // None bean bound any more, stop re-resolving the placeholder on changes
+                    this.publisher.removePlaceholder(entry.getKey());
+                }
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Removed Reloadable Properties of [{}]", beanName);
+        }
+    }
+
+    private static final class ZnodeBootstrap {
+        private final ZnodeWatcher watcher;
+        // first read of a PROPERTIES node, or of the children of a KEY_PER_CHILD node
+        private final CompletableFuture<ChildData> initialData;
+        private final CompletableFuture<Map<String, String>> initialChildren;
+        private final boolean ignoreResourceNotFound;
+        private final Charset charset;
+        private ZnodeSnapshotStore.ZnodeSnapshot appliedSnapshot;
+
+        private ZnodeBootstrap(ZnodeWatcher watcher, CompletableFuture<ChildData> initialData,
+                               CompletableFuture<Map<String, String>> initialChildren,
+                               boolean ignoreResourceNotFound, Charset charset) {
+            this.watcher = watcher;
+            this.initialData = initialData;
+            this.initialChildren = initialChildren;
+            this.ignoreResourceNotFound = ignoreResourceNotFound;
+            this.charset = charset;
+        }
     }
 
     // ///////////////////////////////////
     // Utility methods for class access //
     // ///////////////////////////////////
 
-    private Object convertPropertyForField(final Field field, final Object propertyValue, final Class<? extends PropertyConversion> conversionClass) {
+    private BeanPropertyHolder createHolder(final Object bean, final Field field, final PropertyConversion conversion) {
         try {
-            PropertyConversion conversion;
-            if (conversionClass == PropertyConversion.class || conversionClass == DefaultPropertyConversion.class) {
-                conversion = DefaultPropertyConversion.getInstance();
-            } else {
-                conversion = BeanUtils.instantiateClass(conversionClass);
-            }
-
-            return conversion.convertPropertyForField(field, propertyValue);
-        } catch (final Throwable e) {
-            throw new BeanInitializationException(
-                    String.format("Unable to convert property for field [%s].  Value [%s] cannot be converted to [%s]",
-                            field.getName(), propertyValue, field.getType()), e);
+            return new BeanPropertyHolder(bean, field, conversion);
+        } catch (final IllegalStateException e) {
+            throw new BeanInitializationException(String.format("Unable to reload field [%s] of class [%s]",
+                    field.getName(), bean.getClass().getCanonicalName()), e);
         }
     }
 }
@@ -0,0 +1,262 @@
+package com.bytegen.common.reload.core;
+
+import org.springframework.util.Assert;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Compression of znode payloads, keeping large configurations below the zookeeper node size limit.
+ * <p>
+ * A compressed payload starts with the magic bytes {@code \0ZKC}, followed by one byte naming the
+ * {@link Compression}, the uncompressed length as a big-endian int, and the compressed data. Bare GZIP streams,
+ * as written by the {@code gzip} tool, are recognized by their own magic bytes. Any other payload is plain text
+ * and returned as is.
+ * <p>
+ * Instances reuse their inflaters and output buffer across payloads and are not thread-safe.
+ */
+public final class ZnodePayloadCodec {
+
+    /**
+     * Compression of a payload.
+     */
+    public enum Compression {
+        /**
+         * Deflate data in the zlib format.
+         */
+        DEFLATE(1),
+        /**
+         * A GZIP stream.
+         */
+        GZIP(2);
+
+        private final byte id;
+
+        Compression(final int id) {
+            this.id = (byte) id;
+        }
+    }
+
+    /**
+     * Maximum uncompressed length accepted, guarding against corrupted or hostile payloads.
+     */
+    public static final int MAXIMUM_PAYLOAD_LENGTH = 64 * 1024 * 1024;
+
+    private static final byte[] MAGIC = {0, 'Z', 'K', 'C'};
+    private static final int HEADER_LENGTH = MAGIC.length + 1 + 4;
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int GZIP_HEADER_LENGTH = 10;
+    private static final int GZIP_TRAILER_LENGTH = 8;
+    private static final int FHCRC = 2, FEXTRA = 4, FNAME = 8, FCOMMENT = 16;
+
+    private Inflater zlibInflater;
+    private Inflater gzipInflater;
+    private byte[] buffer = new byte[0];
+
+    /**
+     * @return whether the payload is compressed.
+     */
+    public static boolean isCompressed(final byte[] payload) {
+        return hasMagic(payload) || isGzip(payload, 0, null == payload ? 0 : payload.length);
+    }
+
+    /**
+     * Decode the payload with a new codec, for one-off reads.
+     *
+     * @return the uncompressed payload, the payload itself if not compressed.
+     */
+    public static byte[] decompress(final byte[] payload) throws IOException {
+        if (!isCompressed(payload)) {
+            return payload;
+        }
+        final ByteBuffer decoded = new ZnodePayloadCodec().decode(payload);
+        return Arrays.copyOfRange(decoded.array(), decoded.arrayOffset() + decoded.position(),
+                decoded.arrayOffset() + decoded.limit());
+    }
+
+    /**
+     * Compress the payload to be written to a znode.
+     */
+    public static byte[] compress(final byte[] payload, final Compression compression) {
+        Assert.notNull(payload, "Payload can not be null");
+        Assert.notNull(compression, "Compression can not be null");
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, payload.length / 4));
+        out.write(MAGIC, 0, MAGIC.length);
+        out.write(compression.id);
+        out.write(payload.length >>> 24);
+        out.write(payload.length >>> 16);
+        out.write(payload.length >>> 8);
+        out.write(payload.length);
+        if (compression == Compression.GZIP) {
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(payload);
+            } catch (final IOException e) {
+                throw new IllegalStateException("Unable to compress payload", e);
+            }
+        } else {
+            final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            try {
+                deflater.setInput(payload);
+                deflater.finish();
+                final byte[] chunk = new byte[8192];
+                while (!deflater.finished()) {
+                    out.write(chunk, 0, deflater.deflate(chunk));
+                }
+            } finally {
+                deflater.end();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode the payload, inflating compressed payloads into the reused buffer of this codec.
+     *
+     * @return the uncompressed payload, valid until the next call; wrapping the payload itself if not compressed.
+     * @throws ZipException if the payload is compressed but corrupted.
+     */
+    public ByteBuffer decode(final byte[] payload) throws IOException {
+        if (hasMagic(payload)) {
+            final int length = ((payload[5] & 0xff) << 24) | ((payload[6] & 0xff) << 16)
+                    | ((payload[7] & 0xff) << 8) | (payload[8] & 0xff);
+            checkLength(length);
+            if (payload[4] == Compression.DEFLATE.id) {
+                return inflate(zlibInflater(), payload, HEADER_LENGTH, payload.length - HEADER_LENGTH, length);
+            }
+            if (payload[4] == Compression.GZIP.id) {
+                return gunzip(payload, HEADER_LENGTH, payload.length - HEADER_LENGTH);
+            }
+            throw new ZipException("Unknown payload compression [" + payload[4] + "]");
+        }
+        if (isGzip(payload, 0, null == payload ? 0 : payload.length)) {
+            return gunzip(payload, 0, payload.length);
+        }
+        return ByteBuffer.wrap(payload);
+    }
+
+    private ByteBuffer gunzip(final byte[] payload, final int offset, final int length) throws IOException {
+        if (!isGzip(payload, offset, length) || length < GZIP_HEADER_LENGTH + GZIP_TRAILER_LENGTH) {
+            throw new ZipException("Not in GZIP format");
+        }
+        final int end = offset + length;
+        final int flags = payload[offset + 3] & 0xff;
+        int position = offset + GZIP_HEADER_LENGTH;
+        if ((flags & FEXTRA) != 0) {
+            if (position + 2 > end) {
+                throw new ZipException("Corrupt GZIP header");
+            }
+            position += 2 + ((payload[position] & 0xff) | ((payload[position + 1] & 0xff) << 8));
+        }
+        if ((flags & FNAME) != 0) {
+            position = skipZeroTerminated(payload, position, end);
+        }
+        if ((flags & FCOMMENT) != 0) {
+            position = skipZeroTerminated(payload, position, end);
+        }
+        if ((flags & FHCRC) != 0) {
+            position += 2;
+        }
+        final int trailer = end - GZIP_TRAILER_LENGTH;
+        if (position > trailer) {
+            throw new ZipException("Corrupt GZIP header");
+        }
+
+        final long crc = littleEndianInt(payload, trailer) & 0xffffffffL;
+        final int size = littleEndianInt(payload, trailer + 4);
+        checkLength(size);
+
+        final ByteBuffer inflated = inflate(gzipInflater(), payload, position, trailer - position, size);
+        final CRC32 checksum = new CRC32();
+        checksum.update(inflated.array(), 0, inflated.limit());
+        if (checksum.getValue() != crc) {
+            throw new ZipException("Corrupt GZIP trailer");
+        }
+        return inflated;
+    }
+
+    private ByteBuffer inflate(final Inflater inflater, final byte[] payload, final int offset, final int length,
+                               final int inflatedLength) throws IOException {
+        // one spare byte, so payloads inflating to more than their declared length are detected
+        if (this.buffer.length < inflatedLength + 1) {
+            this.buffer = new byte[inflatedLength + 1];
+        }
+        inflater.reset();
+        inflater.setInput(payload, offset, length);
+        try {
+            int inflated = 0;
+            while (!inflater.finished() && inflated <= inflatedLength) {
+                final int count = inflater.inflate(this.buffer, inflated, inflatedLength + 1 - inflated);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += count;
+            }
+            if (inflated != inflatedLength || !inflater.finished()) {
+                throw new ZipException("Compressed payload does not match its length [" + inflatedLength + "]");
+            }
+        } catch (final DataFormatException e) {
+            throw new ZipException("Corrupt compressed payload: " + e.getMessage());
+        }
+        return ByteBuffer.wrap(this.buffer, 0, inflatedLength);
+    }
+
+    private Inflater zlibInflater() {
+        if (null == this.zlibInflater) {
+            this.zlibInflater = new Inflater();
+        }
+        return this.zlibInflater;
+    }
+
+    private Inflater gzipInflater() {
+        if (null == this.gzipInflater) {
+            this.gzipInflater = new Inflater(true);
+        }
+        return this.gzipInflater;
+    }
+
+    private static boolean hasMagic(final byte[] payload) {
+        if (null == payload || payload.length < HEADER_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (payload[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isGzip(final byte[] payload, final int offset, final int length) {
+        return length >= 2 && ((payload[offset] & 0xff) | ((payload[offset + 1] & 0xff) << 8)) == GZIP_MAGIC;
+    }
+
+    private static int skipZeroTerminated(final byte[] payload, int position, final int end) throws ZipException {
+        while (position < end && payload[position] != 0) {
+            position++;
+        }
+        if (position >= end) {
+            throw new ZipException("Corrupt GZIP header");
+        }
+        return position + 1;
+    }
+
+    private static int littleEndianInt(final byte[] payload, final int offset) {
+        return (payload[offset] & 0xff) | ((payload[offset + 1] & 0xff) << 8)
+                | ((payload[offset + 2] & 0xff) << 16) | ((payload[offset + 3] & 0xff) << 24);
+    }
+
+    private static void checkLength(final int length) throws ZipException {
+        if (length < 0 || length > MAXIMUM_PAYLOAD_LENGTH) {
+            throw new ZipException("Invalid uncompressed payload length [" + length + "]");
+        }
+    }
+}
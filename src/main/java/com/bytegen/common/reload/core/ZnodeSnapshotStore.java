@@ -0,0 +1,268 @@
+package com.bytegen.common.reload.core;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.zookeeper.data.Stat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Local file copies of the applied znode payloads, one file per zookeeper server and node.
+ * <p>
+ * Files are replaced atomically by writing a temporary file first, and carry a CRC32 checksum of the payload
+ * along with the version and modification zxid of the node, so a torn or corrupted file is never loaded.
+ * Files are memory-mapped on load, the payload is copied only when read as a {@code byte[]}.
+ * <p>
+ * {@link #saveAsync Asynchronous saves} are written by an own daemon thread created on the first save, only the latest
+ * payload of a node is written if the node is saved again before the thread got to it.
+ */
+public class ZnodeSnapshotStore {
+    private static final Logger log = LoggerFactory.getLogger(ZnodeSnapshotStore.class);
+
+    private static final int MAGIC = 0x5A4B534E; // "ZKSN"
+    private static final int FORMAT_VERSION = 1;
+    // magic, format version, node version, mzxid, checksum, payload length
+    private static final int HEADER_LENGTH = 4 + 4 + 4 + 8 + 8 + 4;
+
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000L;
+
+    private final Path directory;
+    // snapshot file -> latest data not written yet
+    private final ConcurrentMap<Path, ChildData> pendingSaves = new ConcurrentHashMap<>();
+    // guarded by this
+    private ExecutorService writer;
+    private boolean shutdown;
+
+    public ZnodeSnapshotStore(final Path directory) {
+        Assert.notNull(directory, "Snapshot directory can not be null");
+        this.directory = directory;
+    }
+
+    public Path getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * Load the snapshot of the node.
+     *
+     * @return the snapshot, or {@code null} if none stored or the stored file is not valid.
+     */
+    public ZnodeSnapshot load(final String zkServer, final String zkNode) {
+        final Path file = snapshotFile(zkServer, zkNode);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < HEADER_LENGTH) {
+                log.warn("Ignoring truncated znode snapshot [{}]", file);
+                return null;
+            }
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                log.warn("Ignoring znode snapshot [{}] of unknown format", file);
+                return null;
+            }
+            final int version = buffer.getInt();
+            final long mzxid = buffer.getLong();
+            final long checksum = buffer.getLong();
+            final int length = buffer.getInt();
+            if (length < 0 || length != size - HEADER_LENGTH) {
+                log.warn("Ignoring truncated znode snapshot [{}]", file);
+                return null;
+            }
+
+            final CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate());
+            if (crc.getValue() != checksum) {
+                log.warn("Ignoring znode snapshot [{}] with invalid checksum", file);
+                return null;
+            }
+            // the mapping stays valid once the channel is closed
+            return new ZnodeSnapshot(buffer.slice().asReadOnlyBuffer(), version, mzxid);
+        } catch (final NoSuchFileException e) {
+            return null;
+        } catch (final IOException e) {
+            log.warn("Unable to load znode snapshot [" + file + "]", e);
+            return null;
+        }
+    }
+
+    /**
+     * Store the node data, replacing the previous snapshot of the node atomically. Failures are logged only,
+     * the snapshot is a fallback and must never fail an update.
+     */
+    public void save(final String zkServer, final String zkNode, final ChildData data) {
+        if (null == data || null == data.getData()) {
+            return;
+        }
+        final Stat stat = data.getStat();
+        final byte[] payload = data.getData();
+        final CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION)
+                .putInt(null == stat ? -1 : stat.getVersion())
+                .putLong(null == stat ? -1L : stat.getMzxid())
+                .putLong(crc.getValue())
+                .putInt(payload.length)
+                .flip();
+
+        final Path file = snapshotFile(zkServer, zkNode);
+        Path temp = null;
+        try {
+            Files.createDirectories(this.directory);
+            temp = Files.createTempFile(this.directory, file.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                final ByteBuffer body = ByteBuffer.wrap(payload);
+                while (header.hasRemaining() || body.hasRemaining()) {
+                    channel.write(new ByteBuffer[]{header, body});
+                }
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            temp = null;
+            log.debug("Stored znode snapshot [{}] of version [{}]", file, null == stat ? -1 : stat.getVersion());
+        } catch (final IOException e) {
+            log.warn("Unable to store znode snapshot [" + file + "]", e);
+        } finally {
+            if (null != temp) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (final IOException e) {
+                    log.debug("Unable to delete temporary snapshot [{}]", temp);
+                }
+            }
+        }
+    }
+
+    /**
+     * Store the node data in the background, see {@link #save}. Never blocks on the file system.
+     */
+    public void saveAsync(final String zkServer, final String zkNode, final ChildData data) {
+        if (null == data || null == data.getData()) {
+            return;
+        }
+        final Path file = snapshotFile(zkServer, zkNode);
+        if (null != this.pendingSaves.put(file, data)) {
+            // the queued save of the node writes the latest data
+            return;
+        }
+        try {
+            writer().execute(() -> {
+                final ChildData latest = this.pendingSaves.remove(file);
+                if (null != latest) {
+                    save(zkServer, zkNode, latest);
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            this.pendingSaves.remove(file);
+            log.warn("Unable to store znode snapshot [{}]: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Stop the writer thread once the pending saves are written, waiting for them for a few seconds at most.
+     */
+    public void shutdown() {
+        final ExecutorService writer;
+        synchronized (this) {
+            this.shutdown = true;
+            writer = this.writer;
+        }
+        if (null == writer) {
+            return;
+        }
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                log.warn("Znode snapshots in [{}] not stored within [{}] ms", this.directory, SHUTDOWN_TIMEOUT_MILLIS);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized ExecutorService writer() {
+        if (this.shutdown) {
+            throw new RejectedExecutionException("Znode snapshot store is shut down");
+        }
+        if (null == this.writer) {
+            this.writer = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat("auto-reload-snapshot-%d").setDaemon(true).build());
+        }
+        return this.writer;
+    }
+
+    Path snapshotFile(final String zkServer, final String zkNode) {
+        final String node = zkNode.replaceAll("[^A-Za-z0-9._-]", "_");
+        return this.directory.resolve(node + "-" + Integer.toHexString(zkServer.hashCode()) + ".snapshot");
+    }
+
+    /**
+     * Payload of a node as stored, with the version and the modification zxid of the node when stored.
+     */
+    public static final class ZnodeSnapshot {
+        private final ByteBuffer payload;
+        private final int version;
+        private final long mzxid;
+        private volatile byte[] data;
+
+        private ZnodeSnapshot(final ByteBuffer payload, final int version, final long mzxid) {
+            this.payload = payload;
+            this.version = version;
+            this.mzxid = mzxid;
+        }
+
+        /**
+         * @return the payload copied from the mapped file on first call.
+         */
+        public byte[] getData() {
+            byte[] copy = this.data;
+            if (null == copy) {
+                copy = new byte[this.payload.remaining()];
+                this.payload.duplicate().get(copy);
+                this.data = copy;
+            }
+            return copy;
+        }
+
+        /**
+         * @return read-only view of the payload in the mapped file, without copying.
+         */
+        public ByteBuffer getPayload() {
+            return this.payload.duplicate();
+        }
+
+        public int getVersion() {
+            return this.version;
+        }
+
+        public long getMzxid() {
+            return this.mzxid;
+        }
+
+        /**
+         * @return whether the node data was stored from the given node state.
+         */
+        public boolean isSameVersion(final Stat stat) {
+            return null != stat && stat.getVersion() == this.version && stat.getMzxid() == this.mzxid;
+        }
+    }
+}
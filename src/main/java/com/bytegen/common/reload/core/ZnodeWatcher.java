@@ -0,0 +1,25 @@
+package com.bytegen.common.reload.core;
+
+/**
+ * Watcher of the properties of one configured zookeeper node, publishing their changes.
+ */
+public interface ZnodeWatcher {
+
+    String getZkServer();
+
+    String getZkNode();
+
+    /**
+     * @return the name the changes of the node are published with.
+     */
+    default String getSource() {
+        return getZkServer() + getZkNode();
+    }
+
+    /**
+     * Publish node updates from now on, the data of the first read is expected to be loaded by the caller.
+     */
+    void startPublishing();
+
+    void stop();
+}
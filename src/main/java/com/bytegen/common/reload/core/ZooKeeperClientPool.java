@@ -0,0 +1,216 @@
+package com.bytegen.common.reload.core;
+
+import org.apache.curator.RetryPolicy;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * JVM wide registry of zookeeper clients, one client and hence one session per server, auth and timeouts.
+ * <p>
+ * Every user {@link #acquire acquires} a {@link Lease} and closes it once done, the client is started by the first
+ * lease and closed with the last one. Acquiring and releasing are atomic per client, concurrent start ups never
+ * create duplicate clients.
+ */
+public final class ZooKeeperClientPool implements ZooKeeperClientPoolMBean {
+    private static final Logger log = LoggerFactory.getLogger(ZooKeeperClientPool.class);
+
+    public static final int DEFAULT_SESSION_TIMEOUT_MILLIS = 30000;
+    public static final int DEFAULT_CONNECTION_TIMEOUT_MILLIS = 30000;
+
+    private static final RetryPolicy DEFAULT_RETRY_POLICY = new ExponentialBackoffRetry(1000, 5);
+    private static final ZooKeeperClientPool INSTANCE = new ZooKeeperClientPool();
+
+    private final ConcurrentMap<ClientKey, PooledClient> clients = new ConcurrentHashMap<>();
+
+    private ZooKeeperClientPool() {
+    }
+
+    public static ZooKeeperClientPool getInstance() {
+        return INSTANCE;
+    }
+
+    public Lease acquire(final String server, final String auth) {
+        return acquire(server, auth, DEFAULT_SESSION_TIMEOUT_MILLIS, DEFAULT_CONNECTION_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Acquire a lease of the client of the server, auth and timeouts, starting the client if not leased yet.
+     *
+     * @param auth digest auth of the client, {@code null} for none.
+     */
+    public Lease acquire(final String server, final String auth, final int sessionTimeoutMillis,
+                         final int connectionTimeoutMillis) {
+        Assert.hasText(server, "ZooKeeper server must not be blank");
+
+        final ClientKey key = new ClientKey(server, auth, sessionTimeoutMillis, connectionTimeoutMillis);
+        final PooledClient pooled = this.clients.compute(key, (k, existing) -> {
+            final PooledClient client = null == existing ? new PooledClient(newClient(k)) : existing;
+            client.references++;
+            return client;
+        });
+        return new Lease(key, pooled);
+    }
+
+    /**
+     * @return number of open clients, each holding one zookeeper session.
+     */
+    @Override
+    public int getOpenClients() {
+        return this.clients.size();
+    }
+
+    /**
+     * @return number of leases held per open client, keyed by server and timeouts; auths are not exposed.
+     */
+    @Override
+    public Map<String, Integer> getLeases() {
+        final Map<String, Integer> leases = new LinkedHashMap<>();
+        this.clients.forEach((key, pooled) -> leases.merge(key.toString(), pooled.references, Integer::sum));
+        return leases;
+    }
+
+    private void release(final ClientKey key, final PooledClient pooled) {
+        final boolean[] last = new boolean[1];
+        this.clients.computeIfPresent(key, (k, existing) -> {
+            if (existing != pooled) {
+                return existing;
+            }
+            if (--existing.references > 0) {
+                return existing;
+            }
+            last[0] = true;
+            return null;
+        });
+        if (last[0]) {
+            // closed outside of the map, closing the session may block for a while
+            pooled.client.close();
+            log.info("ZooKeeper client closed: server [{}]", key.server);
+        }
+    }
+
+    private static CuratorFramework newClient(final ClientKey key) {
+        CuratorFrameworkFactory.Builder builder = CuratorFrameworkFactory.builder().connectString(key.server)
+                .sessionTimeoutMs(key.sessionTimeoutMillis)
+                .connectionTimeoutMs(key.connectionTimeoutMillis)
+                .retryPolicy(DEFAULT_RETRY_POLICY);
+        if (null != key.auth) {
+            builder.authorization("digest", key.auth.getBytes(StandardCharsets.UTF_8));
+        }
+
+        final String server = key.server;
+        CuratorFramework client = builder.build();
+        client.getConnectionStateListenable().addListener((client1, newState) -> {
+            switch (newState) {
+                case CONNECTED:
+                    log.info("connected to zookeeper: " + server);
+                    break;
+                case SUSPENDED:
+                    log.warn("suspended to zookeeper: " + server);
+                    break;
+                case RECONNECTED:
+                    log.info("reconnected to zookeeper: " + server);
+                    break;
+                case LOST:
+                    log.error("lose connection to zookeeper: " + server);
+                    break;
+                case READ_ONLY:
+                    log.info("read only model to zookeeper: " + server);
+                    break;
+            }
+        });
+        client.start();
+        log.info("ZooKeeper client started: server [{}]", server);
+        return client;
+    }
+
+    /**
+     * Reference to a pooled client, {@link #close() closing} the lease releases the reference once.
+     */
+    public final class Lease implements AutoCloseable {
+        private final ClientKey key;
+        private final PooledClient pooled;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Lease(final ClientKey key, final PooledClient pooled) {
+            this.key = key;
+            this.pooled = pooled;
+        }
+
+        /**
+         * @return the client, not to be closed by the caller.
+         */
+        public CuratorFramework getClient() {
+            return this.pooled.client;
+        }
+
+        @Override
+        public void close() {
+            if (this.released.compareAndSet(false, true)) {
+                release(this.key, this.pooled);
+            }
+        }
+    }
+
+    private static final class PooledClient {
+        private final CuratorFramework client;
+        // guarded by the compute functions of the pool map
+        private int references;
+
+        private PooledClient(final CuratorFramework client) {
+            this.client = client;
+        }
+    }
+
+    private static final class ClientKey {
+        private final String server;
+        private final String auth;
+        private final int sessionTimeoutMillis;
+        private final int connectionTimeoutMillis;
+
+        private ClientKey(final String server, final String auth, final int sessionTimeoutMillis,
+                          final int connectionTimeoutMillis) {
+            this.server = server;
+            this.auth = auth;
+            this.sessionTimeoutMillis = sessionTimeoutMillis;
+            this.connectionTimeoutMillis = connectionTimeoutMillis;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ClientKey)) {
+                return false;
+            }
+            final ClientKey that = (ClientKey) o;
+            return this.sessionTimeoutMillis == that.sessionTimeoutMillis
+                    && this.connectionTimeoutMillis == that.connectionTimeoutMillis
+                    && this.server.equals(that.server)
+                    && Objects.equals(this.auth, that.auth);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.server, this.auth, this.sessionTimeoutMillis, this.connectionTimeoutMillis);
+        }
+
+        @Override
+        public String toString() {
+            return this.server + "/session=" + this.sessionTimeoutMillis + "ms/connection="
+                    + this.connectionTimeoutMillis + "ms";
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.bytegen.common.reload.core;
+
+import java.util.Map;
+
+/**
+ * JMX view of the {@link ZooKeeperClientPool} of the JVM.
+ */
+public interface ZooKeeperClientPoolMBean {
+
+    int getOpenClients();
+
+    Map<String, Integer> getLeases();
+}
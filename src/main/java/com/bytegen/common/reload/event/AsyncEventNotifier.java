@@ -0,0 +1,551 @@
+package com.bytegen.common.reload.event;
+
+import com.bytegen.common.reload.bean.PropertyChangeBatch;
+import com.bytegen.common.reload.bean.PropertyChangedEvent;
+import com.bytegen.common.reload.metrics.ReloadMetrics;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link EventNotifier} dispatching events to the subscribers asynchronously, so slow subscribers or conversions
+ * never run on the zookeeper event thread.
+ * <p>
+ * Events are partitioned by property name into lanes, each lane is a bounded queue drained by one task at a time
+ * on the executor, hence events of the same property are always delivered in posting order. Once a lane is full
+ * the {@link BackpressurePolicy} decides what happens to a newly posted event. Dequeued events are delivered
+ * through a {@link DispatchTable} to the handlers bound to their property name.
+ * <p>
+ * A {@link PropertyChangeBatch} is partitioned by the {@link PropertyChangeHandler#getTarget() targets} of the
+ * handlers bound when posting instead, so all changes of one target, e.g. all fields of one bean, are applied on the
+ * same lane one after another and the target is {@link PropertyChangeHandler#onTargetChanged notified} once per
+ * batch. The registered subscribers receive the whole batch on the first lane. Events of a batch are never
+ * reordered with the batches posted before or after; under backpressure a batch is either coalesced into the batch
+ * queued last on each of its lanes or dropped as a whole, never in part.
+ */
+public class AsyncEventNotifier implements KeyedEventNotifier, AsyncEventNotifierMBean {
+    private static final Logger log = LoggerFactory.getLogger(AsyncEventNotifier.class);
+
+    /**
+     * What to do with a posted event while its lane is full.
+     */
+    public enum BackpressurePolicy {
+        /**
+         * Block the posting thread until the lane has room.
+         */
+        BLOCK,
+        /**
+         * Merge the event into the pending event of the same property, keeping the old value of the pending one;
+         * block as {@link #BLOCK} if no event of the property is pending. A batch is merged into the batch queued
+         * last on the lane in the same way, per property, and blocks as {@link #BLOCK} if the lane ends with an event.
+         */
+        COALESCE,
+        /**
+         * Drop the event and count it. A batch is dropped as a whole on all of its lanes if any of them is full.
+         */
+        DROP
+    }
+
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+    private final BackpressurePolicy backpressurePolicy;
+    private final Lane[] lanes;
+    private final DispatchTable table;
+
+    private final AtomicLong dispatchedEvents = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicLong coalescedEvents = new AtomicLong();
+    private final AtomicLong failedEvents = new AtomicLong();
+    private volatile long lastDispatchLagNanos;
+    private final AtomicLong maxDispatchLagNanos = new AtomicLong();
+
+    /**
+     * Create a notifier dispatching on its own daemon threads, one thread per lane.
+     */
+    public AsyncEventNotifier(final int lanes, final int queueCapacity, final BackpressurePolicy backpressurePolicy) {
+        this(null, lanes, queueCapacity, backpressurePolicy);
+    }
+
+    /**
+     * @param executor           executor the lanes are drained on, or {@code null} to create one thread per lane.
+     * @param lanes              number of lanes events are partitioned into by property name.
+     * @param queueCapacity      capacity of each lane.
+     * @param backpressurePolicy what to do with posted events while a lane is full.
+     */
+    public AsyncEventNotifier(final Executor executor, final int lanes, final int queueCapacity,
+                              final BackpressurePolicy backpressurePolicy) {
+        this(executor, lanes, queueCapacity, backpressurePolicy, new ReloadMetrics());
+    }
+
+    /**
+     * @param metrics metrics to record the dispatch of the events to.
+     */
+    public AsyncEventNotifier(final Executor executor, final int lanes, final int queueCapacity,
+                              final BackpressurePolicy backpressurePolicy, final ReloadMetrics metrics) {
+        Assert.isTrue(lanes > 0, "At least one lane is required");
+        Assert.isTrue(queueCapacity > 0, "Queue capacity must be positive");
+        Assert.notNull(backpressurePolicy, "Backpressure policy can not be null");
+
+        if (null == executor) {
+            this.ownedExecutor = Executors.newFixedThreadPool(lanes, new ThreadFactoryBuilder()
+                    .setNameFormat("auto-reload-dispatch-%d").setDaemon(true).build());
+            this.executor = this.ownedExecutor;
+        } else {
+            this.ownedExecutor = null;
+            this.executor = executor;
+        }
+        this.backpressurePolicy = backpressurePolicy;
+        this.table = new DispatchTable(metrics);
+        this.lanes = new Lane[lanes];
+        for (int i = 0; i < lanes; i++) {
+            this.lanes[i] = new Lane(i, queueCapacity);
+        }
+    }
+
+    @Override
+    public void post(final PropertyChangedEvent event) {
+        Assert.notNull(event, "Event can not be null");
+
+        this.lanes[laneOf(event.getPropertyName().hashCode())].offer(new Pending(event, null, null, true));
+    }
+
+    @Override
+    public void post(final PropertyChangeBatch batch) {
+        Assert.notNull(batch, "Batch can not be null");
+        if (batch.getEvents().isEmpty()) {
+            return;
+        }
+        if (this.lanes.length == 1) {
+            this.lanes[0].offer(new Pending(null, batch, null, true));
+            return;
+        }
+
+        final List<List<DispatchTable.TargetChanges>> split = new ArrayList<>(this.lanes.length);
+        for (int i = 0; i < this.lanes.length; i++) {
+            split.add(null);
+        }
+        for (DispatchTable.TargetChanges changes : this.table.group(batch)) {
+            final int lane = laneOf(System.identityHashCode(changes.getTarget()));
+            if (null == split.get(lane)) {
+                split.set(lane, new ArrayList<>());
+            }
+            split.get(lane).add(changes);
+        }
+        // the first lane delivers to the subscribers and accounts for the whole batch
+        final Pending[] pending = new Pending[this.lanes.length];
+        pending[0] = new Pending(null, batch, null == split.get(0) ? Collections.emptyList() : split.get(0), true);
+        for (int i = 1; i < this.lanes.length; i++) {
+            if (null != split.get(i)) {
+                pending[i] = new Pending(null, batch, split.get(i), false);
+            }
+        }
+        if (this.backpressurePolicy == BackpressurePolicy.DROP) {
+            offerAll(pending);
+            return;
+        }
+        for (int i = 0; i < this.lanes.length; i++) {
+            if (null != pending[i]) {
+                this.lanes[i].offer(pending[i]);
+            }
+        }
+    }
+
+    /**
+     * Queue the parts of a batch on their lanes, or drop the batch as a whole if any of the lanes is full.
+     */
+    private void offerAll(final Pending[] pending) {
+        final boolean[] schedule = new boolean[this.lanes.length];
+        // lanes are locked in index order, never more than one by any other path
+        int locked = 0;
+        try {
+            for (; locked < this.lanes.length; locked++) {
+                if (null != pending[locked]) {
+                    this.lanes[locked].lock.lock();
+                }
+            }
+            for (int i = 0; i < this.lanes.length; i++) {
+                if (null != pending[i] && this.lanes[i].isFull()) {
+                    this.droppedEvents.addAndGet(pending[0].size());
+                    log.warn("Dispatch queue full, dropped property changes for [{}]", pending[0].describe());
+                    return;
+                }
+            }
+            for (int i = 0; i < this.lanes.length; i++) {
+                if (null != pending[i]) {
+                    schedule[i] = this.lanes[i].enqueue(pending[i]);
+                }
+            }
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                if (null != pending[i]) {
+                    this.lanes[i].lock.unlock();
+                }
+            }
+        }
+        for (int i = 0; i < this.lanes.length; i++) {
+            if (schedule[i]) {
+                this.lanes[i].schedule();
+            }
+        }
+    }
+
+    private int laneOf(final int hash) {
+        return ((hash ^ (hash >>> 16)) & 0x7fffffff) % this.lanes.length;
+    }
+
+    /**
+     * @return the changes of the targets of the batch dispatched on the lane.
+     */
+    private List<DispatchTable.TargetChanges> targetsOf(final PropertyChangeBatch batch, final int lane) {
+        final List<DispatchTable.TargetChanges> targets = new ArrayList<>();
+        for (DispatchTable.TargetChanges changes : this.table.group(batch)) {
+            if (laneOf(System.identityHashCode(changes.getTarget())) == lane) {
+                targets.add(changes);
+            }
+        }
+        return targets;
+    }
+
+    @Override
+    public void bind(final String propertyName, final PropertyChangeHandler handler) {
+        this.table.bind(propertyName, handler);
+    }
+
+    @Override
+    public void bindAll(final Map<String, ? extends Collection<PropertyChangeHandler>> handlers) {
+        this.table.bindAll(handlers);
+    }
+
+    @Override
+    public void unbind(final String propertyName, final PropertyChangeHandler handler) {
+        this.table.unbind(propertyName, handler);
+    }
+
+    @Override
+    public void unregister(final EventSubscriber eventSubscriber) {
+        this.table.unregister(eventSubscriber);
+    }
+
+    @Override
+    public void register(final EventSubscriber eventSubscriber) {
+        this.table.register(eventSubscriber);
+    }
+
+    /**
+     * Stop the dispatch threads if created by this notifier, pending events are discarded.
+     */
+    public void shutdown() {
+        if (null != this.ownedExecutor) {
+            this.ownedExecutor.shutdownNow();
+        }
+    }
+
+    public BackpressurePolicy getBackpressurePolicy() {
+        return this.backpressurePolicy;
+    }
+
+    /**
+     * @return number of events waiting for dispatch over all lanes.
+     */
+    @Override
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Lane lane : this.lanes) {
+            depth += lane.size();
+        }
+        return depth;
+    }
+
+    @Override
+    public long getDispatchedEvents() {
+        return this.dispatchedEvents.get();
+    }
+
+    @Override
+    public long getDroppedEvents() {
+        return this.droppedEvents.get();
+    }
+
+    @Override
+    public long getCoalescedEvents() {
+        return this.coalescedEvents.get();
+    }
+
+    /**
+     * @return number of events and batches at least one handler or subscriber failed on.
+     */
+    @Override
+    public long getFailedEvents() {
+        return this.failedEvents.get();
+    }
+
+    /**
+     * @return time the last dispatched event waited in its lane, in milliseconds.
+     */
+    @Override
+    public long getLastDispatchLagMillis() {
+        return this.lastDispatchLagNanos / 1_000_000L;
+    }
+
+    /**
+     * @return longest time an event waited in its lane, in milliseconds.
+     */
+    @Override
+    public long getMaxDispatchLagMillis() {
+        return this.maxDispatchLagNanos.get() / 1_000_000L;
+    }
+
+    private void dispatch(final Pending pending) {
+        final long lag = System.nanoTime() - pending.enqueuedNanos;
+        this.lastDispatchLagNanos = lag;
+        this.maxDispatchLagNanos.accumulateAndGet(lag, Math::max);
+
+        if (null != pending.batch) {
+            if (dispatchBatch(pending)) {
+                this.failedEvents.incrementAndGet();
+            }
+            if (pending.primary) {
+                this.dispatchedEvents.addAndGet(pending.batch.size());
+            }
+            return;
+        }
+        if (this.table.deliver(pending.event)) {
+            this.failedEvents.incrementAndGet();
+        }
+        this.dispatchedEvents.incrementAndGet();
+    }
+
+    private boolean dispatchBatch(final Pending pending) {
+        if (null == pending.targets) {
+            return this.table.deliver(pending.batch);
+        }
+        final long dispatchStart = System.nanoTime();
+        boolean failed = this.table.deliver(pending.batch, pending.targets);
+        if (pending.primary) {
+            failed |= this.table.deliverToSubscribers(pending.batch);
+        }
+        this.table.recordDispatch(dispatchStart);
+        return failed;
+    }
+
+    /**
+     * Either a single event or a batch, the latter with the changes of the targets of its lane if partitioned.
+     * Modified by coalescing only while queued, under the lock of the lane.
+     */
+    private static final class Pending {
+        private PropertyChangedEvent event;
+        private PropertyChangeBatch batch;
+        // grouped by target at posting, null to group at dispatch
+        private List<DispatchTable.TargetChanges> targets;
+        // whether delivered to the subscribers and counted as dispatched
+        private final boolean primary;
+        private final long enqueuedNanos;
+
+        private Pending(final PropertyChangedEvent event, final PropertyChangeBatch batch,
+                        final List<DispatchTable.TargetChanges> targets, final boolean primary) {
+            this.event = event;
+            this.batch = batch;
+            this.targets = targets;
+            this.primary = primary;
+            this.enqueuedNanos = System.nanoTime();
+        }
+
+        private String describe() {
+            return null == this.batch ? this.event.getPropertyName() : "epoch " + this.batch.getEpoch();
+        }
+
+        private int size() {
+            return null == this.batch ? 1 : this.batch.size();
+        }
+    }
+
+    /**
+     * Bounded queue drained by at most one task at a time, which keeps the events in order.
+     */
+    private final class Lane implements Runnable {
+        private final int index;
+        private final int capacity;
+        private final ArrayDeque<Pending> queue;
+        // property name -> latest pending event, used for coalescing
+        private final Map<String, Pending> pendingByName = new HashMap<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notFull = lock.newCondition();
+        private boolean scheduled;
+
+        private Lane(final int index, final int capacity) {
+            this.index = index;
+            this.capacity = capacity;
+            this.queue = new ArrayDeque<>(Math.min(capacity, 64));
+        }
+
+        private int size() {
+            lock.lock();
+            try {
+                return queue.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean isFull() {
+            return queue.size() >= capacity;
+        }
+
+        private void offer(final Pending pending) {
+            final boolean schedule;
+            lock.lock();
+            try {
+                while (isFull()) {
+                    if (backpressurePolicy == BackpressurePolicy.DROP) {
+                        droppedEvents.addAndGet(pending.size());
+                        log.warn("Dispatch queue full, dropped property changes for [{}]", pending.describe());
+                        return;
+                    }
+                    if (backpressurePolicy == BackpressurePolicy.COALESCE
+                            && (null == pending.event ? coalesce(pending) : coalesce(pending.event))) {
+                        return;
+                    }
+                    notFull.awaitUninterruptibly();
+                }
+                schedule = enqueue(pending);
+            } finally {
+                lock.unlock();
+            }
+
+            if (schedule) {
+                schedule();
+            }
+        }
+
+        /**
+         * Queue the pending event or batch, the caller holds the lock.
+         *
+         * @return whether the lane must be scheduled.
+         */
+        private boolean enqueue(final Pending pending) {
+            queue.addLast(pending);
+            if (null != pending.event) {
+                pendingByName.put(pending.event.getPropertyName(), pending);
+            } else {
+                // later events must not be coalesced into events queued before the batch
+                for (PropertyChangedEvent event : pending.batch.getEvents()) {
+                    pendingByName.remove(event.getPropertyName());
+                }
+            }
+            final boolean schedule = !scheduled;
+            scheduled = true;
+            return schedule;
+        }
+
+        private void schedule() {
+            try {
+                executor.execute(this);
+            } catch (final RejectedExecutionException e) {
+                log.error("Dispatch executor rejected, dispatching property changes on the posting thread", e);
+                run();
+            }
+        }
+
+        /**
+         * Merge the batch into the batch queued last, per property keeping the old value of the queued change and the
+         * changed keys of both.
+         */
+        private boolean coalesce(final Pending pending) {
+            final Pending last = queue.peekLast();
+            if (null == last || null == last.batch) {
+                return false;
+            }
+            final Map<String, PropertyChangedEvent> merged = new LinkedHashMap<>();
+            final Map<String, Set<String>> placeholderKeys = new HashMap<>();
+            final Set<String> unknownKeys = new HashSet<>();
+            for (PropertyChangedEvent event : last.batch.getEvents()) {
+                merged.put(event.getPropertyName(), event);
+                mergeKeys(last.batch, event, placeholderKeys, unknownKeys);
+            }
+            int coalesced = 0;
+            for (PropertyChangedEvent event : pending.batch.getEvents()) {
+                mergeKeys(pending.batch, event, placeholderKeys, unknownKeys);
+                final PropertyChangedEvent queued = merged.get(event.getPropertyName());
+                if (null != queued) {
+                    coalesced++;
+                    event = new PropertyChangedEvent(event.getPropertyName(),
+                            queued.getOldValue(), event.getNewValue(), event.getEpoch());
+                }
+                merged.put(event.getPropertyName(), event);
+            }
+            final Set<String> changedKeys = new HashSet<>(last.batch.getChangedKeys());
+            changedKeys.addAll(pending.batch.getChangedKeys());
+            placeholderKeys.keySet().removeAll(unknownKeys);
+
+            last.batch = new PropertyChangeBatch(pending.batch.getEpoch(), changedKeys, new ArrayList<>(merged.values()),
+                    placeholderKeys);
+            if (null != last.targets) {
+                last.targets = targetsOf(last.batch, index);
+            }
+            coalescedEvents.addAndGet(coalesced);
+            return true;
+        }
+
+        private void mergeKeys(final PropertyChangeBatch batch, final PropertyChangedEvent event,
+                               final Map<String, Set<String>> placeholderKeys, final Set<String> unknownKeys) {
+            final Set<String> keys = batch.getPlaceholderKeys().get(event.getPropertyName());
+            if (null == keys) {
+                unknownKeys.add(event.getPropertyName());
+            } else {
+                placeholderKeys.computeIfAbsent(event.getPropertyName(), k -> new HashSet<>()).addAll(keys);
+            }
+        }
+
+        private boolean coalesce(final PropertyChangedEvent event) {
+            Pending pending = pendingByName.get(event.getPropertyName());
+            if (null == pending) {
+                return false;
+            }
+            pending.event = new PropertyChangedEvent(event.getPropertyName(),
+                    pending.event.getOldValue(), event.getNewValue(), event.getEpoch());
+            coalescedEvents.incrementAndGet();
+            return true;
+        }
+
+        @Override
+        public void run() {
+            for (; ; ) {
+                final Pending pending;
+                lock.lock();
+                try {
+                    pending = queue.pollFirst();
+                    if (null == pending) {
+                        scheduled = false;
+                        return;
+                    }
+                    if (null != pending.event && pendingByName.get(pending.event.getPropertyName()) == pending) {
+                        pendingByName.remove(pending.event.getPropertyName());
+                    }
+                    notFull.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                dispatch(pending);
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.bytegen.common.reload.event;
+
+/**
+ * JMX view of the dispatch counters of an {@link AsyncEventNotifier}.
+ */
+public interface AsyncEventNotifierMBean {
+
+    int getQueueDepth();
+
+    long getDispatchedEvents();
+
+    long getDroppedEvents();
+
+    long getCoalescedEvents();
+
+    long getFailedEvents();
+
+    long getLastDispatchLagMillis();
+
+    long getMaxDispatchLagMillis();
+}
@@ -0,0 +1,149 @@
+package com.bytegen.common.reload.event;
+
+import org.springframework.util.Assert;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable classification of one update of the raw properties against the properties it is applied to: the added
+ * keys, the modified keys and the removed keys, with the previous values of the modified and removed ones.
+ * <p>
+ * Unlike a {@link PropertiesDelta}, which only tells the changes of one resource to its own previous version, a
+ * change set holds real changes only: keys set to the value they already had and removals of absent keys are dropped.
+ */
+public final class ConfigChangeSet {
+
+    public static final ConfigChangeSet EMPTY = new ConfigChangeSet(Collections.emptyMap(), Collections.emptyMap(),
+            Collections.emptySet(), Collections.emptyMap());
+
+    private final Map<String, String> added;
+    private final Map<String, String> modified;
+    private final Set<String> removed;
+    private final Map<String, String> previousValues;
+    private final Set<String> changedKeys;
+
+    private ConfigChangeSet(final Map<String, String> added, final Map<String, String> modified,
+                            final Set<String> removed, final Map<String, String> previousValues) {
+        this.added = Collections.unmodifiableMap(added);
+        this.modified = Collections.unmodifiableMap(modified);
+        this.removed = Collections.unmodifiableSet(removed);
+        this.previousValues = Collections.unmodifiableMap(previousValues);
+
+        final Set<String> keys = new LinkedHashSet<>(added.size() + modified.size() + removed.size());
+        keys.addAll(added.keySet());
+        keys.addAll(modified.keySet());
+        keys.addAll(removed);
+        this.changedKeys = Collections.unmodifiableSet(keys);
+    }
+
+    /**
+     * Classify the delta against the current properties in a single pass over the delta, looking each key up once.
+     *
+     * @param current the raw properties the delta is applied to, not modified.
+     * @param delta   the update to apply.
+     */
+    public static ConfigChangeSet diff(final Map<String, String> current, final PropertiesDelta delta) {
+        Assert.notNull(current, "Current properties can not be null");
+        Assert.notNull(delta, "Delta can not be null");
+        if (delta.isEmpty()) {
+            return EMPTY;
+        }
+
+        final Map<String, String> added = new HashMap<>();
+        final Map<String, String> modified = new HashMap<>();
+        final Set<String> removed = new HashSet<>();
+        final Map<String, String> previousValues = new HashMap<>();
+
+        for (Map.Entry<String, String> property : delta.getChanged().entrySet()) {
+            final String key = property.getKey();
+            final String value = property.getValue();
+            if (null == value) {
+                continue;
+            }
+            final String previous = current.get(key);
+            if (null == previous) {
+                added.put(key, value);
+            } else if (!previous.equals(value)) {
+                modified.put(key, value);
+                previousValues.put(key, previous);
+            }
+        }
+        for (String key : delta.getRemoved()) {
+            final String previous = current.get(key);
+            if (null != previous && !delta.getChanged().containsKey(key)) {
+                removed.add(key);
+                previousValues.put(key, previous);
+            }
+        }
+
+        if (added.isEmpty() && modified.isEmpty() && removed.isEmpty()) {
+            return EMPTY;
+        }
+        return new ConfigChangeSet(added, modified, removed, previousValues);
+    }
+
+    /**
+     * @return the keys not present before, with their values.
+     */
+    public Map<String, String> getAdded() {
+        return this.added;
+    }
+
+    /**
+     * @return the keys present before with another value, with their new values.
+     */
+    public Map<String, String> getModified() {
+        return this.modified;
+    }
+
+    /**
+     * @return the keys present before and removed now.
+     */
+    public Set<String> getRemoved() {
+        return this.removed;
+    }
+
+    /**
+     * @return the value of a modified or removed key before the change, {@code null} for other keys.
+     */
+    public String getPreviousValue(final String key) {
+        return this.previousValues.get(key);
+    }
+
+    /**
+     * @return the added, modified and removed keys.
+     */
+    public Set<String> getChangedKeys() {
+        return this.changedKeys;
+    }
+
+    /**
+     * @return the change set without the removed keys, e.g. to keep the last values of removed keys.
+     */
+    public ConfigChangeSet withoutRemoved() {
+        if (this.removed.isEmpty()) {
+            return this;
+        }
+        if (this.added.isEmpty() && this.modified.isEmpty()) {
+            return EMPTY;
+        }
+        final Map<String, String> previous = new HashMap<>(this.previousValues);
+        previous.keySet().removeAll(this.removed);
+        return new ConfigChangeSet(this.added, this.modified, Collections.emptySet(), previous);
+    }
+
+    public boolean isEmpty() {
+        return this.changedKeys.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigChangeSet{added=" + this.added.keySet() + ", modified=" + this.modified.keySet()
+                + ", removed=" + this.removed + '}';
+    }
+}
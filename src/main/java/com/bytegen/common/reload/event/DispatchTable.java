@@ -0,0 +1,251 @@
+package com.bytegen.common.reload.event;
+
+import com.bytegen.common.reload.bean.PropertyChangeBatch;
+import com.bytegen.common.reload.bean.PropertyChangedEvent;
+import com.bytegen.common.reload.metrics.ReloadMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Property name indexed table of handler arrays, each array replaced copy-on-write when the handlers of its property
+ * change. Binding copies the array of the one property only, {@link #bindAll} copies every property array once.
+ * <p>
+ * Delivering an event reads the table without locking: one lookup, then a loop over the bound handlers and
+ * the subscribers receiving all events. A {@link PropertyChangeBatch} is delivered grouped by the
+ * {@link PropertyChangeHandler#getTarget() targets} of the handlers, all changes of one target are applied one after
+ * another, then the first handler of the target is {@link PropertyChangeHandler#onTargetChanged notified} once.
+ * Delivering an event or a batch is timed as the {@link ReloadMetrics.Stage#DISPATCH} stage.
+ */
+final class DispatchTable {
+    private static final Logger log = LoggerFactory.getLogger(DispatchTable.class);
+
+    private static final PropertyChangeHandler[] NO_HANDLERS = new PropertyChangeHandler[0];
+    private static final EventSubscriber[] NO_SUBSCRIBERS = new EventSubscriber[0];
+
+    private final ReloadMetrics metrics;
+
+    // arrays never modified once published
+    private final ConcurrentMap<String, PropertyChangeHandler[]> handlers = new ConcurrentHashMap<>();
+    private volatile EventSubscriber[] subscribers = NO_SUBSCRIBERS;
+
+    DispatchTable(final ReloadMetrics metrics) {
+        Assert.notNull(metrics, "Metrics can not be null");
+        this.metrics = metrics;
+    }
+
+    void bind(final String propertyName, final PropertyChangeHandler handler) {
+        Assert.notNull(propertyName, "Property name can not be null");
+        Assert.notNull(handler, "Handler can not be null");
+
+        this.handlers.merge(propertyName, new PropertyChangeHandler[]{handler}, DispatchTable::concat);
+    }
+
+    /**
+     * Bind all handlers per property name, copying the handler array of each property once.
+     */
+    void bindAll(final Map<String, ? extends Collection<PropertyChangeHandler>> handlers) {
+        Assert.notNull(handlers, "Handlers can not be null");
+
+        handlers.forEach((propertyName, bound) -> {
+            Assert.notNull(propertyName, "Property name can not be null");
+            if (!bound.isEmpty()) {
+                Assert.noNullElements(bound.toArray(), "Handler can not be null");
+                this.handlers.merge(propertyName, bound.toArray(NO_HANDLERS), DispatchTable::concat);
+            }
+        });
+    }
+
+    void unbind(final String propertyName, final PropertyChangeHandler handler) {
+        this.handlers.computeIfPresent(propertyName, (name, bound) -> {
+            final PropertyChangeHandler[] rebound = Arrays.stream(bound)
+                    .filter(h -> !h.equals(handler)).toArray(PropertyChangeHandler[]::new);
+            if (rebound.length == bound.length) {
+                return bound;
+            }
+            return rebound.length == 0 ? null : rebound;
+        });
+    }
+
+    private static PropertyChangeHandler[] concat(final PropertyChangeHandler[] bound,
+                                                  final PropertyChangeHandler[] added) {
+        final PropertyChangeHandler[] rebound = Arrays.copyOf(bound, bound.length + added.length);
+        System.arraycopy(added, 0, rebound, bound.length, added.length);
+        return rebound;
+    }
+
+    synchronized void register(final EventSubscriber subscriber) {
+        Assert.notNull(subscriber, "Event subscriber can not be null");
+        if (Arrays.asList(this.subscribers).contains(subscriber)) {
+            return;
+        }
+        final EventSubscriber[] registered = Arrays.copyOf(this.subscribers, this.subscribers.length + 1);
+        registered[this.subscribers.length] = subscriber;
+        this.subscribers = registered;
+    }
+
+    synchronized void unregister(final EventSubscriber subscriber) {
+        this.subscribers = Arrays.stream(this.subscribers)
+                .filter(s -> s != subscriber).toArray(EventSubscriber[]::new);
+    }
+
+    /**
+     * Deliver the event to every bound handler and registered subscriber, failures are logged and do not stop the
+     * delivery to the others.
+     *
+     * @return whether the delivery failed on at least one handler or subscriber.
+     */
+    boolean deliver(final PropertyChangedEvent event) {
+        final long dispatchStart = System.nanoTime();
+        boolean failed = false;
+
+        final PropertyChangeHandler[] bound = this.handlers.get(event.getPropertyName());
+        if (null != bound) {
+            for (PropertyChangeHandler handler : bound) {
+                try {
+                    handler.onPropertyChanged(event);
+                } catch (final Throwable e) {
+                    failed = true;
+                    log.error(String.format("Unable to dispatch property changes for [%s] to handler [%s]",
+                            event.getPropertyName(), handler), e);
+                }
+            }
+        }
+        for (EventSubscriber subscriber : this.subscribers) {
+            try {
+                subscriber.onPropertyChangedEvent(event);
+            } catch (final Throwable e) {
+                failed = true;
+                log.error(String.format("Unable to dispatch property changes for [%s] to subscriber [%s]",
+                        event.getPropertyName(), subscriber), e);
+            }
+        }
+
+        this.metrics.record(ReloadMetrics.Stage.DISPATCH, dispatchStart);
+        return failed;
+    }
+
+    /**
+     * Deliver the batch to the bound handlers grouped by target, then to every registered subscriber at once.
+     *
+     * @return whether the delivery failed on at least one handler or subscriber.
+     */
+    boolean deliver(final PropertyChangeBatch batch) {
+        final long dispatchStart = System.nanoTime();
+        boolean failed = deliver(batch, group(batch));
+        failed |= deliverToSubscribers(batch);
+
+        this.metrics.record(ReloadMetrics.Stage.DISPATCH, dispatchStart);
+        return failed;
+    }
+
+    /**
+     * Group the changes of the batch by the targets of the handlers currently bound, in order of their first change.
+     */
+    List<TargetChanges> group(final PropertyChangeBatch batch) {
+        final Map<String, PropertyChangeHandler[]> table = this.handlers;
+        final Map<Object, TargetChanges> byTarget = new IdentityHashMap<>();
+        final List<TargetChanges> targets = new ArrayList<>();
+        for (PropertyChangedEvent event : batch.getEvents()) {
+            final PropertyChangeHandler[] bound = table.get(event.getPropertyName());
+            if (null == bound) {
+                continue;
+            }
+            for (PropertyChangeHandler handler : bound) {
+                TargetChanges changes = byTarget.get(handler.getTarget());
+                if (null == changes) {
+                    changes = new TargetChanges(handler.getTarget());
+                    byTarget.put(handler.getTarget(), changes);
+                    targets.add(changes);
+                }
+                changes.handlers.add(handler);
+                changes.events.add(event);
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Apply the grouped changes of the batch target by target, notifying each target once its changes are applied.
+     *
+     * @return whether the delivery failed on at least one handler.
+     */
+    boolean deliver(final PropertyChangeBatch batch, final List<TargetChanges> targets) {
+        boolean failed = false;
+        for (TargetChanges changes : targets) {
+            for (int i = 0; i < changes.handlers.size(); i++) {
+                final PropertyChangeHandler handler = changes.handlers.get(i);
+                try {
+                    handler.onPropertyChanged(changes.events.get(i));
+                } catch (final Throwable e) {
+                    failed = true;
+                    log.error(String.format("Unable to dispatch property changes for [%s] to handler [%s]",
+                            changes.events.get(i).getPropertyName(), handler), e);
+                }
+            }
+            final PropertyChangeHandler first = changes.handlers.get(0);
+            try {
+                first.onTargetChanged(batch, changes.events);
+            } catch (final Throwable e) {
+                failed = true;
+                log.error(String.format("Unable to complete property changes of epoch [%d] on handler [%s]",
+                        batch.getEpoch(), first), e);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * @return whether the delivery failed on at least one subscriber.
+     */
+    boolean deliverToSubscribers(final PropertyChangeBatch batch) {
+        boolean failed = false;
+        for (EventSubscriber subscriber : this.subscribers) {
+            try {
+                subscriber.onPropertyChangeBatch(batch);
+            } catch (final Throwable e) {
+                failed = true;
+                log.error(String.format("Unable to dispatch property changes of epoch [%d] to subscriber [%s]",
+                        batch.getEpoch(), subscriber), e);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Record the delivery started at the given time as the {@link ReloadMetrics.Stage#DISPATCH} stage.
+     */
+    void recordDispatch(final long dispatchStart) {
+        this.metrics.record(ReloadMetrics.Stage.DISPATCH, dispatchStart);
+    }
+
+    /**
+     * Changes of one target within a batch, the handler at an index handles the event at the same index.
+     */
+    static final class TargetChanges {
+        private final Object target;
+        private final List<PropertyChangeHandler> handlers = new ArrayList<>(4);
+        private final List<PropertyChangedEvent> events = new ArrayList<>(4);
+
+        private TargetChanges(final Object target) {
+            this.target = target;
+        }
+
+        Object getTarget() {
+            return this.target;
+        }
+
+        List<PropertyChangedEvent> getEvents() {
+            return this.events;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.bytegen.common.reload.event;
+
+import com.bytegen.common.reload.bean.PropertyChangeBatch;
+import com.bytegen.common.reload.bean.PropertyChangedEvent;
+import com.bytegen.common.reload.metrics.ReloadMetrics;
+import org.springframework.util.Assert;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link KeyedEventNotifier} delivering the events synchronously on the posting thread through a
+ * {@link DispatchTable}: no reflection, no event queue and no allocation per event, unlike an {@code EventBus}.
+ */
+public class DispatchTableEventNotifier implements KeyedEventNotifier {
+
+    private final DispatchTable table;
+    private final AtomicLong failedEvents = new AtomicLong();
+
+    public DispatchTableEventNotifier() {
+        this(new ReloadMetrics());
+    }
+
+    /**
+     * @param metrics metrics to record the dispatch of the events to.
+     */
+    public DispatchTableEventNotifier(final ReloadMetrics metrics) {
+        this.table = new DispatchTable(metrics);
+    }
+
+    @Override
+    public void post(final PropertyChangedEvent event) {
+        Assert.notNull(event, "Event can not be null");
+        if (this.table.deliver(event)) {
+            this.failedEvents.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void post(final PropertyChangeBatch batch) {
+        Assert.notNull(batch, "Batch can not be null");
+        if (this.table.deliver(batch)) {
+            this.failedEvents.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void bind(final String propertyName, final PropertyChangeHandler handler) {
+        this.table.bind(propertyName, handler);
+    }
+
+    @Override
+    public void bindAll(final Map<String, ? extends Collection<PropertyChangeHandler>> handlers) {
+        this.table.bindAll(handlers);
+    }
+
+    @Override
+    public void unbind(final String propertyName, final PropertyChangeHandler handler) {
+        this.table.unbind(propertyName, handler);
+    }
+
+    @Override
+    public void unregister(final EventSubscriber eventSubscriber) {
+        this.table.unregister(eventSubscriber);
+    }
+
+    @Override
+    public void register(final EventSubscriber eventSubscriber) {
+        this.table.register(eventSubscriber);
+    }
+
+    /**
+     * @return number of events and batches at least one handler or subscriber failed on.
+     */
+    public long getFailedEvents() {
+        return this.failedEvents.get();
+    }
+}
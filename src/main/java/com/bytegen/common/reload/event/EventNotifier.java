@@ -1,5 +1,6 @@
 package com.bytegen.common.reload.event;
 
+import com.bytegen.common.reload.bean.PropertyChangeBatch;
 import com.bytegen.common.reload.bean.PropertyChangedEvent;
 
 /**
@@ -10,6 +11,15 @@ import com.bytegen.common.reload.bean.PropertyChangedEvent;
 public interface EventNotifier {
     void post(PropertyChangedEvent propertyChangedEvent);
 
+    /**
+     * Post all changes of one update as one dispatch, by default each event of the batch is posted on its own.
+     */
+    default void post(PropertyChangeBatch batch) {
+        for (PropertyChangedEvent event : batch.getEvents()) {
+            post(event);
+        }
+    }
+
     void unregister(EventSubscriber eventSubscriber);
 
     void register(EventSubscriber eventSubscriber);
@@ -7,4 +7,24 @@ import java.util.Properties;
  */
 public interface EventPublisher {
     void onPropertyChanged(Properties properties);
+
+    /**
+     * Publish the changes of a resource given as a delta to its previous version, by default the changed
+     * properties are published through {@link #onPropertyChanged(Properties)} and removals are ignored.
+     */
+    default void onPropertiesChanged(PropertiesDelta delta) {
+        if (!delta.getChanged().isEmpty()) {
+            onPropertyChanged(delta.toProperties());
+        }
+    }
+
+    /**
+     * Publish the changes of the named resource, by default the resource is not tracked and the delta is published
+     * through {@link #onPropertiesChanged(PropertiesDelta)}.
+     *
+     * @param source name of the resource, e.g. its zookeeper server and node.
+     */
+    default void onPropertiesChanged(String source, PropertiesDelta delta) {
+        onPropertiesChanged(delta);
+    }
 }
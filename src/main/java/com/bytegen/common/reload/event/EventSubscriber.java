@@ -1,5 +1,6 @@
 package com.bytegen.common.reload.event;
 
+import com.bytegen.common.reload.bean.PropertyChangeBatch;
 import com.bytegen.common.reload.bean.PropertyChangedEvent;
 import com.google.common.eventbus.Subscribe;
 
@@ -10,4 +11,14 @@ public interface EventSubscriber {
 
     @Subscribe
     void onPropertyChangedEvent(final PropertyChangedEvent event);
+
+    /**
+     * Receive all changes of one update, by default each event of the batch is received on its own.
+     */
+    @Subscribe
+    default void onPropertyChangeBatch(final PropertyChangeBatch batch) {
+        for (PropertyChangedEvent event : batch.getEvents()) {
+            onPropertyChangedEvent(event);
+        }
+    }
 }
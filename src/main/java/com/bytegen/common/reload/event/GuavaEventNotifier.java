@@ -1,5 +1,6 @@
 package com.bytegen.common.reload.event;
 
+import com.bytegen.common.reload.bean.PropertyChangeBatch;
 import com.bytegen.common.reload.bean.PropertyChangedEvent;
 import com.google.common.eventbus.EventBus;
 
@@ -7,20 +8,39 @@ import com.google.common.eventbus.EventBus;
  * User: xiang
  * Date: 2018/8/6
  * Desc:
+ * <p>
+ * Delivers the events synchronously on the posting thread to the subscribers registered to this notifier only,
+ * every application context creates its own notifier so events never reach the subscribers of other contexts.
  */
 public class GuavaEventNotifier implements EventNotifier {
 
+    private static final String DEFAULT_IDENTIFIER = "auto_reload_properties";
+
     private static class Holder {
         static final GuavaEventNotifier INSTANCE = new GuavaEventNotifier();
     }
 
+    /**
+     * @return the notifier shared by the whole JVM.
+     * @deprecated every subscriber of the shared notifier receives the events of all publishers in the JVM,
+     * create a notifier per application context instead.
+     */
+    @Deprecated
     public static GuavaEventNotifier getInstance() {
         return Holder.INSTANCE;
     }
 
-    private final EventBus guavaEvent = new EventBus("auto_reload_properties");
+    private final EventBus guavaEvent;
+
+    public GuavaEventNotifier() {
+        this(DEFAULT_IDENTIFIER);
+    }
 
-    private GuavaEventNotifier() {
+    /**
+     * @param identifier name of the underlying event bus, used in its logs.
+     */
+    public GuavaEventNotifier(final String identifier) {
+        this.guavaEvent = new EventBus(identifier);
     }
 
     @Override
@@ -28,6 +48,11 @@ public class GuavaEventNotifier implements EventNotifier {
         guavaEvent.post(event);
     }
 
+    @Override
+    public void post(final PropertyChangeBatch batch) {
+        guavaEvent.post(batch);
+    }
+
     @Override
     public void unregister(final EventSubscriber eventSubscriber) {
         guavaEvent.unregister(eventSubscriber);
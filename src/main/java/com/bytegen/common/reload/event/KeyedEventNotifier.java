@@ -0,0 +1,25 @@
+package com.bytegen.common.reload.event;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * {@link EventNotifier} delivering each event straight to the handlers bound to its property name, besides the
+ * {@link #register registered} subscribers receiving all events.
+ */
+public interface KeyedEventNotifier extends EventNotifier {
+
+    void bind(String propertyName, PropertyChangeHandler handler);
+
+    /**
+     * Bind all handlers per property name at once, by default each handler is bound on its own.
+     */
+    default void bindAll(Map<String, ? extends Collection<PropertyChangeHandler>> handlers) {
+        handlers.forEach((propertyName, bound) -> bound.forEach(handler -> bind(propertyName, handler)));
+    }
+
+    /**
+     * Unbind the handler, handlers are matched with {@link Object#equals(Object)}.
+     */
+    void unbind(String propertyName, PropertyChangeHandler handler);
+}
@@ -0,0 +1,71 @@
+package com.bytegen.common.reload.event;
+
+import org.springframework.util.Assert;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Immutable difference between two versions of the properties of one resource: the added or modified properties
+ * with their new values, and the names of the removed properties.
+ */
+public final class PropertiesDelta {
+
+    public static final PropertiesDelta EMPTY = new PropertiesDelta(Collections.emptyMap(), Collections.emptySet());
+
+    private final Map<String, String> changed;
+    private final Set<String> removed;
+
+    /**
+     * @param changed added or modified properties, not copied.
+     * @param removed names of removed properties, not copied.
+     */
+    public PropertiesDelta(final Map<String, String> changed, final Set<String> removed) {
+        Assert.notNull(changed, "Changed properties can not be null");
+        Assert.notNull(removed, "Removed properties can not be null");
+        this.changed = Collections.unmodifiableMap(changed);
+        this.removed = Collections.unmodifiableSet(removed);
+    }
+
+    public static PropertiesDelta changed(final String key, final String value) {
+        return new PropertiesDelta(Collections.singletonMap(key, value), Collections.emptySet());
+    }
+
+    public static PropertiesDelta removed(final String key) {
+        return new PropertiesDelta(Collections.emptyMap(), Collections.singleton(key));
+    }
+
+    /**
+     * @return the added or modified properties with their new values.
+     */
+    public Map<String, String> getChanged() {
+        return this.changed;
+    }
+
+    /**
+     * @return the names of the removed properties.
+     */
+    public Set<String> getRemoved() {
+        return this.removed;
+    }
+
+    public boolean isEmpty() {
+        return this.changed.isEmpty() && this.removed.isEmpty();
+    }
+
+    /**
+     * @return the added or modified properties as {@link Properties}.
+     */
+    public Properties toProperties() {
+        Properties properties = new Properties();
+        properties.putAll(this.changed);
+        return properties;
+    }
+
+    @Override
+    public String toString() {
+        return "PropertiesDelta{changed=" + this.changed.keySet() + ", removed=" + this.removed + '}';
+    }
+}
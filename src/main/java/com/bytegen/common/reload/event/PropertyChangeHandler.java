@@ -0,0 +1,33 @@
+package com.bytegen.common.reload.event;
+
+import com.bytegen.common.reload.bean.PropertyChangeBatch;
+import com.bytegen.common.reload.bean.PropertyChangedEvent;
+
+import java.util.List;
+
+/**
+ * Handler pre-bound to one target, e.g. one field of one bean, {@link KeyedEventNotifier#bind bound} to the
+ * property names it is interested in.
+ */
+@FunctionalInterface
+public interface PropertyChangeHandler {
+
+    void onPropertyChanged(PropertyChangedEvent event);
+
+    /**
+     * @return the target the handler writes to, e.g. the bean of the field; the changes of a batch are delivered
+     * grouped by target.
+     */
+    default Object getTarget() {
+        return this;
+    }
+
+    /**
+     * Called once per batch and target after all handlers of the target handled their changes of the batch, on the
+     * first handler of the target only.
+     *
+     * @param events the changes of the batch delivered to the handlers of the target.
+     */
+    default void onTargetChanged(PropertyChangeBatch batch, List<PropertyChangedEvent> events) {
+    }
+}
@@ -0,0 +1,52 @@
+package com.bytegen.common.reload.handle;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Base of the {@link Reloadable} handles, keeping the version and the listeners.
+ */
+public abstract class AbstractReloadable implements Reloadable {
+    private static final Logger log = LoggerFactory.getLogger(AbstractReloadable.class);
+
+    private static final AtomicLongFieldUpdater<AbstractReloadable> VERSION_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(AbstractReloadable.class, "version");
+
+    private volatile long version;
+    private final List<ReloadListener> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public long getVersion() {
+        return this.version;
+    }
+
+    @Override
+    public void addListener(final ReloadListener listener) {
+        Assert.notNull(listener, "Listener can not be null");
+        this.listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(final ReloadListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Advance the version and notify the listeners, to be called after the new value was stored.
+     */
+    protected final void reloaded() {
+        VERSION_UPDATER.incrementAndGet(this);
+        for (ReloadListener listener : this.listeners) {
+            try {
+                listener.onReload(this);
+            } catch (final RuntimeException e) {
+                log.error("Reload listener [" + listener + "] failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.bytegen.common.reload.handle;
+
+/**
+ * Listener notified once a {@link Reloadable} handle got a new value.
+ */
+@FunctionalInterface
+public interface ReloadListener {
+
+    /**
+     * @param handle the handle holding the new value.
+     */
+    void onReload(Reloadable handle);
+}
@@ -0,0 +1,30 @@
+package com.bytegen.common.reload.handle;
+
+/**
+ * Handle holding a converted property value, injected into fields annotated with
+ * {@link com.bytegen.common.reload.ReloadValue} as an alternative to plain field injection.
+ * <p>
+ * A handle stores the value already converted to its type in a volatile field, reads never convert nor unbox,
+ * and every reload is visible to all threads reading the handle afterwards.
+ * <pre>
+ *     &#064;ReloadValue("${pool.max}")
+ *     private final ReloadableInt poolMax = new ReloadableInt(10);
+ *
+ *     int max = poolMax.get();
+ * </pre>
+ * Handle fields left {@code null} are set to a new handle on injection.
+ */
+public interface Reloadable {
+
+    /**
+     * @return number of reloads applied to the handle, {@code 0} before the first value was set.
+     */
+    long getVersion();
+
+    /**
+     * Add a listener invoked on the reloading thread after every value set to the handle.
+     */
+    void addListener(ReloadListener listener);
+
+    void removeListener(ReloadListener listener);
+}
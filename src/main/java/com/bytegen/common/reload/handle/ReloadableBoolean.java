@@ -0,0 +1,34 @@
+package com.bytegen.common.reload.handle;
+
+/**
+ * {@link Reloadable} handle of a primitive {@code boolean} value.
+ */
+public class ReloadableBoolean extends AbstractReloadable {
+
+    private volatile boolean value;
+
+    public ReloadableBoolean() {
+        this(false);
+    }
+
+    /**
+     * @param defaultValue the value returned until the property is injected.
+     */
+    public ReloadableBoolean(final boolean defaultValue) {
+        this.value = defaultValue;
+    }
+
+    public boolean get() {
+        return this.value;
+    }
+
+    void set(final boolean value) {
+        this.value = value;
+        reloaded();
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(this.value);
+    }
+}
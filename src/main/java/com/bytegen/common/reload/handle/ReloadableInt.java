@@ -0,0 +1,34 @@
+package com.bytegen.common.reload.handle;
+
+/**
+ * {@link Reloadable} handle of a primitive {@code int} value.
+ */
+public class ReloadableInt extends AbstractReloadable {
+
+    private volatile int value;
+
+    public ReloadableInt() {
+        this(0);
+    }
+
+    /**
+     * @param defaultValue the value returned until the property is injected.
+     */
+    public ReloadableInt(final int defaultValue) {
+        this.value = defaultValue;
+    }
+
+    public int get() {
+        return this.value;
+    }
+
+    void set(final int value) {
+        this.value = value;
+        reloaded();
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(this.value);
+    }
+}
@@ -0,0 +1,34 @@
+package com.bytegen.common.reload.handle;
+
+/**
+ * {@link Reloadable} handle of a primitive {@code long} value.
+ */
+public class ReloadableLong extends AbstractReloadable {
+
+    private volatile long value;
+
+    public ReloadableLong() {
+        this(0L);
+    }
+
+    /**
+     * @param defaultValue the value returned until the property is injected.
+     */
+    public ReloadableLong(final long defaultValue) {
+        this.value = defaultValue;
+    }
+
+    public long get() {
+        return this.value;
+    }
+
+    void set(final long value) {
+        this.value = value;
+        reloaded();
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(this.value);
+    }
+}
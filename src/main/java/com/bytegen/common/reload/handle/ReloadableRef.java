@@ -0,0 +1,38 @@
+package com.bytegen.common.reload.handle;
+
+/**
+ * {@link Reloadable} handle of a value of type {@code T}, the value is converted to the type argument
+ * declared by the field, e.g. {@code ReloadableRef<Duration>}.
+ *
+ * @param <T> the type of the value.
+ */
+public class ReloadableRef<T> extends AbstractReloadable {
+
+    private volatile T value;
+
+    public ReloadableRef() {
+        this(null);
+    }
+
+    /**
+     * @param defaultValue the value returned until the property is injected.
+     */
+    public ReloadableRef(final T defaultValue) {
+        this.value = defaultValue;
+    }
+
+    public T get() {
+        return this.value;
+    }
+
+    @SuppressWarnings("unchecked")
+    void set(final Object value) {
+        this.value = (T) value;
+        reloaded();
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(this.value);
+    }
+}
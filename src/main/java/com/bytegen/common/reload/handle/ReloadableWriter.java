@@ -0,0 +1,135 @@
+package com.bytegen.common.reload.handle;
+
+import com.bytegen.common.reload.bean.FieldWriter;
+import com.bytegen.common.reload.bean.PropertyWriter;
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.ResolvableType;
+import org.springframework.util.Assert;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * {@link PropertyWriter} setting the values of a {@link Reloadable} handle held by a field.
+ */
+public final class ReloadableWriter implements PropertyWriter {
+
+    private final Reloadable handle;
+    private final ResolvableType targetType;
+
+    private ReloadableWriter(final Reloadable handle, final ResolvableType targetType) {
+        this.handle = handle;
+        this.targetType = targetType;
+    }
+
+    /**
+     * @return whether the field holds a {@link Reloadable} handle.
+     */
+    public static boolean isReloadable(final Field field) {
+        return Reloadable.class.isAssignableFrom(field.getType());
+    }
+
+    /**
+     * Return the handle held by the field of the bean, setting a new handle to the field if it holds none yet.
+     *
+     * @param bean  the bean holding the field, ignored for static fields.
+     * @param field the handle field, must be accessible already.
+     * @return the handle of the field.
+     */
+    public static Reloadable getOrCreateHandle(final Object bean, final Field field) {
+        Assert.isTrue(isReloadable(field), "Field [" + field.getName() + "] holds no reloadable handle");
+
+        Reloadable handle = (Reloadable) ReflectionUtils.getField(field, bean);
+        if (null == handle) {
+            if (Modifier.isFinal(field.getModifiers())) {
+                throw new IllegalStateException("Unable to set handle to field [" + field.getName() + "] as is declared final");
+            }
+            handle = (Reloadable) BeanUtils.instantiateClass(field.getType());
+            ReflectionUtils.setField(field, bean, handle);
+        }
+        return handle;
+    }
+
+    /**
+     * @param bean  the bean holding the field, ignored for static fields.
+     * @param field the handle field, must be accessible already.
+     */
+    public static ReloadableWriter forField(final Object bean, final Field field) {
+        final Reloadable handle = getOrCreateHandle(bean, field);
+
+        final ResolvableType targetType;
+        if (handle instanceof ReloadableInt) {
+            targetType = ResolvableType.forClass(int.class);
+        } else if (handle instanceof ReloadableLong) {
+            targetType = ResolvableType.forClass(long.class);
+        } else if (handle instanceof ReloadableBoolean) {
+            targetType = ResolvableType.forClass(boolean.class);
+        } else if (handle instanceof ReloadableRef) {
+            targetType = ResolvableType.forField(field).as(ReloadableRef.class).getGeneric(0);
+        } else {
+            throw new IllegalStateException("Unsupported reloadable handle [" + handle.getClass() + "]");
+        }
+        return new ReloadableWriter(handle, targetType);
+    }
+
+    public Reloadable getHandle() {
+        return this.handle;
+    }
+
+    @Override
+    public ResolvableType getTargetType() {
+        return this.targetType;
+    }
+
+    @Override
+    public void write(final Object value) {
+        if (this.handle instanceof ReloadableRef) {
+            ((ReloadableRef<?>) this.handle).set(value);
+        } else if (this.handle instanceof ReloadableInt) {
+            ((ReloadableInt) this.handle).set(((Number) value).intValue());
+        } else if (this.handle instanceof ReloadableLong) {
+            ((ReloadableLong) this.handle).set(((Number) value).longValue());
+        } else {
+            ((ReloadableBoolean) this.handle).set((Boolean) value);
+        }
+    }
+
+    @Override
+    public Object read() {
+        if (this.handle instanceof ReloadableRef) {
+            return ((ReloadableRef<?>) this.handle).get();
+        } else if (this.handle instanceof ReloadableInt) {
+            return ((ReloadableInt) this.handle).get();
+        } else if (this.handle instanceof ReloadableLong) {
+            return ((ReloadableLong) this.handle).get();
+        } else {
+            return ((ReloadableBoolean) this.handle).get();
+        }
+    }
+
+    @Override
+    public boolean writePrimitive(final String text) {
+        if (null == text || this.handle instanceof ReloadableRef) {
+            return false;
+        }
+
+        final String trimmed = text.trim();
+        try {
+            if (this.handle instanceof ReloadableInt) {
+                ((ReloadableInt) this.handle).set(Integer.parseInt(trimmed));
+            } else if (this.handle instanceof ReloadableLong) {
+                ((ReloadableLong) this.handle).set(Long.parseLong(trimmed));
+            } else {
+                int parsed = FieldWriter.parseBoolean(trimmed);
+                if (parsed < 0) {
+                    return false;
+                }
+                ((ReloadableBoolean) this.handle).set(parsed == 1);
+            }
+        } catch (final NumberFormatException e) {
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,105 @@
+package com.bytegen.common.reload.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with one bucket per power of two nanoseconds, cheap enough to record every stage
+ * of every reload. Percentiles are reported as the upper bound of their bucket, hence within a factor of two.
+ */
+public final class LatencyHistogram implements LatencyHistogramMBean {
+
+    // bucket 0 counts zero latencies, bucket i latencies of [2^(i-1), 2^i) nanoseconds
+    private static final int BUCKETS = 64;
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(final long nanos) {
+        final long latency = Math.max(0L, nanos);
+        this.buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(latency));
+        this.count.increment();
+        this.totalNanos.add(latency);
+        long max;
+        while (latency > (max = this.maxNanos.get()) && !this.maxNanos.compareAndSet(max, latency)) {
+            // retry
+        }
+    }
+
+    @Override
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        final long count = this.count.sum();
+        return count == 0 ? 0.0 : this.totalNanos.sum() / NANOS_PER_MICRO / count;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return this.maxNanos.get() / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getMedianMicros() {
+        return getPercentileMicros(0.5);
+    }
+
+    @Override
+    public double get95thPercentileMicros() {
+        return getPercentileMicros(0.95);
+    }
+
+    @Override
+    public double get99thPercentileMicros() {
+        return getPercentileMicros(0.99);
+    }
+
+    @Override
+    public double get999thPercentileMicros() {
+        return getPercentileMicros(0.999);
+    }
+
+    /**
+     * @param quantile the quantile, between {@code 0} and {@code 1}.
+     * @return the upper bound of the bucket holding the quantile, {@code 0} if nothing recorded.
+     */
+    public double getPercentileMicros(final double quantile) {
+        final long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = this.buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0.0;
+        }
+
+        final long rank = Math.max(1L, (long) Math.ceil(quantile * total));
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            cumulative += counts[i];
+            if (cumulative >= rank) {
+                final long upperBound = i == 0 ? 0L : i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << i) - 1;
+                return Math.min(upperBound, this.maxNanos.get()) / NANOS_PER_MICRO;
+            }
+        }
+        return getMaxMicros();
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            this.buckets.set(i, 0L);
+        }
+        this.count.reset();
+        this.totalNanos.reset();
+        this.maxNanos.set(0L);
+    }
+}
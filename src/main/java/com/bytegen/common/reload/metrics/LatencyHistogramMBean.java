@@ -0,0 +1,23 @@
+package com.bytegen.common.reload.metrics;
+
+/**
+ * JMX view of a {@link LatencyHistogram}, latencies in microseconds.
+ */
+public interface LatencyHistogramMBean {
+
+    long getCount();
+
+    double getMeanMicros();
+
+    double getMaxMicros();
+
+    double getMedianMicros();
+
+    double get95thPercentileMicros();
+
+    double get99thPercentileMicros();
+
+    double get999thPercentileMicros();
+
+    void reset();
+}
@@ -0,0 +1,258 @@
+package com.bytegen.common.reload.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of the reload pipeline: a {@link LatencyHistogram} per {@link Stage}, counters of events, changed keys,
+ * conversion failures and coalesced events, and the {@link ZnodeMetrics} of every watched node.
+ * <p>
+ * Recording only updates lock-free counters. Once {@link #registerMBeans registered}, the counters, every stage and
+ * every node are exposed as MBeans in the {@value #DOMAIN} domain, nodes watched later are registered as they come.
+ */
+public class ReloadMetrics implements ReloadMetricsMBean {
+    private static final Logger log = LoggerFactory.getLogger(ReloadMetrics.class);
+
+    public static final String DOMAIN = "com.bytegen.common.reload";
+
+    /**
+     * Stages of applying a node update to the beans.
+     */
+    public enum Stage {
+        /**
+         * Parse the node payload into a delta.
+         */
+        PARSE,
+        /**
+         * Diff the delta against the resolver and swap the changed keys in.
+         */
+        DIFF,
+        /**
+         * Resolve the placeholders depending on the changed keys.
+         */
+        RESOLVE,
+        /**
+         * Deliver one change event to all bound fields.
+         */
+        DISPATCH,
+        /**
+         * Convert the new value of one field.
+         */
+        CONVERSION,
+        /**
+         * Write the new value of one field.
+         */
+        WRITE
+    }
+
+    private final Map<Stage, LatencyHistogram> histograms = new EnumMap<>(Stage.class);
+    private final ConcurrentMap<String, ZnodeMetrics> znodes = new ConcurrentHashMap<>();
+
+    private final LongAdder eventsReceived = new LongAdder();
+    private final LongAdder changedKeys = new LongAdder();
+    private final LongAdder conversionFailures = new LongAdder();
+    private final LongAdder coalescedEvents = new LongAdder();
+
+    // guarded by this
+    private MBeanServer server;
+    private String name;
+    private final List<ObjectName> registered = new ArrayList<>();
+
+    public ReloadMetrics() {
+        for (Stage stage : Stage.values()) {
+            this.histograms.put(stage, new LatencyHistogram());
+        }
+    }
+
+    public LatencyHistogram getHistogram(final Stage stage) {
+        return this.histograms.get(stage);
+    }
+
+    /**
+     * Record the latency of the stage started at the given {@link System#nanoTime()}.
+     */
+    public void record(final Stage stage, final long startNanos) {
+        this.histograms.get(stage).record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Get the metrics of the node, registering them as MBean if the metrics are registered already.
+     */
+    public ZnodeMetrics znode(final String zkServer, final String zkNode) {
+        final String key = zkServer + "-" + zkNode;
+        ZnodeMetrics metrics = this.znodes.get(key);
+        if (null == metrics) {
+            final ZnodeMetrics created = new ZnodeMetrics(zkServer, zkNode, this.eventsReceived);
+            metrics = this.znodes.putIfAbsent(key, created);
+            if (null == metrics) {
+                metrics = created;
+                synchronized (this) {
+                    if (null != this.server) {
+                        register(created, znodeName(created));
+                    }
+                }
+            }
+        }
+        return metrics;
+    }
+
+    public Collection<ZnodeMetrics> getZnodes() {
+        return Collections.unmodifiableCollection(this.znodes.values());
+    }
+
+    public void keysChanged(final int keys) {
+        this.changedKeys.add(keys);
+    }
+
+    public void conversionFailed() {
+        this.conversionFailures.increment();
+    }
+
+    public void eventsCoalesced(final int events) {
+        this.coalescedEvents.add(events);
+    }
+
+    @Override
+    public long getEventsReceived() {
+        return this.eventsReceived.sum();
+    }
+
+    @Override
+    public long getChangedKeys() {
+        return this.changedKeys.sum();
+    }
+
+    @Override
+    public long getConversionFailures() {
+        return this.conversionFailures.sum();
+    }
+
+    @Override
+    public long getCoalescedEvents() {
+        return this.coalescedEvents.sum();
+    }
+
+    @Override
+    public int getWatchedZnodes() {
+        return this.znodes.size();
+    }
+
+    /**
+     * Register the metrics as MBeans, named with the key {@code name} to tell several applications in one JVM apart.
+     * Failures are logged only, metrics must never fail the start up.
+     */
+    public synchronized void registerMBeans(final MBeanServer server, final String name) {
+        Assert.notNull(server, "MBean server can not be null");
+        Assert.hasText(name, "Metrics name can not be blank");
+        if (null != this.server) {
+            return;
+        }
+        this.server = server;
+        this.name = name;
+
+        register(this, objectName("type=ReloadMetrics"));
+        for (Stage stage : Stage.values()) {
+            register(this.histograms.get(stage), objectName("type=ReloadMetrics,stage=" + stage.name().toLowerCase()));
+        }
+        for (ZnodeMetrics znode : this.znodes.values()) {
+            register(znode, znodeName(znode));
+        }
+    }
+
+    /**
+     * Register the metrics as {@link #registerMBeans} does, named with the first of {@code name}, {@code name-2},
+     * {@code name-3}... no other metrics are registered with yet, e.g. for several applications sharing a name.
+     *
+     * @return the name the metrics are registered with.
+     */
+    public synchronized String registerUniqueMBeans(final MBeanServer server, final String name) {
+        Assert.notNull(server, "MBean server can not be null");
+        Assert.hasText(name, "Metrics name can not be blank");
+        if (null != this.server) {
+            return this.name;
+        }
+        String unique = name;
+        for (int i = 2; server.isRegistered(objectName(unique, "type=ReloadMetrics")); i++) {
+            unique = name + "-" + i;
+        }
+        registerMBeans(server, unique);
+        return unique;
+    }
+
+    /**
+     * @return the name the metrics are registered with, {@code null} if not registered.
+     */
+    public synchronized String getName() {
+        return this.name;
+    }
+
+    /**
+     * Register another MBean along with the metrics, unregistered with them.
+     *
+     * @param type value of the {@code type} key of the MBean name.
+     */
+    public synchronized void registerMBean(final String type, final Object mbean) {
+        if (null != this.server) {
+            register(mbean, objectName("type=" + type));
+        }
+    }
+
+    public synchronized void unregisterMBeans() {
+        if (null == this.server) {
+            return;
+        }
+        for (ObjectName objectName : this.registered) {
+            try {
+                this.server.unregisterMBean(objectName);
+            } catch (final JMException e) {
+                log.debug("Unable to unregister MBean [{}]", objectName);
+            }
+        }
+        this.registered.clear();
+        this.server = null;
+        this.name = null;
+    }
+
+    private ObjectName znodeName(final ZnodeMetrics znode) {
+        return objectName("type=Znode,server=" + ObjectName.quote(znode.getZkServer())
+                + ",node=" + ObjectName.quote(znode.getZkNode()));
+    }
+
+    private ObjectName objectName(final String properties) {
+        return objectName(this.name, properties);
+    }
+
+    private static ObjectName objectName(final String name, final String properties) {
+        try {
+            return new ObjectName(DOMAIN + ":name=" + ObjectName.quote(name) + "," + properties);
+        } catch (final JMException e) {
+            throw new IllegalArgumentException("Invalid MBean name properties [" + properties + "]", e);
+        }
+    }
+
+    private void register(final Object mbean, final ObjectName objectName) {
+        try {
+            this.server.registerMBean(mbean, objectName);
+            this.registered.add(objectName);
+        } catch (final InstanceAlreadyExistsException e) {
+            log.warn("MBean [{}] is registered already, skipped", objectName);
+        } catch (final JMException e) {
+            log.warn("Unable to register MBean [" + objectName + "]", e);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.bytegen.common.reload.metrics;
+
+/**
+ * JMX view of the {@link ReloadMetrics} counters, the stage latencies are registered as separate
+ * {@link LatencyHistogramMBean}s.
+ */
+public interface ReloadMetricsMBean {
+
+    long getEventsReceived();
+
+    long getChangedKeys();
+
+    long getConversionFailures();
+
+    long getCoalescedEvents();
+
+    int getWatchedZnodes();
+}
@@ -0,0 +1,86 @@
+package com.bytegen.common.reload.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Events received from one zookeeper node, reads of the node failed on zookeeper errors and the node version last
+ * applied to the properties.
+ * <p>
+ * The applied version and zxid are the data version and modification zxid of a properties node, and the child
+ * version and last child change zxid of a key-per-child node; timestamps are epoch milliseconds, {@code 0} if none yet.
+ */
+public final class ZnodeMetrics implements ZnodeMetricsMBean {
+
+    private final String zkServer;
+    private final String zkNode;
+    private final LongAdder globalEvents;
+
+    private final LongAdder eventsReceived = new LongAdder();
+    private final LongAdder failedReads = new LongAdder();
+    private volatile long lastEventTimestamp;
+    private volatile int lastAppliedVersion = -1;
+    private volatile long lastAppliedMzxid = -1L;
+    private volatile long lastAppliedTimestamp;
+
+    ZnodeMetrics(final String zkServer, final String zkNode, final LongAdder globalEvents) {
+        this.zkServer = zkServer;
+        this.zkNode = zkNode;
+        this.globalEvents = globalEvents;
+    }
+
+    public void eventReceived() {
+        this.eventsReceived.increment();
+        this.globalEvents.increment();
+        this.lastEventTimestamp = System.currentTimeMillis();
+    }
+
+    public void readFailed() {
+        this.failedReads.increment();
+    }
+
+    public void applied(final int version, final long mzxid) {
+        this.lastAppliedVersion = version;
+        this.lastAppliedMzxid = mzxid;
+        this.lastAppliedTimestamp = System.currentTimeMillis();
+    }
+
+    @Override
+    public String getZkServer() {
+        return this.zkServer;
+    }
+
+    @Override
+    public String getZkNode() {
+        return this.zkNode;
+    }
+
+    @Override
+    public long getEventsReceived() {
+        return this.eventsReceived.sum();
+    }
+
+    @Override
+    public long getFailedReads() {
+        return this.failedReads.sum();
+    }
+
+    @Override
+    public long getLastEventTimestamp() {
+        return this.lastEventTimestamp;
+    }
+
+    @Override
+    public int getLastAppliedVersion() {
+        return this.lastAppliedVersion;
+    }
+
+    @Override
+    public long getLastAppliedMzxid() {
+        return this.lastAppliedMzxid;
+    }
+
+    @Override
+    public long getLastAppliedTimestamp() {
+        return this.lastAppliedTimestamp;
+    }
+}
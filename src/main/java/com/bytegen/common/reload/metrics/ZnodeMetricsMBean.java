@@ -0,0 +1,23 @@
+package com.bytegen.common.reload.metrics;
+
+/**
+ * JMX view of the {@link ZnodeMetrics} of one watched zookeeper node.
+ */
+public interface ZnodeMetricsMBean {
+
+    String getZkServer();
+
+    String getZkNode();
+
+    long getEventsReceived();
+
+    long getFailedReads();
+
+    long getLastEventTimestamp();
+
+    int getLastAppliedVersion();
+
+    long getLastAppliedMzxid();
+
+    long getLastAppliedTimestamp();
+}
@@ -1,5 +1,7 @@
 package com.bytegen.common.reload.resolver;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -14,6 +16,21 @@ public interface MutablePropertyResolver {
      */
     Set<String> propertyNames();
 
+    /**
+     * Get an immutable snapshot of the current raw properties, later modifications are not visible through it.
+     *
+     * @return the current property snapshot.
+     */
+    PropertySnapshot getSnapshot();
+
+    /**
+     * Check whether the given property key exists.
+     *
+     * @param key the property name to check.
+     * @return {@code true} if the property exists.
+     */
+    boolean containsProperty(String key);
+
     /**
      * Update/set the property value associated with the given key.
      *
@@ -23,6 +40,21 @@ public interface MutablePropertyResolver {
      */
     Object setProperty(String key, String value);
 
+    /**
+     * Update/set all the given properties as one modification.
+     *
+     * @param properties the property names and values to set.
+     */
+    void setProperties(Map<String, String> properties);
+
+    /**
+     * Update/set the given properties and remove the given keys as one modification.
+     *
+     * @param properties  the property names and values to set.
+     * @param removedKeys the property names to remove.
+     */
+    void updateProperties(Map<String, String> properties, Collection<String> removedKeys);
+
     /**
      * Return the unresolved property value associated with the given key,
      * or {@code null} if the key not exists.
@@ -50,4 +82,18 @@ public interface MutablePropertyResolver {
      */
     String resolvePlaceholders(final String text);
 
+    /**
+     * Resolve ${...} placeholders in the given text as {@link #resolvePlaceholders(String)} does,
+     * recording every property key looked up during resolution into the given collection.
+     * Keys referenced by nested placeholders and by the values of referenced keys are recorded as well,
+     * keys which could not be found are recorded too.
+     *
+     * @param text           the text to resolve.
+     * @param referencedKeys the collection the looked up property keys are added to.
+     * @return the resolved String (never {@code null}).
+     * @throws IllegalArgumentException if given text is {@code null}
+     *                                  or if any placeholders are unresolvable.
+     */
+    String resolvePlaceholders(final String text, final Collection<String> referencedKeys);
+
 }
@@ -0,0 +1,282 @@
+package com.bytegen.common.reload.resolver;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import org.springframework.util.Assert;
+import org.springframework.util.PropertyPlaceholderHelper.PlaceholderResolver;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Immutable, pre-compiled form of a text containing <code>${...}</code> placeholders.
+ * <p>
+ * The text is scanned once into literal and placeholder segments, a placeholder holding the compiled
+ * key and the compiled default value (the text after the first top-level ":"). Evaluation only walks
+ * the segments, a lone placeholder whose value contains no further placeholder is resolved
+ * without allocating anything but the looked up value.
+ * <pre>
+ *     Hello, ${user.name:${default.name}}!
+ *     -> [literal "Hello, "] [key "user.name", default "${default.name}"] [literal "!"]
+ * </pre>
+ * Compiled templates are cached by text, see {@link #compile(String)}.
+ */
+public final class PlaceholderTemplate {
+
+    /**
+     * Prefix for property placeholders: "${"
+     */
+    static final String PLACEHOLDER_PREFIX = "${";
+    /**
+     * Suffix for property placeholders: "}"
+     */
+    static final String PLACEHOLDER_SUFFIX = "}";
+    /**
+     * Prefix for nested braces inside a placeholder: "{"
+     */
+    private static final String SIMPLE_PREFIX = "{";
+    /**
+     * Value separator for property placeholders: ":"
+     */
+    private static final char VALUE_SEPARATOR = ':';
+
+    private static final int MAXIMUM_CACHED_TEMPLATES = 10000;
+
+    private static final LoadingCache<String, PlaceholderTemplate> templates = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_CACHED_TEMPLATES)
+            .build(CacheLoader.from(PlaceholderTemplate::parse));
+
+    private final String text;
+    private final Segment[] segments;
+
+    private PlaceholderTemplate(final String text, final Segment[] segments) {
+        this.text = text;
+        this.segments = segments;
+    }
+
+    /**
+     * Return the compiled template of the given text, compiling and caching it if not compiled yet.
+     *
+     * @param text the text to compile.
+     * @return the compiled template (never {@code null}).
+     */
+    public static PlaceholderTemplate compile(final String text) {
+        Assert.notNull(text, "'text' must not be null");
+        return templates.getUnchecked(text);
+    }
+
+    /**
+     * @return whether the given text contains no placeholder and resolves to itself.
+     */
+    public static boolean isLiteral(final String text) {
+        return text.indexOf(PLACEHOLDER_PREFIX) < 0;
+    }
+
+    public String getText() {
+        return this.text;
+    }
+
+    /**
+     * @return whether the template contains no placeholder.
+     */
+    public boolean isLiteral() {
+        return this.segments.length == 0 || (this.segments.length == 1 && null == this.segments[0].key);
+    }
+
+    /**
+     * Resolve the placeholders of the template with values returned by the given resolver, placeholders
+     * contained in the returned values are resolved recursively. Unresolvable placeholders with no default
+     * value will cause an IllegalArgumentException to be thrown.
+     *
+     * @param resolver       the resolver returning the raw value of a key, or {@code null} if the key not exists.
+     * @param referencedKeys if not {@code null}, every key looked up during resolution is added to it.
+     * @return the resolved String (never {@code null}).
+     * @throws IllegalArgumentException if any placeholders are unresolvable or circular referenced.
+     */
+    public String resolve(final PlaceholderResolver resolver, final Collection<String> referencedKeys) {
+        if (isLiteral()) {
+            return this.text;
+        }
+        if (this.segments.length == 1) {
+            // lone placeholder, skip the builder if its value needs no further resolution
+            final String value = this.segments[0].lookup(this, resolver, referencedKeys, null);
+            if (isLiteral(value)) {
+                return value;
+            }
+
+            final Deque<String> visiting = new ArrayDeque<>(4);
+            visiting.push(value);
+            return compile(value).resolveToString(resolver, referencedKeys, visiting);
+        }
+
+        final StringBuilder builder = new StringBuilder(this.text.length() + 16);
+        appendTo(builder, resolver, referencedKeys, null);
+        return builder.toString();
+    }
+
+    private void appendTo(final StringBuilder builder, final PlaceholderResolver resolver,
+                          final Collection<String> referencedKeys, Deque<String> visiting) {
+        for (Segment segment : this.segments) {
+            if (null == segment.key) {
+                builder.append(segment.literal);
+                continue;
+            }
+
+            final String value = segment.lookup(this, resolver, referencedKeys, visiting);
+            if (isLiteral(value)) {
+                builder.append(value);
+                continue;
+            }
+
+            // value containing placeholders, resolve recursively and guard against circular references
+            if (null == visiting) {
+                visiting = new ArrayDeque<>(4);
+            }
+            if (visiting.contains(value)) {
+                throw new IllegalArgumentException("Circular placeholder reference '" + segment.literal + "' in property definitions");
+            }
+            visiting.push(value);
+            compile(value).appendTo(builder, resolver, referencedKeys, visiting);
+            visiting.pop();
+        }
+    }
+
+    private String resolveToString(final PlaceholderResolver resolver, final Collection<String> referencedKeys,
+                                   final Deque<String> visiting) {
+        if (isLiteral()) {
+            return this.text;
+        }
+        final StringBuilder builder = new StringBuilder(this.text.length() + 16);
+        appendTo(builder, resolver, referencedKeys, visiting);
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "{\"PlaceholderTemplate\":{"
+                + "\"text\":\"" + text + "\""
+                + ", \"segments\":" + segments.length
+                + "}}";
+    }
+
+    // ///////////////////////////////////
+    //          Template parsing        //
+    // ///////////////////////////////////
+
+    private static PlaceholderTemplate parse(final String text) {
+        final List<Segment> segments = new ArrayList<>(2);
+
+        int literalStart = 0;
+        int startIndex = text.indexOf(PLACEHOLDER_PREFIX);
+        while (startIndex >= 0) {
+            int endIndex = findPlaceholderEndIndex(text, startIndex);
+            if (endIndex < 0) {
+                break;
+            }
+
+            if (startIndex > literalStart) {
+                segments.add(Segment.literal(text.substring(literalStart, startIndex)));
+            }
+            String placeholder = text.substring(startIndex + PLACEHOLDER_PREFIX.length(), endIndex);
+            int separatorIndex = findValueSeparatorIndex(placeholder);
+            if (separatorIndex < 0) {
+                segments.add(Segment.placeholder(placeholder, compile(placeholder), null));
+            } else {
+                segments.add(Segment.placeholder(placeholder,
+                        compile(placeholder.substring(0, separatorIndex)),
+                        compile(placeholder.substring(separatorIndex + 1))));
+            }
+
+            literalStart = endIndex + PLACEHOLDER_SUFFIX.length();
+            startIndex = text.indexOf(PLACEHOLDER_PREFIX, literalStart);
+        }
+        if (literalStart < text.length()) {
+            segments.add(Segment.literal(text.substring(literalStart)));
+        }
+
+        return new PlaceholderTemplate(text, segments.toArray(new Segment[segments.size()]));
+    }
+
+    private static int findPlaceholderEndIndex(final String text, final int startIndex) {
+        int index = startIndex + PLACEHOLDER_PREFIX.length();
+        int withinNestedPlaceholder = 0;
+        while (index < text.length()) {
+            if (text.startsWith(PLACEHOLDER_SUFFIX, index)) {
+                if (withinNestedPlaceholder > 0) {
+                    withinNestedPlaceholder--;
+                    index += PLACEHOLDER_SUFFIX.length();
+                } else {
+                    return index;
+                }
+            } else if (text.startsWith(SIMPLE_PREFIX, index)) {
+                withinNestedPlaceholder++;
+                index += SIMPLE_PREFIX.length();
+            } else {
+                index++;
+            }
+        }
+        return -1;
+    }
+
+    private static int findValueSeparatorIndex(final String placeholder) {
+        int nested = 0;
+        for (int i = 0; i < placeholder.length(); i++) {
+            char c = placeholder.charAt(i);
+            if (c == '{') {
+                nested++;
+            } else if (c == '}') {
+                nested--;
+            } else if (c == VALUE_SEPARATOR && nested == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static final class Segment {
+        // literal text, or the original placeholder text for placeholder segments
+        private final String literal;
+        private final PlaceholderTemplate key;
+        private final PlaceholderTemplate defaultValue;
+
+        private Segment(final String literal, final PlaceholderTemplate key, final PlaceholderTemplate defaultValue) {
+            this.literal = literal;
+            this.key = key;
+            this.defaultValue = defaultValue;
+        }
+
+        private static Segment literal(final String text) {
+            return new Segment(text, null, null);
+        }
+
+        private static Segment placeholder(final String placeholder, final PlaceholderTemplate key,
+                                           final PlaceholderTemplate defaultValue) {
+            return new Segment(placeholder, key, defaultValue);
+        }
+
+        /**
+         * @return the raw value of the placeholder, or its unresolved default value if the key not exists.
+         */
+        private String lookup(final PlaceholderTemplate owner, final PlaceholderResolver resolver,
+                              final Collection<String> referencedKeys, final Deque<String> visiting) {
+            final String actualKey = this.key.resolveToString(resolver, referencedKeys, visiting);
+            if (null != referencedKeys) {
+                referencedKeys.add(actualKey);
+            }
+
+            String value = resolver.resolvePlaceholder(actualKey);
+            if (null == value && null != this.defaultValue) {
+                value = this.defaultValue.text;
+            }
+            if (null == value) {
+                throw new IllegalArgumentException("Could not resolve placeholder '" + this.literal + "'" +
+                        " in value \"" + owner.text + "\"");
+            }
+            return value;
+        }
+    }
+}
@@ -3,13 +3,16 @@ package com.bytegen.common.reload.resolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.Assert;
-import org.springframework.util.PropertyPlaceholderHelper;
+import org.springframework.util.PropertyPlaceholderHelper.PlaceholderResolver;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 
 /**
- * Implementation of a {@link MutablePropertyResolver} resolving properties with {@link PropertyPlaceholderHelper}.
+ * Implementation of a {@link MutablePropertyResolver} resolving properties with compiled {@link PlaceholderTemplate}s.
  * Resolving occurs only for properly formatted markers e.g <code>${...}</code>
  * <pre>
  *     project.property 		= PropertyValue
@@ -19,28 +22,12 @@ import java.util.Set;
 public class PropertiesPropertyResolver implements MutablePropertyResolver {
     private static final Logger log = LoggerFactory.getLogger(PropertiesPropertyResolver.class);
 
-    /**
-     * Prefix for property placeholders:
-     */
-    private static final String PLACEHOLDER_PREFIX = "${";
-    /**
-     * Suffix for property placeholders: "}"
-     */
-    private static final String PLACEHOLDER_SUFFIX = "}";
-    /**
-     * Value separator for property placeholders: ":"
-     */
-    private static final String VALUE_SEPARATOR = ":";
-
-    private static final boolean ignoreUnresolvablePlaceholders = false;
-
     private Properties properties;
-    private PropertyPlaceholderHelper strictHelper;
+    private final PlaceholderResolver rawPropertyResolver;
 
     public PropertiesPropertyResolver() {
         this.properties = new Properties();
-        this.strictHelper = new PropertyPlaceholderHelper(PLACEHOLDER_PREFIX, PLACEHOLDER_SUFFIX,
-                VALUE_SEPARATOR, ignoreUnresolvablePlaceholders);
+        this.rawPropertyResolver = key -> this.properties.getProperty(key);
     }
 
     public void addProperties(Properties props) {
@@ -54,12 +41,42 @@ public class PropertiesPropertyResolver implements MutablePropertyResolver {
         return this.properties.stringPropertyNames();
     }
 
+    @Override
+    public PropertySnapshot getSnapshot() {
+        Map<String, String> copy = new HashMap<>();
+        for (String key : this.properties.stringPropertyNames()) {
+            copy.put(key, this.properties.getProperty(key));
+        }
+        return PropertySnapshot.of(copy);
+    }
+
+    @Override
+    public boolean containsProperty(String key) {
+        return this.properties.containsKey(key);
+    }
+
     @Override
     public Object setProperty(String key, String value) {
         Assert.notNull(key, "Property key must not be null");
         return this.properties.setProperty(key, value);
     }
 
+    @Override
+    public void setProperties(Map<String, String> properties) {
+        Assert.notNull(properties, "Properties must not be null");
+        this.properties.putAll(properties);
+    }
+
+    @Override
+    public void updateProperties(Map<String, String> properties, Collection<String> removedKeys) {
+        Assert.notNull(properties, "Properties must not be null");
+        Assert.notNull(removedKeys, "Removed keys must not be null");
+        for (String key : removedKeys) {
+            this.properties.remove(key);
+        }
+        this.properties.putAll(properties);
+    }
+
     @Override
     public String getPropertyAsRawString(String key) {
         return getProperty(key, false);
@@ -74,21 +91,29 @@ public class PropertiesPropertyResolver implements MutablePropertyResolver {
     public String resolvePlaceholders(String text) {
         Assert.notNull(text, "'text' must not be null");
 
-        return strictHelper.replacePlaceholders(text, this::getPropertyAsRawString);
+        return PlaceholderTemplate.compile(text).resolve(rawPropertyResolver, null);
+    }
+
+    @Override
+    public String resolvePlaceholders(String text, Collection<String> referencedKeys) {
+        Assert.notNull(text, "'text' must not be null");
+        Assert.notNull(referencedKeys, "'referencedKeys' must not be null");
+
+        return PlaceholderTemplate.compile(text).resolve(rawPropertyResolver, referencedKeys);
     }
 
     protected String getProperty(String key, boolean resolveNestedPlaceholders) {
         String value = properties.getProperty(key);
         if (value != null) {
-            if (resolveNestedPlaceholders) {
+            if (resolveNestedPlaceholders && !PlaceholderTemplate.isLiteral(value)) {
                 value = resolvePlaceholders(value);
             }
 
-            log.debug("Found key '" + key + "' in properties with value of " + value);
+            log.debug("Found key '{}' in properties with value of {}", key, value);
             return value;
         }
 
-        log.info("Could not find key '" + key + "' in properties");
+        log.info("Could not find key '{}' in properties", key);
         return null;
     }
 
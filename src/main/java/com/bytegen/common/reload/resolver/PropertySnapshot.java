@@ -0,0 +1,113 @@
+package com.bytegen.common.reload.resolver;
+
+import org.springframework.util.Assert;
+import org.springframework.util.PropertyPlaceholderHelper.PlaceholderResolver;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable view of the raw properties at one point in time, every modification returns a new snapshot
+ * with an increased {@link #getVersion() version}. Placeholders resolved against a snapshot always see
+ * the values of that single snapshot.
+ */
+public final class PropertySnapshot {
+
+    public static final PropertySnapshot EMPTY = new PropertySnapshot(Collections.emptyMap(), 0L);
+
+    private final Map<String, String> properties;
+    private final Set<String> propertyNames;
+    private final long version;
+    private final PlaceholderResolver rawPropertyResolver;
+
+    private PropertySnapshot(final Map<String, String> properties, final long version) {
+        this.properties = properties;
+        this.propertyNames = Collections.unmodifiableSet(properties.keySet());
+        this.version = version;
+        this.rawPropertyResolver = properties::get;
+    }
+
+    /**
+     * @return a snapshot holding a copy of the given properties.
+     */
+    public static PropertySnapshot of(final Map<String, String> properties) {
+        return EMPTY.withProperties(properties);
+    }
+
+    public long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * @return unmodifiable set of the property names, backed by the snapshot.
+     */
+    public Set<String> propertyNames() {
+        return this.propertyNames;
+    }
+
+    public boolean containsProperty(final String key) {
+        return this.properties.containsKey(key);
+    }
+
+    /**
+     * @return the unresolved property value associated with the given key, or {@code null} if the key not exists.
+     */
+    public String getProperty(final String key) {
+        return this.properties.get(key);
+    }
+
+    /**
+     * @return unmodifiable map of the unresolved properties.
+     */
+    public Map<String, String> asMap() {
+        return Collections.unmodifiableMap(this.properties);
+    }
+
+    /**
+     * Resolve ${...} placeholders in the given text with the values of this snapshot.
+     *
+     * @param text           the text to resolve.
+     * @param referencedKeys if not {@code null}, every key looked up during resolution is added to it.
+     * @return the resolved String (never {@code null}).
+     * @throws IllegalArgumentException if any placeholders are unresolvable.
+     * @see PlaceholderTemplate#resolve
+     */
+    public String resolvePlaceholders(final String text, final Collection<String> referencedKeys) {
+        Assert.notNull(text, "'text' must not be null");
+        return PlaceholderTemplate.compile(text).resolve(this.rawPropertyResolver, referencedKeys);
+    }
+
+    /**
+     * @return a new snapshot holding the given properties in addition to the properties of this one,
+     * or this snapshot if nothing changed.
+     */
+    public PropertySnapshot withProperties(final Map<String, String> changes) {
+        return withChanges(changes, Collections.emptySet());
+    }
+
+    /**
+     * @return a new snapshot holding the given properties in addition to the properties of this one and none of the
+     * removed keys, or this snapshot if nothing changed.
+     */
+    public PropertySnapshot withChanges(final Map<String, String> changes, final Collection<String> removedKeys) {
+        if (changes.isEmpty() && removedKeys.isEmpty()) {
+            return this;
+        }
+
+        final Map<String, String> next = new HashMap<>(this.properties);
+        next.keySet().removeAll(removedKeys);
+        next.putAll(changes);
+        return new PropertySnapshot(next, this.version + 1);
+    }
+
+    @Override
+    public String toString() {
+        return "{\"PropertySnapshot\":{"
+                + "\"version\":" + version
+                + ", \"size\":" + properties.size()
+                + "}}";
+    }
+}
@@ -0,0 +1,128 @@
+package com.bytegen.common.reload.resolver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Implementation of a {@link MutablePropertyResolver} holding an immutable {@link PropertySnapshot} behind a single
+ * volatile reference.
+ * <p>
+ * Reads take no lock and always see one consistent snapshot, writers build the next snapshot and swap it in with CAS,
+ * retrying on concurrent modification. Prefer {@link #setProperties(Map)} to update several properties at once.
+ */
+public class SnapshotPropertyResolver implements MutablePropertyResolver {
+    private static final Logger log = LoggerFactory.getLogger(SnapshotPropertyResolver.class);
+
+    private static final AtomicReferenceFieldUpdater<SnapshotPropertyResolver, PropertySnapshot> SNAPSHOT_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(SnapshotPropertyResolver.class, PropertySnapshot.class, "snapshot");
+
+    private volatile PropertySnapshot snapshot = PropertySnapshot.EMPTY;
+
+    @Override
+    public PropertySnapshot getSnapshot() {
+        return this.snapshot;
+    }
+
+    public void addProperties(Properties props) {
+        if (null != props) {
+            Map<String, String> changes = new HashMap<>();
+            for (String key : props.stringPropertyNames()) {
+                changes.put(key, props.getProperty(key));
+            }
+            setProperties(changes);
+        }
+    }
+
+    @Override
+    public Set<String> propertyNames() {
+        return this.snapshot.propertyNames();
+    }
+
+    @Override
+    public boolean containsProperty(String key) {
+        return this.snapshot.containsProperty(key);
+    }
+
+    @Override
+    public Object setProperty(String key, String value) {
+        Assert.notNull(key, "Property key must not be null");
+        Assert.notNull(value, "Property value must not be null");
+
+        return swap(Collections.singletonMap(key, value), Collections.emptySet()).getProperty(key);
+    }
+
+    @Override
+    public void setProperties(Map<String, String> properties) {
+        Assert.notNull(properties, "Properties must not be null");
+
+        swap(properties, Collections.emptySet());
+    }
+
+    @Override
+    public void updateProperties(Map<String, String> properties, Collection<String> removedKeys) {
+        Assert.notNull(properties, "Properties must not be null");
+        Assert.notNull(removedKeys, "Removed keys must not be null");
+
+        swap(properties, removedKeys);
+    }
+
+    @Override
+    public String getPropertyAsRawString(String key) {
+        return getProperty(key, false);
+    }
+
+    @Override
+    public String getProperty(String key) {
+        return getProperty(key, true);
+    }
+
+    @Override
+    public String resolvePlaceholders(String text) {
+        return this.snapshot.resolvePlaceholders(text, null);
+    }
+
+    @Override
+    public String resolvePlaceholders(String text, Collection<String> referencedKeys) {
+        Assert.notNull(referencedKeys, "'referencedKeys' must not be null");
+
+        return this.snapshot.resolvePlaceholders(text, referencedKeys);
+    }
+
+    protected String getProperty(String key, boolean resolveNestedPlaceholders) {
+        final PropertySnapshot current = this.snapshot;
+        String value = current.getProperty(key);
+        if (value != null) {
+            if (resolveNestedPlaceholders && !PlaceholderTemplate.isLiteral(value)) {
+                value = current.resolvePlaceholders(value, null);
+            }
+
+            log.debug("Found key '{}' in properties with value of {}", key, value);
+            return value;
+        }
+
+        log.info("Could not find key '{}' in properties", key);
+        return null;
+    }
+
+    /**
+     * @return the replaced snapshot
+     */
+    private PropertySnapshot swap(final Map<String, String> changes, final Collection<String> removedKeys) {
+        for (; ; ) {
+            final PropertySnapshot current = this.snapshot;
+            final PropertySnapshot next = current.withChanges(changes, removedKeys);
+            if (next == current || SNAPSHOT_UPDATER.compareAndSet(this, current, next)) {
+                return current;
+            }
+        }
+    }
+}
@@ -1,9 +1,22 @@
 package com.bytegen.common.reload;
 
+import com.bytegen.common.reload.bean.ConfigEpoch;
+import com.bytegen.common.reload.bean.ReloadingChildPropertyBean;
+import com.bytegen.common.reload.bean.ReloadingLatinPropertyBean;
 import com.bytegen.common.reload.bean.ReloadingPropertyBean;
+import com.bytegen.common.reload.core.ReloadResourceFactoryProcessor;
+import com.bytegen.common.reload.core.ReloadZnodePropertySupport;
 import com.bytegen.common.reload.core.PropertiesZookeeperWatcher;
+import com.bytegen.common.reload.core.ZnodeSnapshotStore;
+import com.bytegen.common.reload.handle.ReloadableInt;
+import com.bytegen.common.reload.metrics.ReloadMetrics;
+import com.bytegen.common.reload.metrics.ZnodeMetrics;
 import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.retry.RetryOneTime;
 import org.apache.curator.test.TestingServer;
+import org.apache.zookeeper.data.Stat;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -12,14 +25,24 @@ import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
 import org.springframework.core.io.support.PropertiesLoaderUtils;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import javax.annotation.Resource;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.OpenOption;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 
 import static org.hamcrest.CoreMatchers.is;
@@ -35,7 +58,13 @@ public class MainTest {
     @Resource
     ReloadingPropertyBean reloadingPropertyBean;
     @Resource
+    ReloadingChildPropertyBean reloadingChildPropertyBean;
+    @Resource
+    ReloadingLatinPropertyBean reloadingLatinPropertyBean;
+    @Resource
     TestServerConfig testServerConfig;
+    @Resource
+    ReloadZnodePropertySupport reloadZnodePropertySupport;
 
     private CuratorFramework client;
     private Properties loadedProperties;
@@ -57,6 +86,7 @@ public class MainTest {
         loadedProperties.load(new StringReader(initProperties));
 
         assertThat(this.reloadingPropertyBean.getIntProperty(), is(1));
+        assertThat(this.reloadingPropertyBean.getIntHandle().get(), is(1));
         assertThat(this.reloadingPropertyBean.getBoolProperty(), is(true));
         assertThat(this.reloadingPropertyBean.getStringProperty(), is("Injected String Value"));
         assertThat(this.reloadingPropertyBean.getCompositeStringProperty(), is("Hello, World!"));
@@ -118,6 +148,7 @@ public class MainTest {
 
         this.loadedProperties.setProperty("reloadable.baseStringValue", "Universe");
         assertThat(this.loadedProperties.getProperty("reloadable.compositeStringValue"), is("Hello, ${reloadable.baseStringValue}!"));
+        long epoch = this.reloadZnodePropertySupport.getCurrentEpoch().getEpoch();
 
         StringWriter writer = new StringWriter();
         loadedProperties.store(writer, null);
@@ -126,6 +157,225 @@ public class MainTest {
 
         Thread.sleep(300);
         assertThat(this.reloadingPropertyBean.getCompositeStringProperty(), is("Hello, Universe!"));
+
+        ConfigEpoch currentEpoch = this.reloadZnodePropertySupport.getCurrentEpoch();
+        assertThat(currentEpoch.getEpoch(), is(epoch + 1));
+        assertThat(currentEpoch.getChangedKeys().contains("reloadable.baseStringValue"), is(true));
+        assertThat(currentEpoch.resolvePlaceholders("${reloadable.compositeStringValue}"), is("Hello, Universe!"));
+    }
+
+    @Test
+    public void shouldReloadAlteredIntHandle() throws Exception {
+        ReloadableInt intHandle = this.reloadingPropertyBean.getIntHandle();
+        long version = intHandle.getVersion();
+
+        this.loadedProperties.setProperty("reloadable.intValue", "2");
+
+        StringWriter writer = new StringWriter();
+        loadedProperties.store(writer, null);
+        String string = writer.getBuffer().toString();
+        client.setData().forPath("/test", string.getBytes());
+
+        Thread.sleep(300);
+        assertThat(this.reloadingPropertyBean.getIntHandle(), is(intHandle));
+        assertThat(intHandle.get(), is(2));
+        assertThat(intHandle.getVersion(), is(version + 1));
+        assertThat(this.reloadingPropertyBean.getIntProperty(), is(2));
+    }
+
+    @Test
+    public void shouldRecordReloadMetrics() throws Exception {
+        ReloadMetrics metrics = this.reloadZnodePropertySupport.getMetrics();
+        long events = metrics.getEventsReceived();
+        long changedKeys = metrics.getChangedKeys();
+        long writes = metrics.getHistogram(ReloadMetrics.Stage.WRITE).getCount();
+
+        this.loadedProperties.setProperty("reloadable.stringValue", "Measured String Value");
+
+        StringWriter writer = new StringWriter();
+        loadedProperties.store(writer, null);
+        Stat stat = client.setData().forPath("/test", writer.getBuffer().toString().getBytes());
+
+        Thread.sleep(300);
+        assertThat(this.reloadingPropertyBean.getStringProperty(), is("Measured String Value"));
+        assertThat(metrics.getEventsReceived() > events, is(true));
+        assertThat(metrics.getChangedKeys(), is(changedKeys + 1));
+        assertThat(metrics.getHistogram(ReloadMetrics.Stage.WRITE).getCount() > writes, is(true));
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        String name = ObjectName.quote(metrics.getName());
+        ObjectName znodeName = new ObjectName(ReloadMetrics.DOMAIN + ":name=" + name + ",type=Znode,server="
+                + ObjectName.quote(testServerConfig.getServer().getConnectString()) + ",node=\"/test\"");
+        assertThat(server.getAttribute(znodeName, "LastAppliedVersion"), is((Object) stat.getVersion()));
+        ObjectName metricsName = new ObjectName(ReloadMetrics.DOMAIN + ":name=" + name + ",type=ReloadMetrics");
+        assertThat(server.getAttribute(metricsName, "ChangedKeys"), is((Object) metrics.getChangedKeys()));
+    }
+
+    @Test
+    public void shouldRegisterMetricsPerContext() throws Exception {
+        AnnotationConfigApplicationContext other = new AnnotationConfigApplicationContext();
+        other.setId(this.reloadZnodePropertySupport.getMetrics().getName());
+        other.register(ReloadResourceFactoryProcessor.class, ReloadZnodePropertySupport.class);
+        other.refresh();
+        try {
+            String name = other.getBean(ReloadZnodePropertySupport.class).getMetrics().getName();
+            assertThat(name, is(this.reloadZnodePropertySupport.getMetrics().getName() + "-2"));
+            assertThat(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(
+                    ReloadMetrics.DOMAIN + ":name=" + ObjectName.quote(name) + ",type=ReloadMetrics")), is(true));
+        } finally {
+            other.close();
+        }
+    }
+
+    @Test
+    public void shouldCallBackOncePerUpdate() throws Exception {
+        int reloads = this.reloadingPropertyBean.getReloads().size();
+
+        this.loadedProperties.setProperty("reloadable.stringValue", "Called Back String Value");
+        this.loadedProperties.setProperty("reloadable.boolValue", "false");
+        this.loadedProperties.setProperty("reloadable.unboundValue", "Called Back Unbound Value");
+
+        StringWriter writer = new StringWriter();
+        loadedProperties.store(writer, null);
+        client.setData().forPath("/test", writer.getBuffer().toString().getBytes());
+
+        Thread.sleep(300);
+        assertThat(this.reloadingPropertyBean.getReloads().size(), is(reloads + 1));
+        assertThat(this.reloadingPropertyBean.getReloads().get(reloads), is("2:Called Back String Value:false"));
+    }
+
+    @Test
+    public void shouldCatchUpWithZookeeperAfterStartingFromSnapshot() throws Exception {
+        TestingServer outageServer = new TestingServer(-1, false);
+        Path snapshotDirectory = Files.createTempDirectory("auto-reload-snapshot");
+        Stat stat = new Stat();
+        stat.setVersion(0);
+        new ZnodeSnapshotStore(snapshotDirectory).save(outageServer.getConnectString(), "/test", new ChildData("/test",
+                stat, initProperties.replace("Injected String Value", "Snapshot String Value").getBytes()));
+
+        AnnotationConfigApplicationContext other = new AnnotationConfigApplicationContext();
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("test_server", outageServer.getConnectString());
+        properties.put(ReloadZnodePropertySupport.SNAPSHOT_DIRECTORY, snapshotDirectory.toString());
+        properties.put(ReloadZnodePropertySupport.METRICS_JMX_ENABLED, "false");
+        other.getEnvironment().getPropertySources().addFirst(new MapPropertySource("other", properties));
+        other.register(ReloadResourceFactoryProcessor.class, ReloadZnodePropertySupport.class, ReloadingPropertyBean.class);
+        other.refresh();
+        CuratorFramework outageClient = CuratorFrameworkFactory.newClient(outageServer.getConnectString(),
+                new RetryOneTime(100));
+        try {
+            ReloadingPropertyBean otherBean = other.getBean(ReloadingPropertyBean.class);
+            assertThat(otherBean.getStringProperty(), is("Snapshot String Value"));
+            // the first read gives up after the connection timeout and the retries of the client
+            ZnodeMetrics znodeMetrics = other.getBean(ReloadZnodePropertySupport.class).getMetrics()
+                    .znode(outageServer.getConnectString(), "/test");
+            for (int i = 0; i < 1800 && znodeMetrics.getFailedReads() == 0; i++) {
+                Thread.sleep(100);
+            }
+            assertThat(znodeMetrics.getFailedReads(), is(1L));
+
+            outageServer.start();
+            outageClient.start();
+            outageClient.create().forPath("/test", initProperties.getBytes());
+
+            for (int i = 0; i < 100 && !"Injected String Value".equals(otherBean.getStringProperty()); i++) {
+                Thread.sleep(100);
+            }
+            assertThat(otherBean.getStringProperty(), is("Injected String Value"));
+        } finally {
+            other.close();
+            outageClient.close();
+            outageServer.close();
+        }
+    }
+
+    @Test
+    public void shouldCallBackOncePerUpdateOnSeveralLanes() throws Exception {
+        AnnotationConfigApplicationContext other = new AnnotationConfigApplicationContext();
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(ReloadZnodePropertySupport.DISPATCH_THREADS, "4");
+        properties.put(ReloadZnodePropertySupport.METRICS_JMX_ENABLED, "false");
+        other.getEnvironment().getPropertySources().addFirst(new MapPropertySource("other", properties));
+        other.register(ReloadResourceFactoryProcessor.class, ReloadZnodePropertySupport.class, ReloadingPropertyBean.class);
+        other.refresh();
+        try {
+            ReloadingPropertyBean otherBean = other.getBean(ReloadingPropertyBean.class);
+
+            this.loadedProperties.setProperty("reloadable.stringValue", "Laned String Value");
+            this.loadedProperties.setProperty("reloadable.boolValue", "false");
+            this.loadedProperties.setProperty("reloadable.intValue", "7");
+            this.loadedProperties.setProperty("reloadable.unboundValue", "Laned Unbound Value");
+
+            StringWriter writer = new StringWriter();
+            loadedProperties.store(writer, null);
+            client.setData().forPath("/test", writer.getBuffer().toString().getBytes());
+
+            Thread.sleep(300);
+            assertThat(otherBean.getIntProperty(), is(7));
+            assertThat(otherBean.getReloads(), is(Collections.singletonList("3:Laned String Value:false")));
+        } finally {
+            other.close();
+        }
+    }
+
+    @Test
+    public void shouldRouteChangesPerContext() throws Exception {
+        AnnotationConfigApplicationContext other = new AnnotationConfigApplicationContext();
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(ReloadZnodePropertySupport.DISPATCH_MODE, "sync");
+        properties.put(ReloadZnodePropertySupport.METRICS_JMX_ENABLED, "false");
+        other.getEnvironment().getPropertySources().addFirst(new MapPropertySource("other", properties));
+        other.register(ReloadResourceFactoryProcessor.class, ReloadZnodePropertySupport.class, ReloadingPropertyBean.class);
+        other.refresh();
+        try {
+            ReloadingPropertyBean otherBean = other.getBean(ReloadingPropertyBean.class);
+            assertThat(otherBean.getStringProperty(), is("Injected String Value"));
+            assertThat(other.getBean(ReloadZnodePropertySupport.class).getEventNotifier()
+                    == this.reloadZnodePropertySupport.getEventNotifier(), is(false));
+
+            this.loadedProperties.setProperty("reloadable.stringValue", "Routed String Value");
+
+            StringWriter writer = new StringWriter();
+            loadedProperties.store(writer, null);
+            client.setData().forPath("/test", writer.getBuffer().toString().getBytes());
+
+            Thread.sleep(300);
+            assertThat(this.reloadingPropertyBean.getStringProperty(), is("Routed String Value"));
+            assertThat(otherBean.getStringProperty(), is("Routed String Value"));
+        } finally {
+            other.close();
+        }
+    }
+
+    @Test
+    public void shouldReloadAlteredChildProperty() throws Exception {
+        assertThat(this.reloadingChildPropertyBean.getChildProperty(), is("Child Value"));
+
+        client.setData().forPath("/test-keys/reloadable.childValue", "Altered Child Value".getBytes());
+
+        Thread.sleep(300);
+        assertThat(this.reloadingChildPropertyBean.getChildProperty(), is("Altered Child Value"));
+
+        client.setData().forPath("/test-keys/reloadable.childValue", "Child Value".getBytes());
+
+        Thread.sleep(300);
+        assertThat(this.reloadingChildPropertyBean.getChildProperty(), is("Child Value"));
+    }
+
+    @Test
+    public void shouldReloadAlteredPropertyWithZnodeEncoding() throws Exception {
+        assertThat(this.reloadingLatinPropertyBean.getLatinProperty(), is("Caf\u00e9"));
+
+        client.setData().forPath("/test-latin", "reloadable.latinValue=Cr\u00e8me br\u00fbl\u00e9e"
+                .getBytes(StandardCharsets.ISO_8859_1));
+
+        Thread.sleep(300);
+        assertThat(this.reloadingLatinPropertyBean.getLatinProperty(), is("Cr\u00e8me br\u00fbl\u00e9e"));
+
+        client.setData().forPath("/test-latin", "reloadable.latinValue=Caf\u00e9".getBytes(StandardCharsets.ISO_8859_1));
+
+        Thread.sleep(300);
+        assertThat(this.reloadingLatinPropertyBean.getLatinProperty(), is("Caf\u00e9"));
     }
 
     @Test
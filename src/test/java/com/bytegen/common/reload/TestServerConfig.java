@@ -7,6 +7,8 @@ import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+
 /**
  * User: xiang
  * Date: 2018/9/4
@@ -37,6 +39,14 @@ public class TestServerConfig implements BeanFactoryPostProcessor {
             PropertiesZookeeperWatcher.ZooKeeperClientHolder
                     .getClient(server.getConnectString(), null)
                     .create().orSetData().forPath("/test", initProperties.getBytes());
+            PropertiesZookeeperWatcher.ZooKeeperClientHolder
+                    .getClient(server.getConnectString(), null)
+                    .create().orSetData().creatingParentsIfNeeded()
+                    .forPath("/test-keys/reloadable.childValue", "Child Value".getBytes());
+            PropertiesZookeeperWatcher.ZooKeeperClientHolder
+                    .getClient(server.getConnectString(), null)
+                    .create().orSetData()
+                    .forPath("/test-latin", "reloadable.latinValue=Caf\u00e9".getBytes(StandardCharsets.ISO_8859_1));
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -0,0 +1,25 @@
+package com.bytegen.common.reload.bean;
+
+import com.bytegen.common.reload.ReloadValue;
+import com.bytegen.common.reload.ReloadZnode;
+import org.springframework.stereotype.Component;
+
+@Component
+@ReloadZnode(zookeeperServer = "${test_server}", zookeeperAuth = "",
+        zookeeperPath = "/test-keys", layout = ReloadZnode.Layout.KEY_PER_CHILD)
+public class ReloadingChildPropertyBean {
+
+    @ReloadValue(value = "${reloadable.childValue}")
+    private String childProperty;
+
+    public String getChildProperty() {
+        return this.childProperty;
+    }
+
+    @Override
+    public String toString() {
+        return "{\"ReloadingChildPropertyBean\":{"
+                + "\"childProperty\":\"" + childProperty + "\""
+                + "}}";
+    }
+}
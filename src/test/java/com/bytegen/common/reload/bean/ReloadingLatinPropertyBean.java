@@ -0,0 +1,25 @@
+package com.bytegen.common.reload.bean;
+
+import com.bytegen.common.reload.ReloadValue;
+import com.bytegen.common.reload.ReloadZnode;
+import org.springframework.stereotype.Component;
+
+@Component
+@ReloadZnode(zookeeperServer = "${test_server}", zookeeperAuth = "",
+        zookeeperPath = "/test-latin", encoding = "ISO-8859-1")
+public class ReloadingLatinPropertyBean {
+
+    @ReloadValue(value = "${reloadable.latinValue}")
+    private String latinProperty;
+
+    public String getLatinProperty() {
+        return this.latinProperty;
+    }
+
+    @Override
+    public String toString() {
+        return "{\"ReloadingLatinPropertyBean\":{"
+                + "\"latinProperty\":\"" + latinProperty + "\""
+                + "}}";
+    }
+}
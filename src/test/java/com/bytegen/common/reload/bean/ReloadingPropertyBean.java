@@ -1,11 +1,15 @@
 package com.bytegen.common.reload.bean;
 
+import com.bytegen.common.reload.OnReload;
 import com.bytegen.common.reload.ReloadValue;
 import com.bytegen.common.reload.ReloadZnode;
 import com.bytegen.common.reload.conversion.ListPropertyConversion;
+import com.bytegen.common.reload.handle.ReloadableInt;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 @Component
 @ReloadZnode(zookeeperServer = "${test_server}", zookeeperAuth = "",
@@ -14,6 +18,8 @@ public class ReloadingPropertyBean {
 
     @ReloadValue(value = "${reloadable.intValue}")
     private int intProperty;
+    @ReloadValue(value = "${reloadable.intValue}")
+    private final ReloadableInt intHandle = new ReloadableInt();
     @ReloadValue(value = "${reloadable.boolValue}")
     private boolean boolProperty;
 
@@ -26,10 +32,26 @@ public class ReloadingPropertyBean {
     @ReloadValue(value = "${reloadable.listProperty}", conversion = ListPropertyConversion.class)
     private List<String> listProperty;
 
+    // fields as seen by every reload callback
+    private final List<String> reloads = new CopyOnWriteArrayList<>();
+
+    @OnReload
+    void onReload(Set<String> changedKeys) {
+        reloads.add(changedKeys.size() + ":" + stringProperty + ":" + boolProperty);
+    }
+
+    public List<String> getReloads() {
+        return reloads;
+    }
+
     public int getIntProperty() {
         return intProperty;
     }
 
+    public ReloadableInt getIntHandle() {
+        return intHandle;
+    }
+
     public boolean getBoolProperty() {
         return boolProperty;
     }
@@ -50,6 +72,7 @@ public class ReloadingPropertyBean {
     public String toString() {
         return "{\"ReloadingPropertyBean\":{"
                 + "\"intProperty\":\"" + intProperty + "\""
+                + ", \"intHandle\":\"" + intHandle.get() + "\""
                 + ", \"boolProperty\":\"" + boolProperty + "\""
                 + ", \"stringProperty\":\"" + stringProperty + "\""
                 + ", \"compositeStringProperty\":\"" + compositeStringProperty + "\""
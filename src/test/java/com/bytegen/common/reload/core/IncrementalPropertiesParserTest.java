@@ -0,0 +1,131 @@
+package com.bytegen.common.reload.core;
+
+import com.bytegen.common.reload.event.PropertiesDelta;
+import org.apache.zookeeper.data.Stat;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.GZIPOutputStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class IncrementalPropertiesParserTest {
+
+    private IncrementalPropertiesParser parser;
+
+    @Before
+    public void setUp() {
+        parser = new IncrementalPropertiesParser(StandardCharsets.UTF_8);
+    }
+
+    private static Stat stat(int version, long mzxid) {
+        Stat stat = new Stat();
+        stat.setVersion(version);
+        stat.setMzxid(mzxid);
+        return stat;
+    }
+
+    private static Map<String, String> load(String text) throws Exception {
+        Properties properties = new Properties();
+        properties.load(new StringReader(text));
+        Map<String, String> map = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            map.put(key, properties.getProperty(key));
+        }
+        return map;
+    }
+
+    @Test
+    public void shouldParseLikeProperties() throws Exception {
+        String[] texts = {"a=1\nb=2", "a=1\r\nb=2\r\n", "a=1\rb=2", "  # comment \\\na=1", "! comment\\\nb=2",
+                "a=multi\\\n   line\\\n  value\nb=2", "a=trailing\\\\\nb=2", "a=\\\n", "\n\n  \na : spaced value  \n",
+                "a=1\na=2", "key\\ with\\ spaces=v", "a=\\u0041\nb=\\\n#not comment", "a=last\\"};
+        for (String text : texts) {
+            IncrementalPropertiesParser fresh = new IncrementalPropertiesParser(StandardCharsets.UTF_8);
+            fresh.parse(null, text.getBytes(StandardCharsets.UTF_8));
+            assertThat(text, fresh.getProperties(), is(load(text)));
+        }
+    }
+
+    @Test
+    public void shouldParseChangedLinesOnly() throws Exception {
+        parser.parse(stat(1, 10), "a=1\nb=2\nc=3\n".getBytes(StandardCharsets.UTF_8));
+        long parsedLines = parser.getParsedLines();
+
+        PropertiesDelta delta = parser.parse(stat(2, 11), "a=1\nb=20\nd=4\n".getBytes(StandardCharsets.UTF_8));
+        assertThat(parser.getParsedLines() - parsedLines, is(2L));
+
+        Map<String, String> changed = new HashMap<>();
+        changed.put("b", "20");
+        changed.put("d", "4");
+        assertThat(delta.getChanged(), is(changed));
+        assertThat(delta.getRemoved(), is(Collections.singleton("c")));
+    }
+
+    @Test
+    public void shouldSkipUnchangedPayloads() throws Exception {
+        byte[] payload = "a=1\n".getBytes(StandardCharsets.UTF_8);
+        parser.parse(stat(1, 10), payload);
+
+        assertThat(parser.parse(stat(1, 10), payload), sameInstance(PropertiesDelta.EMPTY));
+        assertThat(parser.parse(stat(2, 11), payload.clone()), sameInstance(PropertiesDelta.EMPTY));
+        assertThat(parser.getSkippedPayloads(), is(2L));
+    }
+
+    @Test
+    public void shouldParseCompressedPayloads() throws Exception {
+        byte[] plain = "a=1\nb=2\n".getBytes(StandardCharsets.UTF_8);
+        parser.parse(null, ZnodePayloadCodec.compress(plain, ZnodePayloadCodec.Compression.DEFLATE));
+        assertThat(parser.getProperties(), is(load("a=1\nb=2\n")));
+
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+            out.write("a=1\nb=3\n".getBytes(StandardCharsets.UTF_8));
+        }
+        PropertiesDelta delta = parser.parse(null, gzip.toByteArray());
+        assertThat(delta.getChanged(), is(Collections.singletonMap("b", "3")));
+
+        delta = parser.parse(null, ZnodePayloadCodec.compress(plain, ZnodePayloadCodec.Compression.GZIP));
+        assertThat(delta.getChanged(), is(Collections.singletonMap("b", "2")));
+        assertThat(ZnodePayloadCodec.decompress(plain), sameInstance(plain));
+    }
+
+    @Test
+    public void shouldDiffBinaryTables() throws Exception {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("a", "1");
+        properties.put("b", "2");
+        properties.put("\u00e9t\u00e9", "summer");
+        BinaryPropertiesTable table = BinaryPropertiesTable.wrap(ByteBuffer.wrap(BinaryPropertiesTable.encode(properties)));
+        assertThat(table.getProperty("\u00e9t\u00e9"), is("summer"));
+        assertThat(table.getProperty("c"), nullValue());
+        assertThat(table.toMap(), is(properties));
+
+        parser.parse(null, "a=1\nb=2\nc=3\n".getBytes(StandardCharsets.UTF_8));
+        PropertiesDelta delta = parser.parse(null, BinaryPropertiesTable.encode(properties));
+        assertThat(delta.getChanged(), is(Collections.singletonMap("\u00e9t\u00e9", "summer")));
+        assertThat(delta.getRemoved(), is(Collections.singleton("c")));
+
+        properties.put("b", "20");
+        properties.remove("a");
+        delta = parser.parse(null, ZnodePayloadCodec.compress(BinaryPropertiesTable.encode(properties),
+                ZnodePayloadCodec.Compression.DEFLATE));
+        assertThat(delta.getChanged(), is(Collections.singletonMap("b", "20")));
+        assertThat(delta.getRemoved(), is(Collections.singleton("a")));
+        assertThat(parser.getProperties(), is(properties));
+
+        delta = parser.parse(null, "b=20\n".getBytes(StandardCharsets.UTF_8));
+        assertThat(delta.getRemoved(), is(Collections.singleton("\u00e9t\u00e9")));
+    }
+}
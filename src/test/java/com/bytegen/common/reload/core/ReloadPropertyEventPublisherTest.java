@@ -0,0 +1,174 @@
+package com.bytegen.common.reload.core;
+
+import com.bytegen.common.reload.bean.PropertyChangeBatch;
+import com.bytegen.common.reload.bean.PropertyChangedEvent;
+import com.bytegen.common.reload.event.ConfigChangeSet;
+import com.bytegen.common.reload.event.DispatchTableEventNotifier;
+import com.bytegen.common.reload.event.EventSubscriber;
+import com.bytegen.common.reload.event.PropertiesDelta;
+import com.bytegen.common.reload.metrics.ReloadMetrics;
+import com.bytegen.common.reload.resolver.SnapshotPropertyResolver;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class ReloadPropertyEventPublisherTest {
+
+    private final List<PropertyChangedEvent> events = new ArrayList<>();
+
+    private ReloadPropertyEventPublisher publisher(ReloadPropertyEventPublisher.TombstonePolicy tombstonePolicy) {
+        SnapshotPropertyResolver resolver = new SnapshotPropertyResolver();
+        Map<String, String> properties = new HashMap<>();
+        properties.put("a", "1");
+        properties.put("b", "2");
+        resolver.setProperties(properties);
+
+        DispatchTableEventNotifier notifier = new DispatchTableEventNotifier();
+        notifier.register(events::add);
+        ReloadPropertyEventPublisher publisher = new ReloadPropertyEventPublisher(resolver, notifier, new HashMap<>(),
+                new ReloadMetrics(), tombstonePolicy);
+        publisher.addPlaceholder("${a}");
+        publisher.addPlaceholder("${b:20}");
+        publisher.addPlaceholder("${c:30}");
+        return publisher;
+    }
+
+    @Test
+    public void shouldClassifyChanges() {
+        Map<String, String> current = new HashMap<>();
+        current.put("a", "1");
+        current.put("b", "2");
+        current.put("c", "3");
+        Map<String, String> changed = new HashMap<>();
+        changed.put("a", "1");
+        changed.put("b", "20");
+        changed.put("d", "4");
+
+        ConfigChangeSet changes = ConfigChangeSet.diff(current,
+                new PropertiesDelta(changed, new HashSet<>(Arrays.asList("c", "e"))));
+        assertThat(changes.getAdded(), is(Collections.singletonMap("d", "4")));
+        assertThat(changes.getModified(), is(Collections.singletonMap("b", "20")));
+        assertThat(changes.getRemoved(), is(Collections.singleton("c")));
+        assertThat(changes.getPreviousValue("b"), is("2"));
+        assertThat(changes.getPreviousValue("c"), is("3"));
+        assertThat(changes.withoutRemoved().getChangedKeys().size(), is(2));
+    }
+
+    @Test
+    public void shouldPublishAddedKeys() {
+        ReloadPropertyEventPublisher publisher = publisher(ReloadPropertyEventPublisher.TombstonePolicy.KEEP);
+
+        publisher.onPropertiesChanged(PropertiesDelta.changed("c", "3"));
+        assertThat(events, is(Collections.singletonList(new PropertyChangedEvent("${c:30}", "30", "3", 1L))));
+        assertThat(publisher.getCurrentEpoch().getChangeSet().getAdded(), is(Collections.singletonMap("c", "3")));
+
+        events.clear();
+        publisher.onPropertiesChanged(PropertiesDelta.removed("c"));
+        assertThat(events.isEmpty(), is(true));
+        assertThat(publisher.getPropertyResolver().getPropertyAsRawString("c"), is("3"));
+    }
+
+    @Test
+    public void shouldFallBackToDefaultsOfRemovedKeys() {
+        ReloadPropertyEventPublisher publisher = publisher(ReloadPropertyEventPublisher.TombstonePolicy.REMOVE);
+
+        publisher.onPropertiesChanged(new PropertiesDelta(Collections.emptyMap(),
+                new HashSet<>(Arrays.asList("a", "b"))));
+        assertThat(events, is(Collections.singletonList(new PropertyChangedEvent("${b:20}", "2", "20", 1L))));
+        assertThat(publisher.getCurrentEpoch().getChangeSet().getRemoved().size(), is(2));
+
+        events.clear();
+        publisher.onPropertiesChanged(PropertiesDelta.changed("a", "1"));
+        assertThat(events.isEmpty(), is(true));
+        publisher.onPropertiesChanged(PropertiesDelta.changed("a", "10"));
+        assertThat(events, is(Collections.singletonList(new PropertyChangedEvent("${a}", "1", "10", 3L))));
+    }
+
+    @Test
+    public void shouldRevertUnresolvablePlaceholders() {
+        ReloadPropertyEventPublisher publisher = publisher(ReloadPropertyEventPublisher.TombstonePolicy.REVERT);
+
+        publisher.onPropertiesChanged(PropertiesDelta.removed("a"));
+        assertThat(events, is(Collections.singletonList(new PropertyChangedEvent("${a}", "1", null, 1L))));
+        assertThat(publisher.getCurrentEpoch().getChangedPlaceholders().get("${a}"), nullValue());
+
+        events.clear();
+        publisher.onPropertiesChanged(PropertiesDelta.changed("a", "1"));
+        assertThat(events, is(Collections.singletonList(new PropertyChangedEvent("${a}", null, "1", 2L))));
+    }
+
+    @Test
+    public void shouldKeepKeysDefinedByOtherSources() {
+        ReloadPropertyEventPublisher publisher = publisher(ReloadPropertyEventPublisher.TombstonePolicy.REMOVE);
+        publisher.setSourceProperties("/first", Collections.singletonMap("a", "1"));
+        Map<String, String> second = new HashMap<>();
+        second.put("a", "1");
+        second.put("b", "2");
+        publisher.setSourceProperties("/second", second);
+
+        publisher.onPropertiesChanged("/first", PropertiesDelta.removed("a"));
+        assertThat(events.isEmpty(), is(true));
+        assertThat(publisher.getPropertyResolver().getPropertyAsRawString("a"), is("1"));
+
+        publisher.onPropertiesChanged("/first", PropertiesDelta.changed("b", "5"));
+        publisher.onPropertiesChanged("/first", PropertiesDelta.removed("b"));
+        assertThat(events, is(Arrays.asList(new PropertyChangedEvent("${b:20}", "2", "5", 1L),
+                new PropertyChangedEvent("${b:20}", "5", "2", 2L))));
+        assertThat(publisher.getPropertyResolver().getPropertyAsRawString("b"), is("2"));
+
+        events.clear();
+        publisher.onPropertiesChanged("/second", PropertiesDelta.removed("a"));
+        assertThat(publisher.getCurrentEpoch().getChangeSet().getRemoved(), is(Collections.singleton("a")));
+        assertThat(publisher.getPropertyResolver().getPropertyAsRawString("a"), nullValue());
+    }
+
+    @Test
+    public void shouldPublishChangedKeysPerPlaceholder() {
+        SnapshotPropertyResolver resolver = new SnapshotPropertyResolver();
+        Map<String, String> properties = new HashMap<>();
+        properties.put("greeting", "Hello, ${name}!");
+        properties.put("name", "World");
+        properties.put("other", "1");
+        resolver.setProperties(properties);
+
+        List<PropertyChangeBatch> batches = new ArrayList<>();
+        DispatchTableEventNotifier notifier = new DispatchTableEventNotifier();
+        notifier.register(new EventSubscriber() {
+            @Override
+            public void onPropertyChangedEvent(PropertyChangedEvent event) {
+            }
+
+            @Override
+            public void onPropertyChangeBatch(PropertyChangeBatch batch) {
+                batches.add(batch);
+            }
+        });
+        ReloadPropertyEventPublisher publisher = new ReloadPropertyEventPublisher(resolver, notifier, new HashMap<>());
+        publisher.addPlaceholder("${greeting}");
+        publisher.addPlaceholder("${other}");
+
+        Map<String, String> changed = new HashMap<>();
+        changed.put("name", "Reload");
+        changed.put("other", "2");
+        changed.put("unbound", "3");
+        publisher.onPropertiesChanged(new PropertiesDelta(changed, Collections.emptySet()));
+
+        assertThat(batches.size(), is(1));
+        PropertyChangeBatch batch = batches.get(0);
+        assertThat(batch.getChangedKeys(), is(new HashSet<>(Arrays.asList("name", "other", "unbound"))));
+        assertThat(batch.getChangedKeys(Collections.singletonList(
+                new PropertyChangedEvent("${greeting}", "Hello, World!", "Hello, Reload!", 1L))),
+                is(Collections.singleton("name")));
+        assertThat(batch.getChangedKeys(batch.getEvents()), is(new HashSet<>(Arrays.asList("name", "other"))));
+    }
+}
@@ -0,0 +1,53 @@
+package com.bytegen.common.reload.core;
+
+import com.bytegen.common.reload.bean.BeanPropertyHolder;
+import com.bytegen.common.reload.bean.PropertyChangeBatch;
+import com.bytegen.common.reload.bean.PropertyChangedEvent;
+import com.bytegen.common.reload.conversion.DefaultPropertyConversion;
+import com.bytegen.common.reload.conversion.PropertyConversionCache;
+import com.bytegen.common.reload.event.GuavaEventNotifier;
+import com.bytegen.common.reload.metrics.ReloadMetrics;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ReloadPropertyEventSubscriberTest {
+
+    static class Target {
+        int count;
+        String name;
+    }
+
+    private static BeanPropertyHolder holder(Target target, String fieldName) throws NoSuchFieldException {
+        Field field = Target.class.getDeclaredField(fieldName);
+        field.setAccessible(true);
+        return new BeanPropertyHolder(target, field, DefaultPropertyConversion.getInstance());
+    }
+
+    @Test
+    public void shouldWriteRemainingFieldsOnConversionFailure() throws Exception {
+        Target target = new Target();
+        Map<String, Set<BeanPropertyHolder>> subscriptions = new HashMap<>();
+        subscriptions.put("${count}", Collections.singleton(holder(target, "count")));
+        subscriptions.put("${name}", Collections.singleton(holder(target, "name")));
+        ReloadMetrics metrics = new ReloadMetrics();
+        ReloadPropertyEventSubscriber subscriber = new ReloadPropertyEventSubscriber(
+                new GuavaEventNotifier("subscriber-test"), new PropertyConversionCache(), subscriptions, metrics);
+
+        subscriber.onPropertyChangeBatch(new PropertyChangeBatch(1L, new HashSet<>(Arrays.asList("count", "name")),
+                Arrays.asList(new PropertyChangedEvent("${count}", "0", "not a number", 1L),
+                        new PropertyChangedEvent("${name}", null, "reloaded", 1L))));
+        assertThat(target.count, is(0));
+        assertThat(target.name, is("reloaded"));
+        assertThat(metrics.getConversionFailures(), is(1L));
+    }
+}
@@ -0,0 +1,41 @@
+package com.bytegen.common.reload.core;
+
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.zookeeper.data.Stat;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class ZnodeSnapshotStoreTest {
+
+    private static ChildData data(int version, String payload) {
+        Stat stat = new Stat();
+        stat.setVersion(version);
+        stat.setMzxid(version * 10L);
+        return new ChildData("/node", stat, payload.getBytes());
+    }
+
+    @Test
+    public void shouldStoreLatestDataInBackground() throws Exception {
+        Path directory = Files.createTempDirectory("auto-reload-snapshot");
+        ZnodeSnapshotStore store = new ZnodeSnapshotStore(directory);
+
+        for (int version = 1; version <= 20; version++) {
+            store.saveAsync("server", "/node", data(version, "key=" + version));
+        }
+        store.shutdown();
+
+        ZnodeSnapshotStore.ZnodeSnapshot snapshot = store.load("server", "/node");
+        assertThat(snapshot.getVersion(), is(20));
+        assertThat(snapshot.getMzxid(), is(200L));
+        assertThat(new String(snapshot.getData()), is("key=20"));
+
+        store.saveAsync("server", "/other", data(1, "key=1"));
+        assertThat(store.load("server", "/other"), nullValue());
+    }
+}
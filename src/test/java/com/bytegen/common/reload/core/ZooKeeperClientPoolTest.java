@@ -0,0 +1,41 @@
+package com.bytegen.common.reload.core;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.imps.CuratorFrameworkState;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class ZooKeeperClientPoolTest {
+
+    private static final String SERVER = "127.0.0.1:1";
+
+    @Test
+    public void shouldCloseClientWithLastLease() {
+        ZooKeeperClientPool pool = ZooKeeperClientPool.getInstance();
+        int openClients = pool.getOpenClients();
+
+        ZooKeeperClientPool.Lease first = pool.acquire(SERVER, "pool:test");
+        ZooKeeperClientPool.Lease second = pool.acquire(SERVER, "pool:test");
+        ZooKeeperClientPool.Lease other = pool.acquire(SERVER, "pool:other");
+        CuratorFramework client = first.getClient();
+        assertThat(second.getClient(), sameInstance(client));
+        assertThat(other.getClient(), not(sameInstance(client)));
+        assertThat(pool.getOpenClients(), is(openClients + 2));
+
+        first.close();
+        first.close();
+        assertThat(client.getState(), is(CuratorFrameworkState.STARTED));
+        second.close();
+        assertThat(client.getState(), is(CuratorFrameworkState.STOPPED));
+
+        other.close();
+        assertThat(pool.getOpenClients(), is(openClients));
+        try (ZooKeeperClientPool.Lease again = pool.acquire(SERVER, "pool:test")) {
+            assertThat(again.getClient(), not(sameInstance(client)));
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.bytegen.common.reload.event;
+
+import com.bytegen.common.reload.bean.PropertyChangeBatch;
+import com.bytegen.common.reload.bean.PropertyChangedEvent;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class AsyncEventNotifierTest {
+
+    /**
+     * Handler writing one field of a target, recording the fields of the target once notified.
+     */
+    private static final class FieldHandler implements PropertyChangeHandler {
+        private final Map<String, Object> target;
+        private final String field;
+        private final List<String> notified;
+        private final CountDownLatch latch;
+
+        private FieldHandler(Map<String, Object> target, String field, List<String> notified, CountDownLatch latch) {
+            this.target = target;
+            this.field = field;
+            this.notified = notified;
+            this.latch = latch;
+        }
+
+        @Override
+        public void onPropertyChanged(PropertyChangedEvent event) {
+            target.put(field, event.getNewValue());
+        }
+
+        @Override
+        public Object getTarget() {
+            return target;
+        }
+
+        @Override
+        public void onTargetChanged(PropertyChangeBatch batch, List<PropertyChangedEvent> events) {
+            notified.add(target.get("id") + ":" + target.get("a") + target.get("b") + target.get("c"));
+            latch.countDown();
+        }
+    }
+
+    @Test
+    public void shouldApplyChangesOfOneTargetOnOneLane() throws Exception {
+        int targets = 16;
+        AsyncEventNotifier notifier = new AsyncEventNotifier(4, 16, AsyncEventNotifier.BackpressurePolicy.BLOCK);
+        List<String> notified = new CopyOnWriteArrayList<>();
+        List<PropertyChangeBatch> subscribed = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(targets + 1);
+        try {
+            Map<String, List<PropertyChangeHandler>> handlers = new HashMap<>();
+            for (int i = 0; i < targets; i++) {
+                Map<String, Object> target = new ConcurrentHashMap<>();
+                target.put("id", i);
+                for (String field : Arrays.asList("a", "b", "c")) {
+                    handlers.computeIfAbsent("${" + field + "}", k -> new ArrayList<>())
+                            .add(new FieldHandler(target, field, notified, latch));
+                }
+            }
+            notifier.bindAll(handlers);
+            notifier.register(new EventSubscriber() {
+                @Override
+                public void onPropertyChangedEvent(PropertyChangedEvent event) {
+                }
+
+                @Override
+                public void onPropertyChangeBatch(PropertyChangeBatch batch) {
+                    subscribed.add(batch);
+                    latch.countDown();
+                }
+            });
+
+            notifier.post(new PropertyChangeBatch(1L, new HashSet<>(Arrays.asList("a", "b", "c")), Arrays.asList(
+                    new PropertyChangedEvent("${a}", null, "1", 1L),
+                    new PropertyChangedEvent("${b}", null, "2", 1L),
+                    new PropertyChangedEvent("${c}", null, "3", 1L))));
+            assertThat(latch.await(5, TimeUnit.SECONDS), is(true));
+
+            assertThat(notified.size(), is(targets));
+            for (int i = 0; i < targets; i++) {
+                assertThat(notified.contains(i + ":123"), is(true));
+            }
+            assertThat(subscribed.size(), is(1));
+            assertThat(subscribed.get(0).size(), is(3));
+            // counted once the subscribers returned
+            for (int i = 0; i < 50 && notifier.getDispatchedEvents() < 3L; i++) {
+                Thread.sleep(10);
+            }
+            assertThat(notifier.getDispatchedEvents(), is(3L));
+        } finally {
+            notifier.shutdown();
+        }
+    }
+
+    private static Map<String, List<PropertyChangeHandler>> bindTargets(int targets, List<String> notified) {
+        Map<String, List<PropertyChangeHandler>> handlers = new HashMap<>();
+        for (int i = 0; i < targets; i++) {
+            Map<String, Object> target = new ConcurrentHashMap<>();
+            target.put("id", i);
+            for (String field : Arrays.asList("a", "b", "c")) {
+                target.put(field, "0");
+                handlers.computeIfAbsent("${" + field + "}", k -> new ArrayList<>())
+                        .add(new FieldHandler(target, field, notified, new CountDownLatch(0)));
+            }
+        }
+        return handlers;
+    }
+
+    private static void runAll(List<Runnable> tasks) {
+        List<Runnable> scheduled = new ArrayList<>(tasks);
+        tasks.clear();
+        scheduled.forEach(Runnable::run);
+    }
+
+    @Test
+    public void shouldCoalesceQueuedBatches() {
+        int targets = 16;
+        List<Runnable> tasks = new ArrayList<>();
+        AsyncEventNotifier notifier = new AsyncEventNotifier(tasks::add, 4, 1,
+                AsyncEventNotifier.BackpressurePolicy.COALESCE);
+        List<String> notified = new ArrayList<>();
+        List<PropertyChangeBatch> subscribed = new ArrayList<>();
+        notifier.bindAll(bindTargets(targets, notified));
+        notifier.register(new EventSubscriber() {
+            @Override
+            public void onPropertyChangedEvent(PropertyChangedEvent event) {
+            }
+
+            @Override
+            public void onPropertyChangeBatch(PropertyChangeBatch batch) {
+                subscribed.add(batch);
+            }
+        });
+
+        Map<String, Set<String>> firstKeys = new HashMap<>();
+        firstKeys.put("${a}", Collections.singleton("a"));
+        firstKeys.put("${b}", Collections.singleton("b"));
+        notifier.post(new PropertyChangeBatch(1L, new HashSet<>(Arrays.asList("a", "b")), Arrays.asList(
+                new PropertyChangedEvent("${a}", "0", "1", 1L),
+                new PropertyChangedEvent("${b}", "0", "1", 1L)), firstKeys));
+        Map<String, Set<String>> secondKeys = new HashMap<>();
+        secondKeys.put("${a}", Collections.singleton("x"));
+        secondKeys.put("${c}", Collections.singleton("c"));
+        notifier.post(new PropertyChangeBatch(2L, new HashSet<>(Arrays.asList("a", "c", "x")), Arrays.asList(
+                new PropertyChangedEvent("${a}", "1", "2", 2L),
+                new PropertyChangedEvent("${c}", "0", "3", 2L)), secondKeys));
+        runAll(tasks);
+
+        assertThat(notified.size(), is(targets));
+        for (int i = 0; i < targets; i++) {
+            assertThat(notified.contains(i + ":213"), is(true));
+        }
+        assertThat(subscribed.size(), is(1));
+        assertThat(subscribed.get(0).getPlaceholderKeys().get("${a}"), is(new HashSet<>(Arrays.asList("a", "x"))));
+        assertThat(subscribed.get(0).getEpoch(), is(2L));
+        assertThat(subscribed.get(0).getChangedKeys(), is(new HashSet<>(Arrays.asList("a", "b", "c", "x"))));
+        assertThat(subscribed.get(0).getEvents(), is(Arrays.asList(
+                new PropertyChangedEvent("${a}", "0", "2", 2L),
+                new PropertyChangedEvent("${b}", "0", "1", 1L),
+                new PropertyChangedEvent("${c}", "0", "3", 2L))));
+        assertThat(notifier.getCoalescedEvents() > 0, is(true));
+        assertThat(notifier.getDispatchedEvents(), is(3L));
+        assertThat(notifier.getDroppedEvents(), is(0L));
+    }
+
+    @Test
+    public void shouldDropBatchesAsAWhole() {
+        int targets = 16;
+        List<Runnable> tasks = new ArrayList<>();
+        AsyncEventNotifier notifier = new AsyncEventNotifier(tasks::add, 4, 1,
+                AsyncEventNotifier.BackpressurePolicy.DROP);
+        List<String> notified = new ArrayList<>();
+        notifier.bindAll(bindTargets(targets, notified));
+
+        notifier.post(new PropertyChangeBatch(1L, new HashSet<>(Arrays.asList("a", "b")), Arrays.asList(
+                new PropertyChangedEvent("${a}", "0", "1", 1L),
+                new PropertyChangedEvent("${b}", "0", "1", 1L))));
+        notifier.post(new PropertyChangeBatch(2L, new HashSet<>(Arrays.asList("a", "c")), Arrays.asList(
+                new PropertyChangedEvent("${a}", "1", "2", 2L),
+                new PropertyChangedEvent("${c}", "0", "3", 2L))));
+        runAll(tasks);
+
+        assertThat(notified.size(), is(targets));
+        for (int i = 0; i < targets; i++) {
+            assertThat(notified.contains(i + ":110"), is(true));
+        }
+        assertThat(notifier.getDroppedEvents(), is(2L));
+        assertThat(notifier.getDispatchedEvents(), is(2L));
+
+        notified.clear();
+        notifier.post(new PropertyChangeBatch(3L, new HashSet<>(Arrays.asList("a", "c")), Arrays.asList(
+                new PropertyChangedEvent("${a}", "1", "2", 3L),
+                new PropertyChangedEvent("${c}", "0", "3", 3L))));
+        runAll(tasks);
+        assertThat(notified.size(), is(targets));
+        for (int i = 0; i < targets; i++) {
+            assertThat(notified.contains(i + ":213"), is(true));
+        }
+    }
+}
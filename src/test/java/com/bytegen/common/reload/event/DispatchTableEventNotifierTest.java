@@ -0,0 +1,104 @@
+package com.bytegen.common.reload.event;
+
+import com.bytegen.common.reload.bean.PropertyChangeBatch;
+import com.bytegen.common.reload.bean.PropertyChangedEvent;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class DispatchTableEventNotifierTest {
+
+    @Test
+    public void shouldDeliverToBoundHandlersOnly() {
+        DispatchTableEventNotifier notifier = new DispatchTableEventNotifier();
+        List<String> delivered = new ArrayList<>();
+        PropertyChangeHandler first = event -> delivered.add("first:" + event.getNewValue());
+        PropertyChangeHandler second = event -> delivered.add("second:" + event.getNewValue());
+        PropertyChangeHandler failing = event -> {
+            throw new IllegalArgumentException("failing handler");
+        };
+        List<PropertyChangedEvent> all = new ArrayList<>();
+
+        notifier.bind("${a}", first);
+        notifier.bind("${a}", failing);
+        notifier.bind("${a}", second);
+        notifier.bind("${b}", second);
+        notifier.register(all::add);
+
+        notifier.post(new PropertyChangedEvent("${a}", "0", "1"));
+        assertThat(delivered, is(Arrays.asList("first:1", "second:1")));
+        assertThat(notifier.getFailedEvents(), is(1L));
+
+        delivered.clear();
+        notifier.unbind("${a}", first);
+        notifier.unbind("${a}", failing);
+        notifier.post(new PropertyChangedEvent("${a}", "1", "2"));
+        notifier.post(new PropertyChangedEvent("${c}", "1", "2"));
+        assertThat(delivered, is(Collections.singletonList("second:2")));
+        assertThat(all.size(), is(3));
+
+        delivered.clear();
+        Map<String, List<PropertyChangeHandler>> bulk = new HashMap<>();
+        bulk.put("${a}", Arrays.asList(first, first));
+        bulk.put("${c}", Collections.singletonList(first));
+        notifier.bindAll(bulk);
+        notifier.post(new PropertyChangedEvent("${a}", "2", "3"));
+        notifier.post(new PropertyChangedEvent("${c}", "2", "3"));
+        assertThat(delivered, is(Arrays.asList("second:3", "first:3", "first:3", "first:3")));
+    }
+
+    @Test
+    public void shouldDeliverBatchesGroupedByTarget() {
+        DispatchTableEventNotifier notifier = new DispatchTableEventNotifier();
+        List<String> delivered = new ArrayList<>();
+        Object beanA = new Object();
+        Object beanB = new Object();
+        notifier.bind("${x}", handler(beanA, "a.x", delivered));
+        notifier.bind("${x}", handler(beanB, "b.x", delivered));
+        notifier.bind("${y}", handler(beanA, "a.y", delivered));
+        notifier.bind("${z}", handler(beanB, "b.z", delivered));
+        List<PropertyChangeBatch> batches = new ArrayList<>();
+        notifier.register(new EventSubscriber() {
+            @Override
+            public void onPropertyChangedEvent(final PropertyChangedEvent event) {
+                delivered.add("event:" + event.getPropertyName());
+            }
+
+            @Override
+            public void onPropertyChangeBatch(final PropertyChangeBatch batch) {
+                batches.add(batch);
+            }
+        });
+
+        notifier.post(new PropertyChangeBatch(1L, new HashSet<>(Arrays.asList("x", "y", "z")), Arrays.asList(
+                new PropertyChangedEvent("${x}", "0", "1", 1L),
+                new PropertyChangedEvent("${z}", "0", "1", 1L),
+                new PropertyChangedEvent("${y}", "0", "1", 1L))));
+        assertThat(delivered, is(Arrays.asList("a.x", "a.y", "b.x", "b.z")));
+        assertThat(batches.size(), is(1));
+        assertThat(batches.get(0).size(), is(3));
+    }
+
+    private static PropertyChangeHandler handler(final Object target, final String name, final List<String> delivered) {
+        return new PropertyChangeHandler() {
+            @Override
+            public void onPropertyChanged(final PropertyChangedEvent event) {
+                delivered.add(name);
+            }
+
+            @Override
+            public Object getTarget() {
+                return target;
+            }
+        };
+    }
+}
@@ -0,0 +1,65 @@
+package com.bytegen.common.reload.resolver;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.util.PropertyPlaceholderHelper;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class PlaceholderTemplateTest {
+
+    private Properties properties;
+
+    @Before
+    public void setUp() {
+        properties = new Properties();
+        properties.setProperty("base", "World");
+        properties.setProperty("composite", "Hello, ${base}!");
+        properties.setProperty("name", "base");
+        properties.setProperty("circular", "${circular}");
+    }
+
+    private String resolve(String text, Set<String> referencedKeys) {
+        return PlaceholderTemplate.compile(text).resolve(properties::getProperty, referencedKeys);
+    }
+
+    @Test
+    public void shouldResolveLikePropertyPlaceholderHelper() {
+        PropertyPlaceholderHelper helper = new PropertyPlaceholderHelper("${", "}", ":", false);
+        String[] texts = {"plain", "${base}", "${composite}", "[${base}] ${composite}", "${${name}}",
+                "${missing:default}", "${missing:${base}}", "${missing:}", "unclosed ${base"};
+        for (String text : texts) {
+            assertThat(text, resolve(text, null), is(helper.replacePlaceholders(text, properties)));
+        }
+    }
+
+    @Test
+    public void shouldRecordNestedReferencedKeys() {
+        Set<String> referencedKeys = new HashSet<>();
+        assertThat(resolve("${composite} ${${name}}", referencedKeys), is("Hello, World! World"));
+        assertThat(referencedKeys.size(), is(3));
+        assertThat(referencedKeys.containsAll(Arrays.asList("composite", "base", "name")), is(true));
+    }
+
+    @Test
+    public void shouldCacheCompiledTemplates() {
+        assertThat(PlaceholderTemplate.compile("${base}"), sameInstance(PlaceholderTemplate.compile("${base}")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnresolvablePlaceholder() {
+        resolve("${missing}", null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectCircularPlaceholder() {
+        resolve("${circular}", null);
+    }
+}